@@ -0,0 +1,81 @@
+package com.scraxx.proxy.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON binding of the forward API's request and response bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForwardJsonBenchmark {
+
+    @Param({"256", "65536"})
+    private int bodySize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ForwardRequest request;
+    private ForwardResponse response;
+    private String requestJson;
+    private String responseJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        List<Header> headers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Header header = new Header();
+            header.setName("X-Header-" + i);
+            header.setValue("value-" + i);
+            headers.add(header);
+        }
+        String body = "x".repeat(bodySize);
+
+        request = new ForwardRequest();
+        request.setUrl("https://example.com/items?page=1");
+        request.setMethod("POST");
+        request.setBody(body);
+        request.setHeaders(headers);
+
+        response = new ForwardResponse();
+        response.setStatusCode(200);
+        response.setBody(body);
+        response.setHeaders(headers);
+        response.setProxyUsed("10.0.0.1:8080");
+
+        requestJson = objectMapper.writeValueAsString(request);
+        responseJson = objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public ForwardRequest readRequest() throws JsonProcessingException {
+        return objectMapper.readValue(requestJson, ForwardRequest.class);
+    }
+
+    @Benchmark
+    public String writeRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Benchmark
+    public ForwardResponse readResponse() throws JsonProcessingException {
+        return objectMapper.readValue(responseJson, ForwardResponse.class);
+    }
+
+    @Benchmark
+    public String writeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(response);
+    }
+}
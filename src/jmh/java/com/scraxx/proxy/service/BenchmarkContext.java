@@ -0,0 +1,63 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.ProxyApplication;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Boots the application without a web server for benchmarks that need the real, fully wired services. Nothing
+ * reaches the network or disk on its own: the proxy source is empty, state is not persisted, and the scheduled
+ * fetch and health checks are pushed beyond any benchmark run. Benchmarks install their own proxies instead.
+ */
+final class BenchmarkContext {
+
+    private static final String[] BENCHMARK_PROPERTIES = {
+            "logging.level.root=WARN",
+            "logging.level.com.scraxx.proxy=WARN",
+            "proxy.proxySourceType=STATIC",
+            "proxy.staticProxies=",
+            "proxy.proxyStatePersistenceEnabled=false",
+            "proxy.proxyFetchIntervalMinutes=1440",
+            "proxy.healthCheckTickSeconds=86400",
+    };
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        // Passed as command-line arguments, since builder properties are defaults that application.yml overrides
+        String[] args = Stream.concat(Stream.of(BENCHMARK_PROPERTIES), Stream.of(properties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(ProxyApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    /**
+     * Replaces the provider's proxies with the given ones, all healthy and not due for a health check
+     * while the benchmark runs.
+     */
+    static void installProxies(ProxyManagerService proxyManager, List<ProxyInfo> proxies) {
+        Instant nextCheck = Instant.now().plus(1, ChronoUnit.DAYS);
+        for (ProxyInfo proxy : proxies) {
+            proxy.setHealthy(true);
+            proxy.setNextHealthCheck(nextCheck);
+        }
+        proxyManager.mergeProxies(proxies);
+    }
+
+    static ProxyInfo proxy(String ip, int port) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort(String.valueOf(port));
+        return proxy;
+    }
+}
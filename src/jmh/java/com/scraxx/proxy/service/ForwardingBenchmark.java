@@ -0,0 +1,92 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ForwardProxyService#forwardRequest} through in-process stub proxies. The stubs answer
+ * every absolute-form request themselves, so the target host never has to exist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class ForwardingBenchmark {
+    private static final int STUB_PROXIES = 4;
+
+    @Param({"1024"})
+    private int responseSize;
+
+    private final List<HttpServer> stubProxies = new ArrayList<>();
+    private ConfigurableApplicationContext context;
+    private ForwardProxyService forwardProxyService;
+    private ForwardRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] body = "x".repeat(responseSize).getBytes(StandardCharsets.UTF_8);
+        List<ProxyInfo> proxies = new ArrayList<>();
+        for (int i = 0; i < STUB_PROXIES; i++) {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/", exchange -> {
+                exchange.getRequestBody().readAllBytes();
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            stubProxies.add(server);
+            proxies.add(BenchmarkContext.proxy("127.0.0.1", server.getAddress().getPort()));
+        }
+
+        context = BenchmarkContext.start();
+        BenchmarkContext.installProxies(context.getBean(ProxyManagerService.class), proxies);
+        forwardProxyService = context.getBean(ForwardProxyService.class);
+
+        request = new ForwardRequest();
+        request.setUrl("http://upstream.benchmark/items/1");
+        request.setMethod("GET");
+
+        ForwardResponse warmup = forwardProxyService.forwardRequest(request);
+        if (warmup.getStatusCode() != 200 || warmup.isUsedDirectConnection()) {
+            throw new IllegalStateException("Stub proxies not answering: " + warmup.getStatusCode() + " " + warmup.getBody());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        stubProxies.forEach(server -> server.stop(0));
+    }
+
+    @Benchmark
+    public ForwardResponse forwardThroughProxy() {
+        return forwardProxyService.forwardRequest(request);
+    }
+}
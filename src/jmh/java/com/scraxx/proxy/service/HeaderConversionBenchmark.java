@@ -0,0 +1,53 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.Header;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Both directions of {@code ForwardProxyService.convertHeaders}, which every forwarded request goes through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeaderConversionBenchmark {
+
+    @Param({"5", "30"})
+    private int headerCount;
+
+    private List<Header> headers;
+    private HttpHeaders httpHeaders;
+
+    @Setup
+    public void setUp() {
+        headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            Header header = new Header();
+            header.setName("X-Benchmark-Header-" + i);
+            header.setValue("value-" + i + "-abcdefghijklmnopqrstuvwxyz");
+            headers.add(header);
+        }
+        httpHeaders = ForwardProxyService.convertHeaders(headers);
+    }
+
+    @Benchmark
+    public HttpHeaders toHttpHeaders() {
+        return ForwardProxyService.convertHeaders(headers);
+    }
+
+    @Benchmark
+    public List<Header> fromHttpHeaders() {
+        return ForwardProxyService.convertHeaders(httpHeaders);
+    }
+}
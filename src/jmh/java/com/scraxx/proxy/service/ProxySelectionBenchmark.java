@@ -0,0 +1,65 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProxyManagerService#getNextHealthyProxy()} from many threads at once, across pool sizes and strategies.
+ * Each selection hands its in-flight slot straight back, so the load-aware strategies keep seeing an idle pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class ProxySelectionBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int proxyCount;
+
+    @Param({"ROUND_ROBIN", "POWER_OF_TWO_CHOICES", "EWMA_LATENCY", "SUCCESS_RATE"})
+    private String strategy;
+
+    private ConfigurableApplicationContext context;
+    private ProxyManagerService proxyManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("proxy.selectionStrategy=" + strategy);
+        proxyManager = context.getBean(ProxyManagerService.class);
+
+        List<ProxyInfo> proxies = new ArrayList<>(proxyCount);
+        for (int i = 0; i < proxyCount; i++) {
+            proxies.add(BenchmarkContext.proxy("10.0." + (i / 250) + "." + (i % 250 + 1), 8080));
+        }
+        BenchmarkContext.installProxies(proxyManager, proxies);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProxyInfo nextHealthyProxy() {
+        ProxyInfo proxy = proxyManager.getNextHealthyProxy();
+        if (proxy != null) {
+            proxyManager.releaseUnused(proxy);
+        }
+        return proxy;
+    }
+}
@@ -0,0 +1,25 @@
+package com.scraxx.proxy.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Sizes the servlet async timeout from requestDeadlineMillis and batchDeadlineSeconds, so that a Mono or Flux
+ * returned by the controller answers with its own deadline response before the container gives up on it.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AsyncRequestConfig implements WebMvcConfigurer {
+    /** Head room for the deadline response to be produced and written */
+    private static final long DEADLINE_MARGIN_MILLIS = 30000;
+
+    private final ProxyConfigProperties config;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        long longestDeadline = Math.max(config.getRequestDeadlineMillis(), config.getBatchDeadlineSeconds() * 1000L);
+        configurer.setDefaultTimeout(longestDeadline + DEADLINE_MARGIN_MILLIS);
+    }
+}
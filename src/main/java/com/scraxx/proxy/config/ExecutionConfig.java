@@ -0,0 +1,45 @@
+package com.scraxx.proxy.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@Slf4j
+public class ExecutionConfig {
+
+    /**
+     * Runs upstream attempts that must be raced or cancelled independently of the request thread.
+     * Cancelling such an attempt interrupts its virtual thread, which closes the blocked socket.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService upstreamExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Runs every request (and therefore the blocking upstream I/O done while handling it)
+     * on its own virtual thread, so slow proxies no longer pin Tomcat's platform threads.
+     * In-flight forwards are bounded by {@link com.scraxx.proxy.service.ForwardConcurrencyLimiter} instead.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "proxy", name = "executionMode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ProxyConfigProperties config) {
+        log.info("Using virtual threads for request handling (max concurrent forwards: {})",
+                config.getMaxConcurrentForwards());
+        return protocolHandler -> {
+            protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            if (protocolHandler instanceof AbstractProtocol<?> protocol
+                    && protocol.getMaxConnections() < config.getMaxConcurrentForwards()) {
+                // Let the connector accept as many connections as we are willing to forward
+                protocol.setMaxConnections(config.getMaxConcurrentForwards());
+            }
+        };
+    }
+}
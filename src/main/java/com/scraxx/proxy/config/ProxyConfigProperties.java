@@ -4,25 +4,201 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+import java.util.stream.IntStream;
+
 @Configuration
 @ConfigurationProperties(prefix = "proxy")
 @Data
 public class ProxyConfigProperties {
 
+    private ProxySourceType proxySourceType = ProxySourceType.STATIC;
     private String proxyProviderUrl = "https://example.com/proxy-list";
+    private int proxyProviderMaxPages = 10;
+    private String proxyFile = "proxies.txt";
+    private List<String> staticProxies = IntStream.range(0, 10).mapToObj(i -> "p.webshare.io:1000" + i).toList();
 
 
     private int proxyFetchIntervalMinutes = 60;
 
 
+    private boolean proxyStatePersistenceEnabled = true;
+    private String proxyStateFile = "proxy-state.bin";
+    private int proxyStateSnapshotSeconds = 30;
+    private int proxyStateMaxAgeMinutes = 60;
+
+
     private int healthCheckIntervalMinutes = 5;
     private int healthCheckTimeoutSeconds = 10;
+    private int healthCheckTickSeconds = 15;
+    private int healthCheckParallelism = 64;
+    private int unhealthyRecheckSeconds = 30;
+    private int maxHealthCheckBackoffMinutes = 60;
+    private HealthCheckMode healthCheckMode = HealthCheckMode.TCP;
+    private String healthCheckProbeTarget = "www.google.com:443";
 
 
     private int maxRetriesPerProxy = 3;
     private int maxProxyAttempts = 3;
+    private long requestDeadlineMillis = 90000;
+    private double attemptTimeoutPercentile = 99;
+    private double attemptTimeoutMultiplier = 3.0;
+    private int minAttemptTimeoutMillis = 1000;
+    private int retryBackoffMillis = 100;
+    private int maxRetryBackoffMillis = 2000;
+    private double retryBudgetPercent = 20;
+    private int retryBudgetMinRetriesPerSecond = 10;
+    private int retryBudgetMaxRetries = 100;
 
 
     private int connectionTimeoutSeconds = 30;
     private int readTimeoutSeconds = 60;
+
+
+    private int maxConnectionsPerRoute = 20;
+    private int maxConnectionsTotal = 200;
+    private int idleConnectionEvictionSeconds = 30;
+
+
+    private boolean dnsCacheEnabled = true;
+    private int dnsCacheTtlSeconds = 60;
+    private int dnsRefreshAfterSeconds = 45;
+    private int dnsNegativeTtlSeconds = 5;
+    private int dnsCacheMaxHosts = 10000;
+
+
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private int maxConcurrentForwards = 10000;
+    private int forwardPermitTimeoutMillis = 100;
+    private boolean adaptiveConcurrencyEnabled = true;
+    private int initialConcurrencyLimit = 1000;
+    private int minConcurrencyLimit = 20;
+    private int concurrencyLatencyThresholdMillis = 10000;
+    private double concurrencyBackoffRatio = 0.9;
+    private double normalPriorityShare = 0.9;
+    private double lowPriorityShare = 0.5;
+    private int shedRetryAfterSeconds = 1;
+
+
+    private Engine engine = Engine.BLOCKING;
+    private int maxBufferedBodyBytes = 16 * 1024 * 1024;
+
+
+    private boolean hedgingEnabled = false;
+    private int hedgeDelayMillis = 1000;
+    private double hedgeDelayPercentile = 0;
+    private int maxHedgesPerRequest = 1;
+    private List<String> hedgeMethods = List.of("GET", "HEAD");
+
+
+    private SelectionStrategy selectionStrategy = SelectionStrategy.ROUND_ROBIN;
+    private boolean sessionAffinityByHost = false;
+    private int sessionRingVirtualNodes = 100;
+    private double sessionLoadFactor = 1.25;
+
+
+    private boolean circuitBreakerEnabled = true;
+    private int circuitBreakerWindowSize = 20;
+    private int circuitBreakerMinimumCalls = 10;
+    private int circuitBreakerFailureRateThreshold = 50;
+    private int circuitBreakerSlowCallMillis = 10000;
+    private int circuitBreakerSlowCallRateThreshold = 80;
+    private int circuitBreakerOpenSeconds = 30;
+    private int circuitBreakerHalfOpenTrialCalls = 3;
+
+
+    private boolean listenerEnabled = false;
+    private int listenerPort = 3128;
+    private int listenerBacklog = 1024;
+    private int listenerBufferBytes = 16 * 1024;
+
+
+    private boolean responseCacheEnabled = false;
+    private long responseCacheMaxBytes = 64L * 1024 * 1024;
+    private int responseCacheMaxEntryBytes = 1024 * 1024;
+    private int responseCacheStaleRetentionSeconds = 600;
+    private List<String> responseCacheKeyHeaders = List.of("Accept", "Accept-Encoding", "Accept-Language");
+
+
+    private boolean coalescingEnabled = false;
+    private int maxCoalescedWaiters = 1000;
+    private List<String> coalescingMethods = List.of("GET", "HEAD");
+    private List<String> coalescingKeyHeaders = List.of("Accept", "Accept-Encoding", "Accept-Language", "Authorization", "Cookie");
+
+
+    private int maxBatchSize = 1000;
+    private int batchParallelism = 32;
+    private int batchDeadlineSeconds = 120;
+
+
+    private int maxQueuedJobs = 10000;
+    private int jobWorkers = 64;
+    private int jobDeadlineSeconds = 300;
+    private int jobResultTtlSeconds = 600;
+    private int maxRetainedJobs = 100000;
+    private int jobCallbackTimeoutSeconds = 10;
+    private int jobCallbackAttempts = 3;
+
+
+    private RateLimitMode rateLimitMode = RateLimitMode.QUEUE;
+    private int rateLimitMaxQueueMillis = 1000;
+    private double hostRateLimitPerSecond = 0;
+    private int hostRateLimitBurst = 10;
+    private double proxyRateLimitPerSecond = 0;
+    private int proxyRateLimitBurst = 5;
+    private int maxInFlightPerProxy = 0;
+
+
+    private int metricsMaxTargetHosts = 200;
+    private int metricsMaxProxies = 500;
+
+    public enum ProxySourceType {
+        /** The host:port entries in staticProxies */
+        STATIC,
+        /** The provider API at proxyProviderUrl, paginated */
+        HTTP,
+        /** proxyFile, either a provider-style JSON document or one host:port per line */
+        FILE
+    }
+
+    public enum ExecutionMode {
+        /** Request handling on Tomcat's bounded platform thread pool */
+        PLATFORM,
+        /** Request handling and upstream I/O on one virtual thread per request */
+        VIRTUAL
+    }
+
+    public enum Engine {
+        /** RestTemplate over pooled Apache HttpClient connections, one thread per forward */
+        BLOCKING,
+        /**
+         * WebClient over Reactor Netty, forwards multiplexed on the event loop. Uses the response cache, rate limits
+         * and metrics like BLOCKING, but has no request coalescing or hedging: startup fails if either is enabled.
+         */
+        REACTIVE
+    }
+
+    public enum HealthCheckMode {
+        /** A proxy is healthy when it accepts a TCP connection */
+        TCP,
+        /** A proxy is healthy when it opens a CONNECT tunnel to healthCheckProbeTarget */
+        HTTP_CONNECT
+    }
+
+    public enum SelectionStrategy {
+        ROUND_ROBIN,
+        /** Weighted by the inverse of each proxy's moving-average latency */
+        EWMA_LATENCY,
+        /** Fewer in-flight requests out of two random candidates */
+        POWER_OF_TWO_CHOICES,
+        /** Weighted by each proxy's moving-average success rate */
+        SUCCESS_RATE
+    }
+
+    public enum RateLimitMode {
+        /** Wait up to rateLimitMaxQueueMillis for a permit before refusing */
+        QUEUE,
+        /** Refuse as soon as no permit is available */
+        REJECT
+    }
 }
\ No newline at end of file
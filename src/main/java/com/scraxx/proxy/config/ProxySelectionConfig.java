@@ -0,0 +1,28 @@
+package com.scraxx.proxy.config;
+
+import com.scraxx.proxy.service.ProxyPerformanceTracker;
+import com.scraxx.proxy.service.selection.EwmaLatencySelectionStrategy;
+import com.scraxx.proxy.service.selection.PowerOfTwoChoicesSelectionStrategy;
+import com.scraxx.proxy.service.selection.ProxySelectionStrategy;
+import com.scraxx.proxy.service.selection.RoundRobinSelectionStrategy;
+import com.scraxx.proxy.service.selection.SuccessRateSelectionStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ProxySelectionConfig {
+
+    @Bean
+    public ProxySelectionStrategy proxySelectionStrategy(ProxyConfigProperties config,
+                                                         ProxyPerformanceTracker performanceTracker) {
+        log.info("Using {} proxy selection", config.getSelectionStrategy());
+        return switch (config.getSelectionStrategy()) {
+            case ROUND_ROBIN -> new RoundRobinSelectionStrategy();
+            case EWMA_LATENCY -> new EwmaLatencySelectionStrategy(performanceTracker);
+            case POWER_OF_TWO_CHOICES -> new PowerOfTwoChoicesSelectionStrategy(performanceTracker);
+            case SUCCESS_RATE -> new SuccessRateSelectionStrategy(performanceTracker);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.scraxx.proxy.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scraxx.proxy.service.source.FileProxySource;
+import com.scraxx.proxy.service.source.HttpProxySource;
+import com.scraxx.proxy.service.source.ProxyListParser;
+import com.scraxx.proxy.service.source.ProxySource;
+import com.scraxx.proxy.service.source.StaticProxySource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class ProxySourceConfig {
+
+    @Bean
+    public ProxySource proxySource(ProxyConfigProperties config, ObjectMapper objectMapper) {
+        log.info("Using {} proxy source", config.getProxySourceType());
+        ProxyListParser parser = new ProxyListParser(objectMapper);
+        return switch (config.getProxySourceType()) {
+            case STATIC -> new StaticProxySource(config);
+            case FILE -> new FileProxySource(config, parser);
+            case HTTP -> new HttpProxySource(config, providerRestTemplate(config), parser);
+        };
+    }
+
+    private static RestTemplate providerRestTemplate(ProxyConfigProperties config) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(config.getConnectionTimeoutSeconds()));
+        requestFactory.setReadTimeout(Duration.ofSeconds(config.getReadTimeoutSeconds()));
+        return new RestTemplate(requestFactory);
+    }
+}
@@ -1,16 +1,39 @@
 package com.scraxx.proxy.controller;
 
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.AnonymityLevel;
+import com.scraxx.proxy.model.BatchForwardResult;
+import com.scraxx.proxy.model.ForwardJob;
 import com.scraxx.proxy.model.ForwardRequest;
 import com.scraxx.proxy.model.ForwardResponse;
 import com.scraxx.proxy.model.ProxyInfo;
 import com.scraxx.proxy.model.ProxyStats;
+import com.scraxx.proxy.model.RoutingConstraints;
+import com.scraxx.proxy.service.BatchForwardService;
+import com.scraxx.proxy.service.ForwardConcurrencyLimiter;
+import com.scraxx.proxy.service.ForwardJobService;
 import com.scraxx.proxy.service.ForwardProxyService;
 import com.scraxx.proxy.service.ProxyManagerService;
+import com.scraxx.proxy.service.ReactiveForwardProxyService;
+import com.scraxx.proxy.service.StreamingForwardService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -21,12 +44,103 @@ public class ProxyController {
 
     private final ForwardProxyService proxyService;
     private final ProxyManagerService proxyManager;
+    private final ObjectProvider<ReactiveForwardProxyService> reactiveProxyService;
+    private final ProxyConfigProperties config;
+    private final StreamingForwardService streamingService;
+    private final BatchForwardService batchService;
+    private final ForwardJobService jobService;
 
     @PostMapping("/forward")
-    public ResponseEntity<ForwardResponse> forwardRequest(@RequestBody ForwardRequest request) {
+    public Mono<ResponseEntity<ForwardResponse>> forwardRequest(@RequestBody ForwardRequest request,
+                                                                @RequestHeader(name = ProxyManagerService.SESSION_HEADER, required = false) String sessionKey) {
         log.info("Received forward request for URL: {}", request.getUrl());
-        ForwardResponse response = proxyService.forwardRequest(request);
-        return ResponseEntity.status(response.getStatusCode()).body(response);
+        validateRouting(request);
+        if (request.getSessionKey() == null) {
+            request.setSessionKey(sessionKey);
+        }
+        if (config.getEngine() == ProxyConfigProperties.Engine.REACTIVE) {
+            return reactiveProxyService.getObject().forwardRequest(request).map(this::toResponseEntity);
+        }
+        return Mono.just(toResponseEntity(proxyService.forwardRequest(request)));
+    }
+
+    /**
+     * Forwards a list of requests concurrently and streams the results back as NDJSON, one line per request in
+     * completion order.
+     */
+    @PostMapping(value = "/forward/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchForwardResult> forwardBatch(@RequestBody List<ForwardRequest> requests) {
+        if (requests.size() > config.getMaxBatchSize()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Batch of " + requests.size() + " requests exceeds the limit of " + config.getMaxBatchSize());
+        }
+        requests.forEach(this::validateRouting);
+        return batchService.forwardBatch(requests);
+    }
+
+    /**
+     * Queues the request to run in the background and answers 202 with the job's location straight away. Poll
+     * that location for the result, or pass a callbackUrl to have the finished job POSTed there.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ForwardJob> submitJob(@RequestBody ForwardRequest request,
+                                                @RequestParam(name = "callbackUrl", required = false) String callbackUrl,
+                                                @RequestHeader(name = ProxyManagerService.SESSION_HEADER, required = false) String sessionKey) {
+        validateRouting(request);
+        validateCallbackUrl(callbackUrl);
+        if (request.getSessionKey() == null) {
+            request.setSessionKey(sessionKey);
+        }
+
+        ForwardJob job = jobService.submit(request, callbackUrl);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        log.info("Queued job {} for URL: {}", job.getId(), request.getUrl());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/proxy/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ForwardJob> getJob(@PathVariable String id) {
+        ForwardJob job = jobService.get(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Cancels a job that has not started yet; one that is running or finished answers 409 with its state.
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<ForwardJob> cancelJob(@PathVariable String id) {
+        ForwardJob job = jobService.cancel(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return job.getStatus() == ForwardJob.Status.CANCELLED
+                ? ResponseEntity.ok(job)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(job);
+    }
+
+    /**
+     * Raw pass-through: the target URL comes from the X-Forward-Url header (or the url parameter), and the
+     * method, headers and body of this request are streamed to it. The upstream status, headers and body are
+     * streamed back as-is, with the proxy used reported in X-Proxy-Used.
+     */
+    @RequestMapping("/stream")
+    public void streamRequest(@RequestHeader(name = StreamingForwardService.FORWARD_URL_HEADER, required = false) String forwardUrl,
+                              @RequestParam(name = "url", required = false) String url,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String target = forwardUrl != null ? forwardUrl : url;
+        if (target == null || target.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Target URL is required in the " + StreamingForwardService.FORWARD_URL_HEADER + " header or url parameter");
+        }
+
+        log.info("Received streaming forward request for URL: {}", target);
+        streamingService.streamRequest(target, new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
     }
 
     @GetMapping("/healthyProxies")
@@ -45,9 +159,49 @@ public class ProxyController {
         return ResponseEntity.ok("Proxy refresh initiated");
     }
 
+    /**
+     * Starts a full health check in the background: 202 once started, 409 if one is already running or there is
+     * nothing to check.
+     */
     @PostMapping("/check-health")
     public ResponseEntity<String> checkHealth() {
-        proxyManager.checkProxyHealth();
-        return ResponseEntity.ok("Health check initiated");
+        return switch (proxyManager.startProxyHealthCheck()) {
+            case STARTED -> ResponseEntity.accepted().body("Health check initiated");
+            case ALREADY_RUNNING -> ResponseEntity.status(HttpStatus.CONFLICT).body("Health check already in progress");
+            case NO_PROXIES -> ResponseEntity.status(HttpStatus.CONFLICT).body("No proxies to check");
+        };
+    }
+
+    private void validateRouting(ForwardRequest request) {
+        RoutingConstraints routing = request.getRouting();
+        if (routing != null && routing.getMinAnonymity() != null && AnonymityLevel.of(routing.getMinAnonymity()) == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unknown minAnonymity '" + routing.getMinAnonymity() + "', expected transparent, anonymous or elite");
+        }
+    }
+
+    private void validateCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null) {
+            return;
+        }
+        try {
+            URI uri = URI.create(callbackUrl);
+            if (uri.getHost() != null && ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))) {
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            // reported below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "callbackUrl must be an absolute http or https URL");
+    }
+
+    private ResponseEntity<ForwardResponse> toResponseEntity(ForwardResponse response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode());
+        // Shed forwards tell the client when to come back on the HTTP response itself
+        long retryAfterSeconds = ForwardConcurrencyLimiter.shedRetryAfterSeconds(response);
+        if (retryAfterSeconds >= 0) {
+            builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        return builder.body(response);
     }
 }
\ No newline at end of file
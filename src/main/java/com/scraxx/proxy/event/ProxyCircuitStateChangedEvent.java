@@ -0,0 +1,17 @@
+package com.scraxx.proxy.event;
+
+import com.scraxx.proxy.service.ProxyCircuitBreaker;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published whenever a proxy's circuit breaker moves between closed, open and half-open.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProxyCircuitStateChangedEvent {
+    private final String proxyAddress;
+    private final ProxyCircuitBreaker.State previousState;
+    private final ProxyCircuitBreaker.State newState;
+    private final long openUntilMillis;
+}
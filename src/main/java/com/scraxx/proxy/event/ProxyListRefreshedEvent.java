@@ -0,0 +1,18 @@
+package com.scraxx.proxy.event;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published by the proxy manager after a refresh added proxies to or removed them from the list.
+ * Components holding per-proxy resources use it to release proxies that are gone.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProxyListRefreshedEvent {
+    private final List<ProxyInfo> currentProxies;
+    private final List<ProxyInfo> removedProxies;
+}
@@ -0,0 +1,84 @@
+package com.scraxx.proxy.listener;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Native HTTP forward-proxy endpoint, so standard clients can use this service as their proxy
+ * ({@code curl -x host:listenerPort ...}) instead of going through the JSON API. Each client connection is
+ * served on its own virtual thread by {@link ProxyConnectionHandler}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "proxy", name = "listenerEnabled", havingValue = "true")
+@Slf4j
+@RequiredArgsConstructor
+public class ForwardProxyListener implements SmartLifecycle {
+    private final ProxyConfigProperties config;
+    private final ProxyConnectionHandler connectionHandler;
+
+    private volatile ServerSocketChannel serverChannel;
+    private volatile ExecutorService connectionExecutor;
+
+    @Override
+    public void start() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(config.getListenerPort()), config.getListenerBacklog());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to bind forward proxy listener on port " + config.getListenerPort(), e);
+        }
+
+        connectionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        connectionExecutor.submit(this::acceptLoop);
+        log.info("Forward proxy listener started on port {}", config.getListenerPort());
+    }
+
+    @Override
+    public void stop() {
+        ServerSocketChannel channel = serverChannel;
+        serverChannel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close forward proxy listener: {}", e.getMessage());
+            }
+        }
+        if (connectionExecutor != null) {
+            connectionExecutor.shutdownNow();
+            connectionExecutor = null;
+        }
+        log.info("Forward proxy listener stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serverChannel != null;
+    }
+
+    private void acceptLoop() {
+        ServerSocketChannel channel = serverChannel;
+        while (channel != null && channel.isOpen()) {
+            try {
+                SocketChannel client = channel.accept();
+                connectionExecutor.submit(() -> connectionHandler.handle(client));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to accept proxy client connection: {}", e.getMessage());
+            }
+        }
+    }
+}
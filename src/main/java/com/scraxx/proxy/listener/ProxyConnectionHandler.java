@@ -0,0 +1,558 @@
+package com.scraxx.proxy.listener;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.service.AlertService;
+import com.scraxx.proxy.service.CachingDnsResolver;
+import com.scraxx.proxy.service.FailureKind;
+import com.scraxx.proxy.service.ForwardConcurrencyLimiter;
+import com.scraxx.proxy.service.ForwardRateLimiter;
+import com.scraxx.proxy.service.ProxyManagerService;
+import com.scraxx.proxy.service.ProxyPerformance;
+import com.scraxx.proxy.service.ProxyPerformanceTracker;
+import com.scraxx.proxy.service.ProxyThrottledException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves one client connection of the {@link ForwardProxyListener}.
+ * <p>
+ * A {@code CONNECT host:port} request is tunnelled through an upstream proxy chosen by {@link ProxyManagerService}
+ * (rotating over up to maxProxyAttempts proxies, then falling back to a direct connection). Only a proxy that
+ * cannot be reached is taken out of rotation; one that answers the CONNECT with an error status is still working,
+ * so its status counts against its circuit breaker and is relayed to the client. A plain
+ * {@code GET http://...} request is relayed the same way with {@code Connection: close}. Once the upstream side is
+ * established, bytes are spliced between the two sockets through pooled direct buffers, so payloads never
+ * pass through the Java heap and are never parsed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "proxy", name = "listenerEnabled", havingValue = "true")
+@Slf4j
+@RequiredArgsConstructor
+public class ProxyConnectionHandler {
+    private static final int MAX_HEAD_BYTES = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final byte[] HEAD_TERMINATOR = {'\r', '\n', '\r', '\n'};
+    private static final String CONNECTION_ESTABLISHED = "HTTP/1.1 200 Connection Established\r\n\r\n";
+
+    private final ProxyManagerService proxyManager;
+    private final ProxyConfigProperties config;
+    private final AlertService alertService;
+    private final ForwardConcurrencyLimiter concurrencyLimiter;
+    private final ProxyPerformanceTracker performanceTracker;
+    private final ForwardRateLimiter rateLimiter;
+    private final CachingDnsResolver dnsResolver;
+
+    private final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    public void handle(SocketChannel client) {
+        try (client) {
+            client.socket().setSoTimeout(config.getReadTimeoutSeconds() * 1000);
+            Head head = readHead(client.socket().getInputStream());
+            if (head == null) {
+                return;
+            }
+
+            String[] requestLine = head.firstLine().split(" ");
+            if (requestLine.length != 3) {
+                writeStatus(client, 400, "Bad Request");
+                return;
+            }
+
+            proxyManager.incrementTotalRequests();
+            boolean tunnel = "CONNECT".equalsIgnoreCase(requestLine[0]);
+            String hostUrl = tunnel ? "https://" + requestLine[1] : requestLine[1];
+            if (!rateLimiter.acquireHost(hostUrl)) {
+                writeStatus(client, 429, "Too Many Requests");
+                return;
+            }
+            if (!concurrencyLimiter.tryAcquire()) {
+                proxyManager.incrementRejectedRequests();
+                rateLimiter.refundHost(hostUrl);
+                writeStatus(client, 503, "Service Unavailable", "Retry-After: " + config.getShedRetryAfterSeconds() + "\r\n");
+                return;
+            }
+
+            try {
+                client.socket().setSoTimeout(0);
+                if (tunnel) {
+                    handleConnect(client, requestLine[1], head);
+                } else {
+                    handlePlain(client, requestLine, head);
+                }
+            } finally {
+                concurrencyLimiter.release();
+            }
+        } catch (IOException e) {
+            log.debug("Proxy client connection failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleConnect(SocketChannel client, String target, Head head) throws IOException, InterruptedException {
+        int separator = target.lastIndexOf(':');
+        if (separator <= 0) {
+            writeStatus(client, 400, "Bad Request");
+            return;
+        }
+        String host = target.substring(0, separator);
+        int port = parsePort(target.substring(separator + 1));
+        if (port < 0) {
+            writeStatus(client, 400, "Bad Request");
+            return;
+        }
+
+        byte[] connectRequest = ("CONNECT " + target + " HTTP/1.1\r\nHost: " + target + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        Opened opened;
+        try {
+            opened = openThroughProxies(target, connectRequest, true);
+        } catch (ProxyThrottledException e) {
+            rejectThrottled(client, e);
+            return;
+        }
+        Refusal refusal = opened.refusal();
+        if (refusal != null && refusal.fromTarget()) {
+            // The proxy reached a verdict about the target itself, which no other route would change
+            proxyManager.incrementFailedRequests();
+            writeStatus(client, refusal.status(), refusal.reason());
+            return;
+        }
+        Upstream upstream = opened.upstream();
+        if (upstream == null) {
+            upstream = openDirect(target, host, port, null);
+        }
+        if (upstream == null) {
+            proxyManager.incrementFailedRequests();
+            // A 407 is about our credentials upstream; relayed, it would ask the client to authenticate with us
+            if (refusal != null && refusal.kind() != FailureKind.PROXY_REJECTED) {
+                writeStatus(client, refusal.status(), refusal.reason());
+            } else {
+                writeStatus(client, 502, "Bad Gateway");
+            }
+            return;
+        }
+
+        try (SocketChannel upstreamChannel = upstream.channel()) {
+            writeFully(client, ByteBuffer.wrap(CONNECTION_ESTABLISHED.getBytes(StandardCharsets.US_ASCII)));
+            proxyManager.incrementSuccessfulRequests();
+            splice(client, head.leftover(), upstreamChannel, upstream.leftover());
+        }
+    }
+
+    private void handlePlain(SocketChannel client, String[] requestLine, Head head) throws IOException, InterruptedException {
+        URI uri;
+        try {
+            uri = URI.create(requestLine[1]);
+        } catch (IllegalArgumentException e) {
+            writeStatus(client, 400, "Bad Request");
+            return;
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            // HTTPS must be tunnelled with CONNECT, and a forward proxy only accepts absolute-form targets
+            writeStatus(client, 400, "Bad Request");
+            return;
+        }
+
+        List<String> headers = relayableHeaders(head.headerLines());
+        byte[] proxiedHead = buildHead(requestLine[0] + " " + requestLine[1] + " " + requestLine[2], headers);
+        String target = uri.getHost() + ":" + (uri.getPort() > 0 ? uri.getPort() : 80);
+
+        Upstream upstream;
+        try {
+            upstream = openThroughProxies(target, proxiedHead, false).upstream();
+        } catch (ProxyThrottledException e) {
+            rejectThrottled(client, e);
+            return;
+        }
+        if (upstream == null) {
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            String originForm = uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+            byte[] directHead = buildHead(requestLine[0] + " " + originForm + " " + requestLine[2], headers);
+            upstream = openDirect(uri.toString(), uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80, directHead);
+        }
+        if (upstream == null) {
+            proxyManager.incrementFailedRequests();
+            writeStatus(client, 502, "Bad Gateway");
+            return;
+        }
+
+        try (SocketChannel upstreamChannel = upstream.channel()) {
+            proxyManager.incrementSuccessfulRequests();
+            splice(client, head.leftover(), upstreamChannel, upstream.leftover());
+        }
+    }
+
+    /**
+     * Tries up to maxProxyAttempts healthy proxies, never the same one twice. For a tunnel the proxy must answer
+     * the CONNECT with 2xx; for a plain request it is enough that the connection is accepted and the request head
+     * written. Stops at the first refusal that is about the target rather than the proxy.
+     *
+     * @throws ProxyThrottledException when every proxy is throttled before any was tried
+     */
+    private Opened openThroughProxies(String target, byte[] requestHead, boolean tunnel) {
+        Set<String> triedAddresses = new HashSet<>();
+        Refusal lastRefusal = null;
+        for (int attempt = 0; attempt < config.getMaxProxyAttempts(); attempt++) {
+            ProxyInfo proxyInfo;
+            try {
+                proxyInfo = proxyManager.awaitProxy(
+                        () -> proxyManager.getNextHealthyProxy(null, null, triedAddresses), Long.MAX_VALUE);
+            } catch (ProxyThrottledException e) {
+                if (triedAddresses.isEmpty()) {
+                    // Nothing tried yet: the caller refuses with Retry-After rather than going direct
+                    throw e;
+                }
+                // Later attempts end like running out of proxies, keeping what the earlier ones learned
+                log.warn("Every remaining proxy is throttled after {} attempts for {}", attempt, target);
+                break;
+            }
+            if (proxyInfo == null) {
+                log.warn("No healthy proxies available");
+                break;
+            }
+            triedAddresses.add(proxyInfo.getAddress());
+
+            // Counted in flight since selection; released below whatever happens
+            try {
+                Opened opened = openThroughProxy(proxyInfo, target, requestHead, tunnel);
+                if (opened.upstream() != null || (opened.refusal() != null && opened.refusal().fromTarget())) {
+                    return opened;
+                }
+                if (opened.refusal() != null) {
+                    lastRefusal = opened.refusal();
+                }
+            } finally {
+                performanceTracker.get(proxyInfo).requestFinished();
+            }
+        }
+        return new Opened(null, lastRefusal);
+    }
+
+    private Opened openThroughProxy(ProxyInfo proxyInfo, String target, byte[] requestHead, boolean tunnel) {
+        ProxyPerformance performance = performanceTracker.get(proxyInfo);
+        long startTime = System.nanoTime();
+        log.info("Opening {} to {} through proxy {}", tunnel ? "tunnel" : "connection", target, proxyInfo.getAddress());
+
+        SocketChannel channel = null;
+        try {
+            channel = connect(proxyInfo.getIp(), Integer.parseInt(proxyInfo.getPort()));
+            writeFully(channel, ByteBuffer.wrap(requestHead));
+        } catch (IOException | RuntimeException e) {
+            // The proxy itself is unreachable, which is the one case that takes it out of rotation
+            log.warn("Proxy {} unreachable for {}: {}", proxyInfo.getAddress(), target, e.getMessage());
+            performance.recordFailure(elapsedMillis(startTime));
+            proxyManager.markProxyUnhealthy(proxyInfo);
+            closeQuietly(channel);
+            return new Opened(null, null);
+        }
+        if (!tunnel) {
+            performance.recordSuccess(elapsedMillis(startTime));
+            return new Opened(new Upstream(channel, null), null);
+        }
+
+        try {
+            channel.socket().setSoTimeout(config.getReadTimeoutSeconds() * 1000);
+            Head response = readHead(channel.socket().getInputStream());
+            if (response == null) {
+                throw new IOException("Proxy closed the connection without answering CONNECT");
+            }
+            Refusal refusal = Refusal.of(response.firstLine());
+            if (refusal == null) {
+                channel.socket().setSoTimeout(0);
+                performance.recordSuccess(elapsedMillis(startTime));
+                return new Opened(new Upstream(channel, response.leftover()), null);
+            }
+
+            closeQuietly(channel);
+            if (refusal.fromTarget()) {
+                // The proxy relayed the target's answer, as a working proxy should
+                performance.recordSuccess(elapsedMillis(startTime));
+            } else {
+                log.warn("Proxy {} refused CONNECT to {} ({}): {}",
+                        proxyInfo.getAddress(), target, refusal.kind(), response.firstLine());
+                performance.recordFailure(elapsedMillis(startTime));
+            }
+            return new Opened(null, refusal);
+        } catch (IOException | RuntimeException e) {
+            // Reached, but it did not answer in time or broke off: counts against its breaker, not its health
+            log.warn("Proxy {} failed for {}: {}", proxyInfo.getAddress(), target, e.getMessage());
+            performance.recordFailure(elapsedMillis(startTime));
+            closeQuietly(channel);
+            return new Opened(null, null);
+        }
+    }
+
+    /**
+     * Refuses a request because every proxy is throttled; going direct would bypass the per-proxy limits and
+     * expose our own address to the target.
+     */
+    private void rejectThrottled(SocketChannel client, ProxyThrottledException e) throws IOException {
+        proxyManager.incrementRejectedRequests();
+        writeStatus(client, 503, "Service Unavailable", "Retry-After: " + e.getRetryAfterSeconds() + "\r\n");
+    }
+
+    /**
+     * The port of a CONNECT target, or -1 if it is not a number from 1 to 65535.
+     */
+    private static int parsePort(String value) {
+        try {
+            int port = Integer.parseInt(value);
+            return port >= 1 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Upstream openDirect(String target, String host, int port, byte[] requestHead) {
+        log.warn("All proxy attempts failed, falling back to direct connection");
+        alertService.alertFallbackToDirect(target);
+
+        SocketChannel channel = null;
+        try {
+            channel = connect(host, port);
+            if (requestHead != null) {
+                writeFully(channel, ByteBuffer.wrap(requestHead));
+            }
+            proxyManager.incrementDirectRequests();
+            return new Upstream(channel, null);
+        } catch (IOException | RuntimeException e) {
+            log.error("Direct connection to {} failed: {}", target, e.getMessage());
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    /**
+     * Connects to the first of the host's addresses that accepts.
+     */
+    private SocketChannel connect(String host, int port) throws IOException {
+        IOException failure = null;
+        for (InetAddress address : dnsResolver.resolve(host)) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.socket().connect(new InetSocketAddress(address, port), config.getConnectionTimeoutSeconds() * 1000);
+                return channel;
+            } catch (IOException e) {
+                closeQuietly(channel);
+                failure = e;
+            }
+        }
+        // A resolver answer with no addresses leaves nothing that could have failed
+        throw failure != null ? failure : new UnknownHostException(host);
+    }
+
+    /**
+     * Relays bytes in both directions until the upstream is done, then tears the pair down.
+     */
+    private void splice(SocketChannel client, ByteBuffer clientLeftover,
+                        SocketChannel upstream, ByteBuffer upstreamLeftover) throws InterruptedException {
+        Thread clientToUpstream = Thread.ofVirtual().start(() -> pump(client, clientLeftover, upstream));
+        pump(upstream, upstreamLeftover, client);
+        closeQuietly(client);
+        closeQuietly(upstream);
+        clientToUpstream.join();
+    }
+
+    private void pump(SocketChannel from, ByteBuffer pending, SocketChannel to) {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            if (pending != null) {
+                writeFully(to, pending);
+            }
+            while (from.read(buffer) != -1) {
+                buffer.flip();
+                writeFully(to, buffer);
+                buffer.clear();
+            }
+            // Propagate the half-close so the other side sees end of stream
+            to.shutdownOutput();
+        } catch (IOException e) {
+            log.trace("Tunnel closed: {}", e.getMessage());
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(config.getListenerBufferBytes());
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffer.clear();
+            bufferPool.offer(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reads an HTTP message head (up to and including the blank line). Bytes read past it are kept as leftover.
+     */
+    private static Head readHead(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (buffer.length >= MAX_HEAD_BYTES) {
+                    throw new IOException("HTTP head too large");
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_HEAD_BYTES));
+            }
+
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                return null;
+            }
+            int searchFrom = Math.max(0, length - HEAD_TERMINATOR.length + 1);
+            length += read;
+
+            int end = indexOf(buffer, searchFrom, length, HEAD_TERMINATOR);
+            if (end >= 0) {
+                int headLength = end + HEAD_TERMINATOR.length;
+                String[] lines = new String(buffer, 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+                List<String> headerLines = new ArrayList<>(List.of(lines).subList(1, lines.length));
+                ByteBuffer leftover = length > headLength
+                        ? ByteBuffer.wrap(Arrays.copyOfRange(buffer, headLength, length))
+                        : null;
+                return new Head(lines[0], headerLines, leftover);
+            }
+        }
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static List<String> relayableHeaders(List<String> headerLines) {
+        List<String> headers = new ArrayList<>();
+        for (String line : headerLines) {
+            String name = line.substring(0, Math.max(0, line.indexOf(':'))).trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("connection") && !name.equals("keep-alive") && !name.startsWith("proxy-")) {
+                headers.add(line);
+            }
+        }
+        // One request per client connection keeps the relay a plain byte splice
+        headers.add("Connection: close");
+        return headers;
+    }
+
+    private static byte[] buildHead(String requestLine, List<String> headers) {
+        StringBuilder head = new StringBuilder(requestLine).append("\r\n");
+        headers.forEach(header -> head.append(header).append("\r\n"));
+        return head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static void writeStatus(SocketChannel client, int status, String reason) throws IOException {
+        writeStatus(client, status, reason, "");
+    }
+
+    private static void writeStatus(SocketChannel client, int status, String reason, String extraHeaders) throws IOException {
+        String response = "HTTP/1.1 " + status + " " + reason + "\r\n" + extraHeaders
+                + "Content-Length: 0\r\nConnection: close\r\n\r\n";
+        writeFully(client, ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already closed by the other direction
+            }
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private record Head(String firstLine, List<String> headerLines, ByteBuffer leftover) {
+    }
+
+    private record Upstream(SocketChannel channel, ByteBuffer leftover) {
+    }
+
+    /**
+     * What came of going through the proxies: the upstream connection, or else the last CONNECT refusal, if any.
+     */
+    private record Opened(Upstream upstream, Refusal refusal) {
+    }
+
+    /**
+     * A non-2xx answer to a CONNECT, classified like the HTTP engines classify statuses.
+     */
+    private record Refusal(int status, String reason, FailureKind kind) {
+        /**
+         * Parses a CONNECT status line; null when it is a 2xx.
+         *
+         * @throws IOException when it is not a status line at all
+         */
+        static Refusal of(String statusLine) throws IOException {
+            String[] parts = statusLine.split(" ", 3);
+            int status;
+            try {
+                status = parts.length >= 2 ? Integer.parseInt(parts[1]) : -1;
+            } catch (NumberFormatException e) {
+                status = -1;
+            }
+            if (status < 100 || status > 599) {
+                throw new IOException("Malformed answer to CONNECT: " + statusLine);
+            }
+            if (status / 100 == 2) {
+                return null;
+            }
+            String reason = parts.length == 3 && !parts[2].isBlank() ? parts[2] : "Error";
+            return new Refusal(status, reason, FailureKind.ofStatus(status));
+        }
+
+        boolean fromTarget() {
+            return kind == FailureKind.TARGET_ERROR;
+        }
+    }
+}
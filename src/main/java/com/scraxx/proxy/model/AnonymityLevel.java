@@ -0,0 +1,27 @@
+package com.scraxx.proxy.model;
+
+import java.util.Locale;
+
+/**
+ * Anonymity levels reported by proxy providers, from least to most anonymous.
+ */
+public enum AnonymityLevel {
+    TRANSPARENT,
+    ANONYMOUS,
+    ELITE;
+
+    /**
+     * Parses a provider's level case-insensitively, or returns null when it is missing or unknown.
+     */
+    public static AnonymityLevel of(String level) {
+        if (level == null) {
+            return null;
+        }
+        return switch (level.trim().toLowerCase(Locale.ROOT)) {
+            case "transparent" -> TRANSPARENT;
+            case "anonymous" -> ANONYMOUS;
+            case "elite", "high anonymity" -> ELITE;
+            default -> null;
+        };
+    }
+}
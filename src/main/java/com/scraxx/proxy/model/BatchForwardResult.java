@@ -0,0 +1,18 @@
+package com.scraxx.proxy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a batch forward's output. Results arrive in completion order, so index points back to the
+ * position of the request in the submitted batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchForwardResult {
+    private int index;
+    private String url;
+    private ForwardResponse response;
+}
@@ -0,0 +1,18 @@
+package com.scraxx.proxy.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a proxy provider's list response.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FetchProxyResponseWrapper {
+    private List<ProxyInfo> data;
+    private Integer total;
+    private Integer page;
+    private Integer limit;
+}
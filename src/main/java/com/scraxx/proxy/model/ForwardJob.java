@@ -0,0 +1,33 @@
+package com.scraxx.proxy.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous forward as reported to clients: when it was queued, started and finished, and the
+ * forward's response once there is one.
+ */
+@Data
+public class ForwardJob {
+    private String id;
+    private Status status;
+    private RequestPriority priority;
+    private String url;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant completedAt;
+    private ForwardResponse response;
+    private String callbackUrl;
+    /** Status the callback URL answered with, or null while not (yet) delivered */
+    private Integer callbackStatusCode;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        /** The job deadline passed before a worker picked it up */
+        EXPIRED,
+        CANCELLED
+    }
+}
@@ -10,4 +10,8 @@ public class ForwardRequest {
     private String method;
     private String body;
     private List<Header> headers;
+    private Long timeoutMillis;
+    private RoutingConstraints routing;
+    private String sessionKey;
+    private RequestPriority priority;
 }
@@ -11,4 +11,5 @@ public class ForwardResponse {
     private List<Header> headers;
     private boolean usedDirectConnection;
     private String proxyUsed;
+    private boolean servedFromCache;
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.scraxx.proxy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -27,5 +28,11 @@ public class ProxyInfo {
     // Fields for proxy health management
     private boolean healthy = true;
     private Instant lastHealthCheck;
+    private Instant nextHealthCheck;
     private int consecutiveFailures = 0;
+
+    @JsonIgnore
+    public String getAddress() {
+        return ip + ":" + port;
+    }
 }
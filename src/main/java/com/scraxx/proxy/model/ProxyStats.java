@@ -7,8 +7,18 @@ public class ProxyStats {
     private int totalProxies;
     private int healthyProxies;
     private int unhealthyProxies;
-    private int totalRequests;
-    private int successfulRequests;
-    private int failedRequests;
-    private int directRequests;
+    private long totalRequests;
+    private long successfulRequests;
+    private long failedRequests;
+    private long directRequests;
+    private long rejectedRequests;
+    private int inFlightRequests;
+    private int openCircuits;
+    private int halfOpenCircuits;
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheRevalidations;
+    private long coalescedRequests;
+    private long rateLimitedRequests;
+    private long retriesDenied;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.scraxx.proxy.model;
+
+/**
+ * How urgent a forward is, highest first. Requests without a priority are treated as NORMAL.
+ */
+public enum RequestPriority {
+    HIGH,
+    NORMAL,
+    LOW;
+
+    public static RequestPriority of(ForwardRequest request) {
+        return request.getPriority() != null ? request.getPriority() : NORMAL;
+    }
+}
@@ -0,0 +1,24 @@
+package com.scraxx.proxy.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+/**
+ * Optional requirements a forward places on the proxy it goes through. Unset fields do not constrain.
+ */
+@Data
+public class RoutingConstraints {
+    /** ISO country code of the proxy's exit, e.g. "IN" */
+    private String country;
+    /** A protocol the proxy must support, e.g. "http" or "socks5" */
+    private String protocol;
+    /** Least acceptable anonymity: transparent, anonymous or elite */
+    private String minAnonymity;
+    /** Upper bound on the proxy's average observed latency */
+    private Integer maxResponseTimeMillis;
+
+    @JsonIgnore
+    public boolean isConstrained() {
+        return country != null || protocol != null || minAnonymity != null || maxResponseTimeMillis != null;
+    }
+}
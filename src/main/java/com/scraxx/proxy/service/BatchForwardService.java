@@ -0,0 +1,78 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.BatchForwardResult;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Fans a batch of forwards out concurrently and emits each result as soon as it completes, so one slow
+ * target does not hold back the rest. Requests that have not finished when the batch deadline passes are
+ * cancelled and reported with a 504.
+ */
+@Service
+@Slf4j
+public class BatchForwardService {
+    private final ForwardProxyService proxyService;
+    private final ObjectProvider<ReactiveForwardProxyService> reactiveProxyService;
+    private final ProxyConfigProperties config;
+    private final Scheduler upstreamScheduler;
+
+    public BatchForwardService(ForwardProxyService proxyService,
+                               ObjectProvider<ReactiveForwardProxyService> reactiveProxyService,
+                               ProxyConfigProperties config,
+                               ExecutorService upstreamExecutor) {
+        this.proxyService = proxyService;
+        this.reactiveProxyService = reactiveProxyService;
+        this.config = config;
+        this.upstreamScheduler = Schedulers.fromExecutorService(upstreamExecutor);
+    }
+
+    public Flux<BatchForwardResult> forwardBatch(List<ForwardRequest> requests) {
+        log.info("Forwarding batch of {} requests", requests.size());
+        long deadline = System.currentTimeMillis() + config.getBatchDeadlineSeconds() * 1000L;
+
+        return Flux.range(0, requests.size())
+                .flatMap(index -> forwardBeforeDeadline(requests.get(index), deadline)
+                        .map(response -> new BatchForwardResult(index, requests.get(index).getUrl(), response)),
+                        config.getBatchParallelism());
+    }
+
+    private Mono<ForwardResponse> forwardBeforeDeadline(ForwardRequest request, long deadline) {
+        return Mono.defer(() -> {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return Mono.just(deadlineExceeded());
+            }
+            // Cancelling on timeout interrupts the blocking attempt, which closes its socket
+            return forward(request)
+                    .timeout(Duration.ofMillis(remaining), Mono.fromSupplier(BatchForwardService::deadlineExceeded));
+        });
+    }
+
+    private Mono<ForwardResponse> forward(ForwardRequest request) {
+        if (config.getEngine() == ProxyConfigProperties.Engine.REACTIVE) {
+            return reactiveProxyService.getObject().forwardRequest(request);
+        }
+        return Mono.fromCallable(() -> proxyService.forwardRequest(request)).subscribeOn(upstreamScheduler);
+    }
+
+    private static ForwardResponse deadlineExceeded() {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+        response.setBody("Batch deadline exceeded before the request completed");
+        return response;
+    }
+}
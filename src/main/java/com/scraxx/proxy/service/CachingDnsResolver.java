@@ -0,0 +1,264 @@
+package com.scraxx.proxy.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.DnsResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Name resolution shared by the pooled HTTP clients, the health probe and the listener, so that proxy and
+ * target hostnames are not looked up again on every connection.
+ * <p>
+ * Answers are kept for dnsCacheTtlSeconds and failures for dnsNegativeTtlSeconds. An answer read after
+ * dnsRefreshAfterSeconds is refreshed in the background while the cached one keeps being served; if that
+ * refresh fails the old answer stays until its TTL runs out. Hosts with several addresses get them back in
+ * rotating order, so callers that try each in turn spread load and fail over between them.
+ */
+@Component
+@Slf4j
+public class CachingDnsResolver implements DnsResolver {
+    private final ProxyConfigProperties config;
+    private final ForwardMetrics metrics;
+    private final HostLookup hostLookup;
+    private final Ticker ticker;
+    private final ExecutorService lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AsyncLoadingCache<String, Resolution> cache;
+    private final AddressResolverGroup<InetSocketAddress> nettyResolverGroup = new NettyResolverGroup();
+
+    @Autowired
+    public CachingDnsResolver(ProxyConfigProperties config, ForwardMetrics metrics) {
+        this(config, metrics, InetAddress::getAllByName, Ticker.systemTicker());
+    }
+
+    CachingDnsResolver(ProxyConfigProperties config, ForwardMetrics metrics, HostLookup hostLookup, Ticker ticker) {
+        this.config = config;
+        this.metrics = metrics;
+        this.hostLookup = hostLookup;
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+                .ticker(ticker)
+                .maximumSize(config.getDnsCacheMaxHosts())
+                .expireAfter(new ResolutionExpiry())
+                .refreshAfterWrite(Duration.ofSeconds(config.getDnsRefreshAfterSeconds()))
+                .executor(lookupExecutor)
+                .buildAsync(new ResolutionLoader());
+        metrics.gauge("proxy.dns.cache.size", "Hostnames with a cached answer or failure", cache,
+                c -> c.synchronous().estimatedSize());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    /**
+     * All addresses of the host, starting from a different one on each call when there are several.
+     */
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (!config.isDnsCacheEnabled() || isLiteral(host)) {
+            return InetAddress.getAllByName(host);
+        }
+        try {
+            return cache.get(host).join().addresses();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UnknownHostException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        InetAddress[] addresses = resolve(host);
+        String canonical = addresses[0].getCanonicalHostName();
+        return canonical.equals(addresses[0].getHostAddress()) ? host : canonical;
+    }
+
+    /**
+     * The host's addresses if an answer is already cached, without ever blocking; otherwise null, after starting
+     * a lookup in the background so that a later call finds one. Meant for event-loop threads.
+     */
+    public InetAddress[] resolveIfCached(String host) throws UnknownHostException {
+        if (!config.isDnsCacheEnabled()) {
+            return null;
+        }
+        if (isLiteral(host)) {
+            return InetAddress.getAllByName(host);
+        }
+        Resolution resolution = cache.get(host).getNow(null);
+        return resolution != null ? resolution.addresses() : null;
+    }
+
+    /**
+     * The cache as a resolver for Reactor Netty clients. Cache hits complete immediately; misses are looked up
+     * off the event loop.
+     */
+    public AddressResolverGroup<InetSocketAddress> nettyResolverGroup() {
+        return nettyResolverGroup;
+    }
+
+    /**
+     * Non-blocking form of {@link #resolve}: cache hits complete at once, misses are looked up off the caller's
+     * thread.
+     */
+    public CompletableFuture<InetAddress[]> resolveAsync(String host) {
+        if (!config.isDnsCacheEnabled() || isLiteral(host)) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return InetAddress.getAllByName(host);
+                } catch (UnknownHostException e) {
+                    throw new CompletionException(e);
+                }
+            }, lookupExecutor);
+        }
+        return cache.get(host).thenApply(resolution -> {
+            try {
+                return resolution.addresses();
+            } catch (UnknownHostException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private Resolution lookup(String host) {
+        long start = System.nanoTime();
+        try {
+            InetAddress[] addresses = hostLookup.lookup(host);
+            metrics.recordDnsLookup(true, System.nanoTime() - start);
+            return new Resolution(addresses, null, ticker.read(), new AtomicInteger());
+        } catch (UnknownHostException e) {
+            metrics.recordDnsLookup(false, System.nanoTime() - start);
+            log.warn("Failed to resolve {}: {}", host, e.getMessage());
+            return new Resolution(null, e.getMessage(), ticker.read(), null);
+        }
+    }
+
+    private static boolean isLiteral(String host) {
+        return host.indexOf(':') >= 0 || host.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'));
+    }
+
+    /**
+     * The lookup behind the cache; the system resolver outside of tests.
+     */
+    @FunctionalInterface
+    interface HostLookup {
+        InetAddress[] lookup(String host) throws UnknownHostException;
+    }
+
+    /**
+     * One lookup's outcome: the addresses, or the failure message when the host did not resolve.
+     */
+    private record Resolution(InetAddress[] all, String failure, long resolvedAtNanos, AtomicInteger cursor) {
+        InetAddress[] addresses() throws UnknownHostException {
+            if (all == null) {
+                throw new UnknownHostException(failure);
+            }
+            if (all.length == 1) {
+                return all.clone();
+            }
+            int start = Math.floorMod(cursor.getAndIncrement(), all.length);
+            InetAddress[] rotated = new InetAddress[all.length];
+            for (int i = 0; i < all.length; i++) {
+                rotated[i] = all[(start + i) % all.length];
+            }
+            return rotated;
+        }
+    }
+
+    private final class ResolutionLoader implements CacheLoader<String, Resolution> {
+        @Override
+        public Resolution load(String host) {
+            return lookup(host);
+        }
+
+        @Override
+        public Resolution reload(String host, Resolution oldValue) {
+            Resolution fresh = lookup(host);
+            // A failed refresh keeps serving the last good answer until its own TTL runs out
+            return fresh.all() == null && oldValue.all() != null ? oldValue : fresh;
+        }
+    }
+
+    /**
+     * Expires each answer a TTL after it was looked up, however often it has been re-stored since.
+     */
+    private final class ResolutionExpiry implements Expiry<String, Resolution> {
+        @Override
+        public long expireAfterCreate(String host, Resolution resolution, long currentTime) {
+            return remaining(resolution, currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String host, Resolution resolution, long currentTime, long currentDuration) {
+            return remaining(resolution, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String host, Resolution resolution, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long remaining(Resolution resolution, long currentTime) {
+            long ttl = TimeUnit.SECONDS.toNanos(resolution.all() != null
+                    ? config.getDnsCacheTtlSeconds()
+                    : config.getDnsNegativeTtlSeconds());
+            return Math.max(0, resolution.resolvedAtNanos() + ttl - currentTime);
+        }
+    }
+
+    private final class NettyResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+        @Override
+        protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+            return new InetNameResolver(executor) {
+                @Override
+                protected void doResolve(String host, Promise<InetAddress> promise) {
+                    resolveAsync(host).whenComplete((addresses, error) -> {
+                        if (error != null) {
+                            promise.tryFailure(error instanceof CompletionException ? error.getCause() : error);
+                        } else {
+                            promise.trySuccess(addresses[0]);
+                        }
+                    });
+                }
+
+                @Override
+                protected void doResolveAll(String host, Promise<List<InetAddress>> promise) {
+                    resolveAsync(host).whenComplete((addresses, error) -> {
+                        if (error != null) {
+                            promise.tryFailure(error instanceof CompletionException ? error.getCause() : error);
+                        } else {
+                            promise.trySuccess(Arrays.asList(addresses));
+                        }
+                    });
+                }
+            }.asAddressResolver();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.scraxx.proxy.service;
+
+import org.springframework.http.HttpStatus;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * What a failed attempt says about the proxy it went through: whether it is unreachable, slow, refusing us, or
+ * just relaying the target's own error. The forwarding engines and the listener rotate, retry and mark proxies by it.
+ */
+public enum FailureKind {
+    /** The proxy could not be reached at all */
+    CONNECT,
+    /** No answer within the attempt timeout */
+    TIMEOUT,
+    /** The proxy refused us (407) */
+    PROXY_REJECTED,
+    /** The target throttled this proxy's address (429) */
+    THROTTLED,
+    /** A gateway error that another try may not repeat (502, 503, 504) */
+    UPSTREAM_ERROR,
+    /** The target's own answer, relayed faithfully */
+    TARGET_ERROR,
+    /** Anything else, such as a reset connection */
+    OTHER;
+
+    public static FailureKind ofStatus(int status) {
+        if (status == HttpStatus.PROXY_AUTHENTICATION_REQUIRED.value()) {
+            return PROXY_REJECTED;
+        }
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return THROTTLED;
+        }
+        if (status == HttpStatus.BAD_GATEWAY.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status == HttpStatus.GATEWAY_TIMEOUT.value()) {
+            return UPSTREAM_ERROR;
+        }
+        return TARGET_ERROR;
+    }
+
+    /**
+     * Classifies a failure that produced no HTTP status by the first cause in its chain that tells anything.
+     */
+    public static FailureKind ofCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof org.apache.hc.client5.http.ConnectTimeoutException
+                    || cause instanceof NoRouteToHostException || cause instanceof UnknownHostException) {
+                return CONNECT;
+            }
+            // Netty reports read timeouts with its own exception rather than a SocketTimeoutException
+            if (cause instanceof SocketTimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return TIMEOUT;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,193 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.Header;
+import com.scraxx.proxy.model.RequestPriority;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of forwards in flight, independently of the thread model serving them.
+ * <p>
+ * The bound adapts by AIMD: each forward that completes in time while the limiter is at least half used raises
+ * it by one, and a forward that timed out or took longer than concurrencyLatencyThresholdMillis cuts it by
+ * concurrencyBackoffRatio. Only forwards admitted after the last cut can cut it again, so a burst of timeouts
+ * from one overload counts once. Priorities get a share of the bound, so as it shrinks LOW traffic is turned
+ * away first and HIGH traffic last; LOW traffic is also never made to wait for a permit.
+ */
+@Component
+public class ForwardConcurrencyLimiter {
+    private final ProxyConfigProperties config;
+    private final ForwardMetrics metrics;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private volatile double limit;
+    private long lastDecreaseNanos;
+
+    public ForwardConcurrencyLimiter(ProxyConfigProperties config, ForwardMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.limit = config.isAdaptiveConcurrencyEnabled()
+                ? Math.min(config.getInitialConcurrencyLimit(), config.getMaxConcurrentForwards())
+                : config.getMaxConcurrentForwards();
+        this.lastDecreaseNanos = System.nanoTime();
+        metrics.gauge("proxy.concurrency.limit", "Current bound on forwards in flight", this,
+                ForwardConcurrencyLimiter::getLimit);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(RequestPriority.NORMAL);
+    }
+
+    /**
+     * Takes a permit if the priority's share of the limit has room, waiting up to forwardPermitTimeoutMillis for
+     * one unless the priority is LOW.
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        long start = System.nanoTime();
+        boolean admitted = tryAdmit(priority) || (priority != RequestPriority.LOW && awaitAdmission(priority, start));
+        metrics.recordAdmission(priority, admitted, System.nanoTime() - start);
+        return admitted;
+    }
+
+    /**
+     * Returns a permit without feeding the limit, for work whose duration says nothing about upstream health
+     * (streamed bodies, tunnels).
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns a permit taken at startNanos and adjusts the limit from how the forward went.
+     *
+     * @param timedOut whether the forward ran out of time instead of getting an answer
+     */
+    public void release(long startNanos, boolean timedOut) {
+        if (config.isAdaptiveConcurrencyEnabled()) {
+            long now = System.nanoTime();
+            boolean congested = timedOut
+                    || now - startNanos > TimeUnit.MILLISECONDS.toNanos(config.getConcurrencyLatencyThresholdMillis());
+            adjustLimit(congested, startNanos, now);
+        }
+        release();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * The answer given to a forward that was not admitted: 503 with a Retry-After header.
+     */
+    public ForwardResponse rejection() {
+        Header retryAfter = new Header();
+        retryAfter.setName(HttpHeaders.RETRY_AFTER);
+        retryAfter.setValue(String.valueOf(config.getShedRetryAfterSeconds()));
+
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setBody("Too many concurrent forward requests, try again later");
+        response.setHeaders(List.of(retryAfter));
+        return response;
+    }
+
+    /**
+     * The Retry-After, in seconds, of a forward refused here before it was sent (shed by this limiter, or every
+     * proxy throttled); -1 for any other response, including upstream 503s.
+     */
+    public static long shedRetryAfterSeconds(ForwardResponse response) {
+        if (response.getStatusCode() != HttpStatus.SERVICE_UNAVAILABLE.value() || response.isUsedDirectConnection()
+                || response.getProxyUsed() != null || response.getHeaders() == null) {
+            return -1;
+        }
+        for (Header header : response.getHeaders()) {
+            if (HttpHeaders.RETRY_AFTER.equalsIgnoreCase(header.getName())) {
+                try {
+                    return Math.max(0, Long.parseLong(header.getValue().trim()));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean tryAdmit(RequestPriority priority) {
+        int ceiling = Math.max(1, (int) (limit * shareOf(priority)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= ceiling) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean awaitAdmission(RequestPriority priority, long start) {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getForwardPermitTimeoutMillis());
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (!tryAdmit(priority)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                released.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    private synchronized void adjustLimit(boolean congested, long startNanos, long now) {
+        if (congested) {
+            if (startNanos - lastDecreaseNanos > 0) {
+                limit = Math.max(config.getMinConcurrencyLimit(), limit * config.getConcurrencyBackoffRatio());
+                lastDecreaseNanos = now;
+            }
+        } else if (inFlight.get() * 2 >= limit) {
+            limit = Math.min(config.getMaxConcurrentForwards(), limit + 1);
+        }
+    }
+
+    private double shareOf(RequestPriority priority) {
+        return switch (priority) {
+            case HIGH -> 1.0;
+            case NORMAL -> config.getNormalPriorityShare();
+            case LOW -> config.getLowPriorityShare();
+        };
+    }
+}
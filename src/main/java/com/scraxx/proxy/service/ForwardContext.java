@@ -0,0 +1,51 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ForwardRequest;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request state shared by all attempts of one forward, including hedged ones on other threads.
+ */
+final class ForwardContext {
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE");
+
+    final boolean idempotent;
+    /** Set when a non-idempotent request may have reached the target, so it must not be sent again */
+    volatile boolean abandoned;
+    /** Set when any attempt ran out of its attempt timeout, which says upstream is congested */
+    volatile boolean attemptTimedOut;
+
+    private final long deadlineNanos;
+
+    /**
+     * Starts the deadline from the request's own timeout, which may shorten the configured deadline but never extend it.
+     */
+    ForwardContext(ForwardRequest request, long defaultDeadlineMillis) {
+        this(request.getMethod(), request.getTimeoutMillis() != null && request.getTimeoutMillis() > 0
+                ? Math.min(request.getTimeoutMillis(), defaultDeadlineMillis)
+                : defaultDeadlineMillis);
+    }
+
+    /**
+     * Context for a forward that has no {@link ForwardRequest}, such as a streamed one.
+     */
+    ForwardContext(String method, long deadlineMillis) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.idempotent = method != null && IDEMPOTENT_METHODS.contains(method.toUpperCase(Locale.ROOT));
+    }
+
+    long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    boolean canContinue() {
+        return !abandoned && !isExpired();
+    }
+}
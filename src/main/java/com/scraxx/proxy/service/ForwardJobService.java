@@ -0,0 +1,389 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardJob;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.RequestPriority;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs forwards asynchronously: jobs wait in a bounded priority queue (highest priority first, then oldest) and
+ * a fixed pool of workers drains it. Each job must finish within jobDeadlineSeconds of being submitted; one
+ * still queued when that passes expires without being sent. Results are kept for jobResultTtlSeconds for polling,
+ * oldest dropped first beyond maxRetainedJobs, and when a callback URL was given they are POSTed there as well.
+ * A job whose forward is shed for load goes back in the queue after the Retry-After instead of finishing with the
+ * 503, for as long as its deadline allows.
+ */
+@Service
+@Slf4j
+public class ForwardJobService {
+    private final ForwardProxyService proxyService;
+    private final ObjectProvider<ReactiveForwardProxyService> reactiveProxyService;
+    private final ProxyConfigProperties config;
+    private final ForwardMetrics metrics;
+    private final RestTemplate callbackRestTemplate;
+
+    private final PriorityBlockingQueue<QueuedJob> queue = new PriorityBlockingQueue<>();
+    private final Map<String, QueuedJob> jobs = new ConcurrentHashMap<>();
+    // Finished jobs in the order they finished, so the oldest results are evicted first
+    private final Queue<QueuedJob> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ForwardJobService(ForwardProxyService proxyService,
+                             ObjectProvider<ReactiveForwardProxyService> reactiveProxyService,
+                             ProxyConfigProperties config,
+                             ForwardMetrics metrics,
+                             RestTemplateBuilder restTemplateBuilder) {
+        this.proxyService = proxyService;
+        this.reactiveProxyService = reactiveProxyService;
+        this.config = config;
+        this.metrics = metrics;
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(config.getJobCallbackTimeoutSeconds()));
+        requestFactory.setReadTimeout(Duration.ofSeconds(config.getJobCallbackTimeoutSeconds()));
+        // Built from Boot's builder so the job JSON matches the API's; buffered so callbacks carry a
+        // Content-Length, since not every webhook receiver accepts chunked bodies
+        this.callbackRestTemplate = restTemplateBuilder
+                .requestFactory(() -> new BufferingClientHttpRequestFactory(requestFactory))
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        metrics.gauge("proxy.jobs.queued", "Jobs waiting for a worker", queued, AtomicInteger::get);
+        metrics.gauge("proxy.jobs.running", "Jobs currently being forwarded", running, AtomicInteger::get);
+        metrics.gauge("proxy.jobs.retained", "Jobs held for polling, in any state", jobs, Map::size);
+        for (int i = 0; i < config.getJobWorkers(); i++) {
+            workers.add(Thread.ofVirtual().name("job-worker-" + i).start(this::work));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.forEach(Thread::interrupt);
+        callbackExecutor.shutdownNow();
+    }
+
+    /**
+     * Queues the request, or returns null when maxQueuedJobs are already waiting.
+     */
+    public ForwardJob submit(ForwardRequest request, String callbackUrl) {
+        if (queued.incrementAndGet() > config.getMaxQueuedJobs()) {
+            queued.decrementAndGet();
+            return null;
+        }
+
+        ForwardJob job = new ForwardJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setStatus(ForwardJob.Status.QUEUED);
+        job.setPriority(RequestPriority.of(request));
+        job.setUrl(request.getUrl());
+        job.setSubmittedAt(Instant.now());
+        job.setCallbackUrl(callbackUrl);
+
+        QueuedJob queuedJob = new QueuedJob(job, request, sequence.incrementAndGet(), System.nanoTime(),
+                System.currentTimeMillis() + config.getJobDeadlineSeconds() * 1000L);
+        jobs.put(job.getId(), queuedJob);
+        queue.add(queuedJob);
+        log.debug("Queued job {} for URL: {}", job.getId(), request.getUrl());
+        return queuedJob.snapshot();
+    }
+
+    /**
+     * The job's current state, or null when it is unknown or its result has been evicted.
+     */
+    public ForwardJob get(String id) {
+        QueuedJob job = jobs.get(id);
+        return job != null ? job.snapshot() : null;
+    }
+
+    /**
+     * Cancels a job that is still queued. Jobs already running or finished are left alone.
+     *
+     * @return the job's state after the call, or null when it is unknown
+     */
+    public ForwardJob cancel(String id) {
+        QueuedJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        if (job.transition(ForwardJob.Status.QUEUED, ForwardJob.Status.CANCELLED)) {
+            // A worker that took it meanwhile sees the new status, skips it and does the bookkeeping itself
+            if (queue.remove(job)) {
+                queued.decrementAndGet();
+            }
+            metrics.jobFinished(ForwardJob.Status.CANCELLED);
+            retain(job);
+        }
+        return job.snapshot();
+    }
+
+    /**
+     * Expires queued jobs whose deadline has passed, so they report it without waiting for a worker to reach
+     * them, and evicts results older than jobResultTtlSeconds.
+     */
+    @Scheduled(fixedDelay = 30, timeUnit = TimeUnit.SECONDS)
+    public void evictExpiredResults() {
+        long now = System.currentTimeMillis();
+        for (QueuedJob job : queue) {
+            if (job.deadlineMillis <= now && job.transition(ForwardJob.Status.QUEUED, ForwardJob.Status.EXPIRED)) {
+                if (queue.remove(job)) {
+                    queued.decrementAndGet();
+                }
+                finish(job, ForwardJob.Status.EXPIRED, deadlinePassed());
+            }
+        }
+        evictFinished(Instant.now().minusSeconds(config.getJobResultTtlSeconds()));
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            QueuedJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (!job.transition(ForwardJob.Status.QUEUED, ForwardJob.Status.RUNNING)) {
+                continue;
+            }
+
+            metrics.recordJobQueueWait(job.job.getPriority(), System.nanoTime() - job.submittedNanos);
+            running.incrementAndGet();
+            try {
+                run(job);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private void run(QueuedJob job) {
+        long remaining = job.deadlineMillis - System.currentTimeMillis();
+        if (remaining <= 0) {
+            finish(job, ForwardJob.Status.EXPIRED, deadlinePassed());
+            return;
+        }
+
+        // The forward's own deadline must not outlive the job's
+        ForwardRequest request = job.request;
+        if (request.getTimeoutMillis() == null || request.getTimeoutMillis() > remaining) {
+            request.setTimeoutMillis(remaining);
+        }
+        ForwardResponse response = forward(request);
+        if (!requeueIfShed(job, response)) {
+            finish(job, ForwardJob.Status.COMPLETED, response);
+        }
+    }
+
+    /**
+     * Puts a job whose forward was refused for load back in the queue once the Retry-After has passed. Jobs that
+     * would not get another try before their deadline keep the refusal as their result.
+     */
+    private boolean requeueIfShed(QueuedJob job, ForwardResponse response) {
+        long retryAfterSeconds = ForwardConcurrencyLimiter.shedRetryAfterSeconds(response);
+        if (retryAfterSeconds < 0) {
+            return false;
+        }
+        long delayMillis = Math.max(1000L, retryAfterSeconds * 1000L);
+        if (System.currentTimeMillis() + delayMillis >= job.deadlineMillis
+                || !job.transition(ForwardJob.Status.RUNNING, ForwardJob.Status.QUEUED)) {
+            return false;
+        }
+
+        log.debug("Job {} was shed, queueing it again in {} ms", job.job.getId(), delayMillis);
+        CompletableFuture.runAsync(() -> {
+            // Cancelled while waiting: the worker that takes it skips it and corrects the count
+            queued.incrementAndGet();
+            queue.add(job);
+        }, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, callbackExecutor));
+        return true;
+    }
+
+    private void finish(QueuedJob job, ForwardJob.Status status, ForwardResponse response) {
+        job.complete(status, response);
+        metrics.jobFinished(status);
+        retain(job);
+        if (job.job.getCallbackUrl() != null) {
+            callbackExecutor.execute(() -> deliverCallback(job));
+        }
+    }
+
+    private static ForwardResponse deadlinePassed() {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+        response.setBody("Job deadline passed before a worker picked it up");
+        return response;
+    }
+
+    /**
+     * Keeps a finished job for polling, evicting the oldest results once more than maxRetainedJobs are held.
+     */
+    private void retain(QueuedJob job) {
+        finished.add(job);
+        if (finishedCount.incrementAndGet() > config.getMaxRetainedJobs()) {
+            evictFinished(Instant.MIN);
+        }
+    }
+
+    private synchronized void evictFinished(Instant cutoff) {
+        QueuedJob oldest;
+        while ((oldest = finished.peek()) != null
+                && (finishedCount.get() > config.getMaxRetainedJobs() || oldest.isFinishedBefore(cutoff))) {
+            finished.poll();
+            finishedCount.decrementAndGet();
+            jobs.remove(oldest.job.getId());
+        }
+    }
+
+    private ForwardResponse forward(ForwardRequest request) {
+        try {
+            if (config.getEngine() == ProxyConfigProperties.Engine.REACTIVE) {
+                return reactiveProxyService.getObject().forwardRequest(request).block();
+            }
+            return proxyService.forwardRequest(request);
+        } catch (RuntimeException e) {
+            log.error("Job forward to URL {} failed", request.getUrl(), e);
+            ForwardResponse response = new ForwardResponse();
+            response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            response.setBody("Failed to forward request: " + e.getMessage());
+            return response;
+        }
+    }
+
+    private void deliverCallback(QueuedJob job) {
+        ForwardJob result = job.snapshot();
+        for (int attempt = 1; attempt <= config.getJobCallbackAttempts(); attempt++) {
+            try {
+                int status = callbackRestTemplate.postForEntity(result.getCallbackUrl(), result, Void.class)
+                        .getStatusCode().value();
+                job.callbackDelivered(status);
+                return;
+            } catch (RestClientResponseException e) {
+                job.callbackDelivered(e.getStatusCode().value());
+                if (e.getStatusCode().is4xxClientError()) {
+                    log.warn("Callback for job {} rejected with {}", result.getId(), e.getStatusCode().value());
+                    return;
+                }
+                log.warn("Callback for job {} failed with {} (attempt {})", result.getId(), e.getStatusCode().value(), attempt);
+            } catch (RestClientException e) {
+                log.warn("Callback for job {} failed (attempt {}): {}", result.getId(), attempt, e.getMessage());
+            }
+
+            if (attempt == config.getJobCallbackAttempts()) {
+                return;
+            }
+            try {
+                Thread.sleep(1000L << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A job with everything needed to run it. Its public state is only touched under its own lock, and readers
+     * get copies.
+     */
+    private static final class QueuedJob implements Comparable<QueuedJob> {
+        private final ForwardJob job;
+        private final ForwardRequest request;
+        private final long sequence;
+        private final long submittedNanos;
+        private final long deadlineMillis;
+
+        private QueuedJob(ForwardJob job, ForwardRequest request, long sequence, long submittedNanos, long deadlineMillis) {
+            this.job = job;
+            this.request = request;
+            this.sequence = sequence;
+            this.submittedNanos = submittedNanos;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        synchronized boolean transition(ForwardJob.Status from, ForwardJob.Status to) {
+            if (job.getStatus() != from) {
+                return false;
+            }
+            job.setStatus(to);
+            if (to == ForwardJob.Status.RUNNING) {
+                job.setStartedAt(Instant.now());
+            } else if (to != ForwardJob.Status.QUEUED) {
+                job.setCompletedAt(Instant.now());
+            }
+            return true;
+        }
+
+        synchronized void complete(ForwardJob.Status status, ForwardResponse response) {
+            job.setStatus(status);
+            job.setResponse(response);
+            job.setCompletedAt(Instant.now());
+        }
+
+        synchronized void callbackDelivered(int statusCode) {
+            job.setCallbackStatusCode(statusCode);
+        }
+
+        synchronized boolean isFinishedBefore(Instant cutoff) {
+            return job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff);
+        }
+
+        synchronized ForwardJob snapshot() {
+            ForwardJob copy = new ForwardJob();
+            copy.setId(job.getId());
+            copy.setStatus(job.getStatus());
+            copy.setPriority(job.getPriority());
+            copy.setUrl(job.getUrl());
+            copy.setSubmittedAt(job.getSubmittedAt());
+            copy.setStartedAt(job.getStartedAt());
+            copy.setCompletedAt(job.getCompletedAt());
+            copy.setResponse(job.getResponse());
+            copy.setCallbackUrl(job.getCallbackUrl());
+            copy.setCallbackStatusCode(job.getCallbackStatusCode());
+            return copy;
+        }
+
+        @Override
+        public int compareTo(QueuedJob other) {
+            int byPriority = job.getPriority().compareTo(other.job.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
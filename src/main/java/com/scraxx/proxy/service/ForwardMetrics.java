@@ -0,0 +1,247 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ForwardJob;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.model.RequestPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.config.MeterFilterReply;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer instrumentation of the forwarding pipeline, exported through Actuator (including
+ * {@code /actuator/prometheus}). Per-proxy and per-host timers publish client-side percentiles, which
+ * Micrometer keeps in HdrHistogram-backed rolling windows; the overall forward timer also publishes
+ * histogram buckets so percentiles can be aggregated across instances.
+ */
+@Component
+public class ForwardMetrics {
+    static final String FORWARD_DURATION = "proxy.forward.duration";
+    static final String TARGET_DURATION = "proxy.target.duration";
+    static final String ATTEMPT_DURATION = "proxy.attempt.duration";
+    static final String CONNECT_DURATION = "proxy.connect.duration";
+    static final String FIRST_BYTE_DURATION = "proxy.first.byte.duration";
+    static final String HEALTH_CHECK_DURATION = "proxy.healthcheck.duration";
+    static final String HEALTH_SWEEP_DURATION = "proxy.healthcheck.sweep.duration";
+    static final String JOB_QUEUE_WAIT = "proxy.jobs.queue.wait";
+    static final String JOBS_FINISHED = "proxy.jobs.finished";
+    static final String ADMISSION_WAIT = "proxy.admission.wait";
+    static final String DNS_LOOKUP_DURATION = "proxy.dns.lookup.duration";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final Set<String> PROXY_TAGGED = Set.of(ATTEMPT_DURATION, CONNECT_DURATION, FIRST_BYTE_DURATION);
+
+    private final MeterRegistry registry;
+    private final Counter retries;
+    private final Counter hedges;
+    private final Counter directFallbacks;
+    private final Set<String> taggedProxies = ConcurrentHashMap.newKeySet();
+
+    public ForwardMetrics(MeterRegistry registry, ProxyConfigProperties config) {
+        this.registry = registry;
+        // Target hosts are unbounded, so stop tagging new ones past the configured limit
+        registry.config().meterFilter(MeterFilter.maximumAllowableTags(
+                TARGET_DURATION, "host", config.getMetricsMaxTargetHosts(), MeterFilter.deny()));
+        registry.config().meterFilter(new ProxyTagLimit(config.getMetricsMaxProxies()));
+
+        this.retries = Counter.builder("proxy.retries")
+                .description("Attempts made after the first one of a forward")
+                .register(registry);
+        this.hedges = Counter.builder("proxy.hedges")
+                .description("Speculative attempts started while another was still in flight")
+                .register(registry);
+        this.directFallbacks = Counter.builder("proxy.fallbacks.direct")
+                .description("Forwards sent without a proxy")
+                .register(registry);
+    }
+
+    /**
+     * Total time of a forward as seen by the caller, tagged with how it was answered.
+     */
+    public void recordForward(ForwardResponse response, long nanos) {
+        String route;
+        if (response.isServedFromCache()) {
+            route = "cache";
+        } else if (response.isUsedDirectConnection()) {
+            route = "direct";
+        } else {
+            route = response.getProxyUsed() != null ? "proxy" : "none";
+        }
+
+        Timer.builder(FORWARD_DURATION)
+                .tag("route", route)
+                .tag("status", (response.getStatusCode() / 100) + "xx")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTarget(String url, long nanos) {
+        Timer.builder(TARGET_DURATION)
+                .tag("host", hostOf(url))
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAttempt(String proxy, String outcome, long nanos) {
+        Timer.builder(ATTEMPT_DURATION)
+                .tag("proxy", proxy)
+                .tag("outcome", outcome.toLowerCase(Locale.ROOT))
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time to obtain a usable connection: pool lease, TCP connect and, through a proxy, the CONNECT tunnel.
+     */
+    public void recordConnect(String proxy, long nanos) {
+        Timer.builder(CONNECT_DURATION)
+                .tag("proxy", proxy)
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time from sending the request on an established connection until the response head arrived.
+     */
+    public void recordFirstByte(String proxy, long nanos) {
+        Timer.builder(FIRST_BYTE_DURATION)
+                .tag("proxy", proxy)
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordHealthCheck(boolean healthy, long nanos) {
+        Timer.builder(HEALTH_CHECK_DURATION)
+                .tag("result", healthy ? "healthy" : "unhealthy")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordHealthSweep(long nanos) {
+        Timer.builder(HEALTH_SWEEP_DURATION)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJobQueueWait(RequestPriority priority, long nanos) {
+        Timer.builder(JOB_QUEUE_WAIT)
+                .tag("priority", priority.name())
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time a forward spent waiting for a concurrency permit, tagged with whether it got one or was shed.
+     */
+    public void recordAdmission(RequestPriority priority, boolean admitted, long nanos) {
+        Timer.builder(ADMISSION_WAIT)
+                .tag("priority", priority.name())
+                .tag("outcome", admitted ? "admitted" : "shed")
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A hostname lookup that missed or refreshed the DNS cache.
+     */
+    public void recordDnsLookup(boolean resolved, long nanos) {
+        Timer.builder(DNS_LOOKUP_DURATION)
+                .tag("outcome", resolved ? "resolved" : "failed")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void jobFinished(ForwardJob.Status status) {
+        Counter.builder(JOBS_FINISHED)
+                .tag("status", status.name())
+                .register(registry)
+                .increment();
+    }
+
+    public void retry() {
+        retries.increment();
+    }
+
+    public void hedge() {
+        hedges.increment();
+    }
+
+    public void directFallback() {
+        directFallbacks.increment();
+    }
+
+    public <T> void gauge(String name, String description, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value)
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * Drops the per-proxy meters of proxies no longer in the list, making room for the ones that replaced them.
+     */
+    @EventListener
+    public void onProxyListRefreshed(ProxyListRefreshedEvent event) {
+        for (ProxyInfo proxy : event.getRemovedProxies()) {
+            for (String name : PROXY_TAGGED) {
+                registry.find(name).tag("proxy", proxy.getAddress()).meters().forEach(registry::remove);
+            }
+            taggedProxies.remove(proxy.getAddress());
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "unknown";
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Like {@link MeterFilter#maximumAllowableTags}, but forgets proxies whose meters were removed, so that
+     * proxies replacing them in the list are tagged again.
+     */
+    private final class ProxyTagLimit implements MeterFilter {
+        private final int maxProxies;
+
+        private ProxyTagLimit(int maxProxies) {
+            this.maxProxies = maxProxies;
+        }
+
+        @Override
+        public MeterFilterReply accept(Meter.Id id) {
+            String proxy = PROXY_TAGGED.contains(id.getName()) ? id.getTag("proxy") : null;
+            if (proxy == null || taggedProxies.contains(proxy)) {
+                return MeterFilterReply.NEUTRAL;
+            }
+            if (taggedProxies.size() >= maxProxies) {
+                return MeterFilterReply.DENY;
+            }
+            taggedProxies.add(proxy);
+            return MeterFilterReply.NEUTRAL;
+        }
+    }
+}
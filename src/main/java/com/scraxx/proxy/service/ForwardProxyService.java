@@ -5,56 +5,174 @@ import com.scraxx.proxy.model.ForwardRequest;
 import com.scraxx.proxy.model.ForwardResponse;
 import com.scraxx.proxy.model.Header;
 import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.model.RequestPriority;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ForwardProxyService {
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
     private final ProxyManagerService proxyManager;
     private final ProxyConfigProperties config;
     private final AlertService alertService;
+    private final ProxyClientRegistry clientRegistry;
+    private final ForwardConcurrencyLimiter concurrencyLimiter;
+    private final ProxyPerformanceTracker performanceTracker;
+    private final ExecutorService upstreamExecutor;
+    private final ForwardResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final ForwardRateLimiter rateLimiter;
+    private final RetryBudget retryBudget;
+    private final ForwardMetrics metrics;
 
     public ForwardResponse forwardRequest(ForwardRequest request) {
         proxyManager.incrementTotalRequests();
 
+        long startTime = System.nanoTime();
+        ForwardResponse response = forwardThroughCache(request);
+        metrics.recordForward(response, System.nanoTime() - startTime);
+        return response;
+    }
+
+    private ForwardResponse forwardThroughCache(ForwardRequest request) {
+        if (!responseCache.isCacheable(request)) {
+            return forwardUpstream(request);
+        }
+
+        String cacheKey = responseCache.keyFor(request);
+        ForwardResponseCache.CachedResponse cached = responseCache.get(cacheKey, request);
+        if (cached != null && cached.isFresh()) {
+            log.debug("Serving cached response for URL: {}", request.getUrl());
+            proxyManager.incrementSuccessfulRequests();
+            return responseCache.serveHit(cached);
+        }
+
+        responseCache.recordMiss();
+        if (cached != null) {
+            // Stale but revalidatable: let the upstream answer 304 instead of resending the body
+            ForwardResponse response = forwardUpstream(responseCache.conditionalRequest(request, cached));
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+                return responseCache.revalidated(cacheKey, cached, response);
+            }
+            responseCache.store(cacheKey, request, response);
+            return response;
+        }
+
+        ForwardResponse response = forwardUpstream(request);
+        responseCache.store(cacheKey, request, response);
+        return response;
+    }
+
+    private ForwardResponse forwardUpstream(ForwardRequest request) {
+        if (requestCoalescer.isCoalescable(request)) {
+            return requestCoalescer.execute(request, this::forwardWithPermit);
+        }
+        return forwardWithPermit(request);
+    }
+
+    private ForwardResponse forwardWithPermit(ForwardRequest request) {
+        ForwardContext context = new ForwardContext(request, config.getRequestDeadlineMillis());
+
+        // Queue for the target host before taking a forward permit, so waiting callers do not hold one
+        if (!rateLimiter.acquireHost(request.getUrl())) {
+            ForwardResponse response = new ForwardResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setBody("Rate limit for target host exceeded, try again later");
+            return response;
+        }
+
+        RequestPriority priority = RequestPriority.of(request);
+        if (!concurrencyLimiter.tryAcquire(priority)) {
+            log.warn("Shedding {} priority request to URL {}: too many forwards in flight", priority, request.getUrl());
+            proxyManager.incrementRejectedRequests();
+            // Nothing was sent, so shedding under overload must not also drain the host's budget
+            rateLimiter.refundHost(request.getUrl());
+            return concurrencyLimiter.rejection();
+        }
+
+        long startTime = System.nanoTime();
+        ForwardResponse response = null;
+        try {
+            response = doForwardRequest(request, context);
+            return response;
+        } finally {
+            metrics.recordTarget(request.getUrl(), System.nanoTime() - startTime);
+            if (response != null) {
+                // Only running out of time says upstream is congested; a 504 relayed from the target does not
+                concurrencyLimiter.release(startTime, context.isExpired() || context.attemptTimedOut);
+            } else {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    private ForwardResponse doForwardRequest(ForwardRequest request, ForwardContext context) {
         log.info("Forwarding request to URL: {}", request.getUrl());
+        retryBudget.onRequest();
 
         // Check if we have any proxies before trying
 
         ForwardResponse response;
 
-        if (!proxyManager.getHealthyProxies().isEmpty()) {
+        // A direct connection cannot satisfy routing constraints, so constrained requests never fall back to one
+        boolean constrained = request.getRouting() != null && request.getRouting().isConstrained();
 
-            response = tryWithProxies(request);
+        if (proxyManager.hasHealthyProxies()) {
 
+            try {
+                response = tryWithProxies(request, context);
+            } catch (ProxyThrottledException e) {
+                // Going direct would bypass the per-proxy limits and expose our own address to the target
+                log.warn("Rejecting request to URL {}: every proxy is throttled", request.getUrl());
+                proxyManager.incrementRejectedRequests();
+                return rateLimiter.proxyThrottledResponse(e);
+            }
 
-            if (response == null) { // Try direct connection if n proxies fail
+
+            // Try direct connection if n proxies fail, unless that would be a retry we cannot afford
+            if (response == null && !constrained && context.canContinue() && retryBudget.tryRetry()) {
                 log.warn("All proxy attempts failed, falling back to direct connection");
                 alertService.alertFallbackToDirect(request.getUrl());
-                response = makeDirectRequest(request);
+                metrics.directFallback();
+                response = makeDirectRequest(request, context);
                 if (response != null) {
                     response.setUsedDirectConnection(true);
                     proxyManager.incrementDirectRequests();
                 }
             }
+        } else if (constrained) {
+            response = null;
         } else {
             // No proxies available, use direct connection
             log.warn("No proxies available, using direct connection");
             alertService.alertFallbackToDirect(request.getUrl());
-            response = makeDirectRequest(request);
+            metrics.directFallback();
+            response = makeDirectRequest(request, context);
             if (response != null) {
                 response.setUsedDirectConnection(true);
                 proxyManager.incrementDirectRequests();
@@ -65,8 +183,20 @@ public class ForwardProxyService {
         if (response == null) {
             log.error("Failed to forward request to URL: {}", request.getUrl());
             response = new ForwardResponse();
-            response.setStatusCode(500);
-            response.setBody("Failed to forward request after all attempts");
+            if (context.isExpired()) {
+                response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+                response.setBody("Request deadline exceeded before any attempt succeeded");
+            } else if (context.abandoned) {
+                // A non-idempotent request may already have reached the target, so it was not resent
+                response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+                response.setBody("Upstream did not answer and the request is not safe to retry");
+            } else if (constrained) {
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setBody("No healthy proxy matching the routing constraints answered");
+            } else {
+                response.setStatusCode(500);
+                response.setBody("Failed to forward request after all attempts");
+            }
             proxyManager.incrementFailedRequests();
         } else {
             proxyManager.incrementSuccessfulRequests();
@@ -75,11 +205,21 @@ public class ForwardProxyService {
         return response;
     }
 
-    private ForwardResponse tryWithProxies(ForwardRequest request) {
+    private ForwardResponse tryWithProxies(ForwardRequest request, ForwardContext context) {
+        if (isHedgeable(request)) {
+            return tryWithHedgedProxies(request, context);
+        }
+
         int proxyAttempts = 0;
+        Set<String> triedAddresses = new HashSet<>();
 
         while (proxyAttempts < config.getMaxProxyAttempts()) {
-            ProxyInfo proxyInfo = proxyManager.getNextHealthyProxy();
+            if (proxyAttempts > 0 && !mayRetry(context)) {
+                break;
+            }
+
+            ProxyInfo proxyInfo = proxyManager.awaitProxy(
+                    () -> proxyManager.getNextHealthyProxy(request, triedAddresses), context.remainingMillis());
 
             if (proxyInfo == null) {
                 log.warn("No healthy proxies available");
@@ -89,7 +229,7 @@ public class ForwardProxyService {
             String proxyAddress = proxyInfo.getIp() + ":" + proxyInfo.getPort();
             log.info("Attempting request with proxy: {}", proxyAddress);
 
-            ForwardResponse response = tryWithSingleProxy(request, proxyInfo);
+            ForwardResponse response = tryWithSingleProxy(request, proxyInfo, context);
 
             if (response != null) {
                 log.info("Request successful with proxy: {}", proxyAddress);
@@ -97,6 +237,7 @@ public class ForwardProxyService {
                 return response;
             }
 
+            triedAddresses.add(proxyAddress);
             proxyAttempts++;
             log.warn("Proxy attempt {} failed. Moving to next proxy.", proxyAttempts);
         }
@@ -104,13 +245,160 @@ public class ForwardProxyService {
         return null;
     }
 
-    private ForwardResponse tryWithSingleProxy(ForwardRequest request, ProxyInfo proxyInfo) {
+    private boolean isHedgeable(ForwardRequest request) {
+        // Racing other proxies would defeat a session's fixed exit
+        return config.isHedgingEnabled()
+                && proxyManager.sessionKeyOf(request.getSessionKey(), request.getUrl()) == null
+                && config.getMaxHedgesPerRequest() > 0
+                && config.getMaxProxyAttempts() > 1
+                && config.getHedgeMethods().stream().anyMatch(method -> method.equalsIgnoreCase(request.getMethod()));
+    }
+
+    /**
+     * Races proxies instead of trying them one after another: whenever the newest attempt has not answered
+     * within the hedge delay, the same request is fired through the next healthy proxy. The first successful
+     * response wins and the remaining attempts are cancelled. Every attempt counts against maxProxyAttempts,
+     * and at most maxHedgesPerRequest of them are started while another one is still in flight. Every attempt
+     * after the first is paid for from the retry budget.
+     */
+    private ForwardResponse tryWithHedgedProxies(ForwardRequest request, ForwardContext context) {
+        CompletionService<ForwardResponse> completionService = new ExecutorCompletionService<>(upstreamExecutor);
+        Map<Future<ForwardResponse>, HedgedAttempt> inFlight = new HashMap<>();
+        // Every proxy launched so far, so that neither a hedge nor a replacement lands on a running or failed one
+        Set<String> triedAddresses = new HashSet<>();
+        int proxyAttempts = 0;
+        int hedges = 0;
+
+        try {
+            ProxyInfo lastLaunched = launchAttempt(request, context, completionService, inFlight, triedAddresses);
+            if (lastLaunched == null) {
+                log.warn("No healthy proxies available");
+                return null;
+            }
+            proxyAttempts++;
+
+            while (!inFlight.isEmpty() && context.canContinue()) {
+                boolean canHedge = hedges < config.getMaxHedgesPerRequest()
+                        && proxyAttempts < config.getMaxProxyAttempts();
+
+                long waitMillis = canHedge
+                        ? Math.min(hedgeDelayMillis(lastLaunched), context.remainingMillis())
+                        : context.remainingMillis();
+                Future<ForwardResponse> completed = completionService.poll(waitMillis, TimeUnit.MILLISECONDS);
+
+                if (completed == null) {
+                    // Either the hedge delay elapsed, or the deadline did and the loop ends
+                    if (canHedge && mayRetry(context)) {
+                        ProxyInfo hedge = launchAttempt(request, context, completionService, inFlight, triedAddresses);
+                        if (hedge != null) {
+                            log.info("No response from proxy {} yet, hedging with proxy {}",
+                                    lastLaunched.getAddress(), hedge.getAddress());
+                            metrics.hedge();
+                            lastLaunched = hedge;
+                            proxyAttempts++;
+                        }
+                    }
+                    hedges++;
+                    continue;
+                }
+
+                ProxyInfo proxyInfo = inFlight.remove(completed).proxy();
+                ForwardResponse response = completed.get();
+                if (response != null) {
+                    log.info("Request successful with proxy: {}", proxyInfo.getAddress());
+                    response.setProxyUsed(proxyInfo.getAddress());
+                    return response;
+                }
+
+                log.warn("Proxy attempt with {} failed", proxyInfo.getAddress());
+                if (proxyAttempts < config.getMaxProxyAttempts() && mayRetry(context)) {
+                    ProxyInfo next = launchAttempt(request, context, completionService, inFlight, triedAddresses);
+                    if (next != null) {
+                        lastLaunched = next;
+                        proxyAttempts++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Hedged proxy attempt failed unexpectedly: {}", e.getCause().getMessage());
+        } finally {
+            // Interrupting the losers closes their sockets
+            inFlight.forEach((future, attempt) -> {
+                future.cancel(true);
+                if (attempt.started().compareAndSet(false, true)) {
+                    // Cancelled before its thread ran, so it never reached its own release
+                    proxyManager.releaseUnused(attempt.proxy());
+                }
+            });
+        }
+
+        return null;
+    }
+
+    private ProxyInfo launchAttempt(ForwardRequest request, ForwardContext context,
+                                    CompletionService<ForwardResponse> completionService,
+                                    Map<Future<ForwardResponse>, HedgedAttempt> inFlight, Set<String> triedAddresses) {
+        ProxyInfo proxyInfo;
+        if (inFlight.isEmpty()) {
+            // Nothing is running, so a throttled pool ends the request rather than just skipping a hedge
+            proxyInfo = proxyManager.awaitProxy(
+                    () -> proxyManager.getNextHealthyProxy(request.getRouting(), null, triedAddresses),
+                    context.remainingMillis());
+        } else {
+            try {
+                proxyInfo = proxyManager.getNextHealthyProxy(request.getRouting(), null, triedAddresses);
+            } catch (ProxyThrottledException e) {
+                return null;
+            }
+        }
+        if (proxyInfo == null) {
+            return null;
+        }
+        triedAddresses.add(proxyInfo.getAddress());
+
+        log.info("Attempting request with proxy: {}", proxyInfo.getAddress());
+        HedgedAttempt attempt = new HedgedAttempt(proxyInfo, new AtomicBoolean());
+        inFlight.put(completionService.submit(() -> attempt.started().compareAndSet(false, true)
+                ? tryWithSingleProxy(request, attempt.proxy(), context)
+                : null), attempt);
+        return proxyInfo;
+    }
+
+    private long hedgeDelayMillis(ProxyInfo proxyInfo) {
+        if (config.getHedgeDelayPercentile() > 0) {
+            ProxyPerformance performance = performanceTracker.get(proxyInfo);
+            if (performance.getLatencySampleCount() >= MIN_LATENCY_SAMPLES) {
+                return Math.max(1, performance.latencyPercentile(config.getHedgeDelayPercentile()));
+            }
+        }
+        return config.getHedgeDelayMillis();
+    }
+
+    private ForwardResponse tryWithSingleProxy(ForwardRequest request, ProxyInfo proxyInfo, ForwardContext context) {
+        // Counted in flight since selection, until every retry through this proxy is over
+        try {
+            return tryWithRetries(request, proxyInfo, context);
+        } finally {
+            performanceTracker.get(proxyInfo).requestFinished();
+        }
+    }
+
+    private ForwardResponse tryWithRetries(ForwardRequest request, ProxyInfo proxyInfo, ForwardContext context) {
+        ProxyPerformance performance = performanceTracker.get(proxyInfo);
         int retries = 0;
 
         while (retries < config.getMaxRetriesPerProxy()) {
+            long attemptTimeout = attemptTimeoutMillis(performance, context);
+            if (attemptTimeout <= 0) {
+                return null;
+            }
+
+            long startTime = System.nanoTime();
             try {
-                // Create a custom RestTemplate with proxy settings
-                RestTemplate template = createProxyRestTemplate(proxyInfo);
+                // Reuse the pooled client bound to this proxy
+                RestTemplate template = clientRegistry.getProxyRestTemplate(proxyInfo);
 
                 // Convert headers
                 HttpHeaders headers = convertHeaders(request.getHeaders());
@@ -124,36 +412,166 @@ public class ForwardProxyService {
                 HttpEntity<String> entity = new HttpEntity<>(request.getBody(), headers);
 
                 // Make the request
-                ResponseEntity<String> response = template.exchange(
+                ResponseEntity<String> response = withTimeout(() -> template.exchange(
                         request.getUrl(),
                         HttpMethod.valueOf(request.getMethod().toUpperCase()),
                         entity,
                         String.class
-                );
+                ), attemptTimeout);
+
+                performance.recordSuccess(elapsedMillis(startTime));
+                metrics.recordAttempt(proxyInfo.getAddress(), "success", System.nanoTime() - startTime);
 
                 // Convert the response
                 return convertResponse(response, proxyInfo);
+            } catch (InterruptedException e) {
+                // Cancelled in favour of another attempt, not the proxy's fault
+                Thread.currentThread().interrupt();
+                return null;
             } catch (Exception e) {
-                log.warn("Request with proxy {}:{} failed (attempt {}): {}",
-                        proxyInfo.getIp(), proxyInfo.getPort(), retries + 1, e.getMessage());
+                if (Thread.currentThread().isInterrupted() || context.isExpired()) {
+                    // Cancelled, or cut short by the request deadline rather than by the proxy
+                    return null;
+                }
+
+                FailureKind failure = classify(e);
+                if (failure == FailureKind.TIMEOUT) {
+                    context.attemptTimedOut = true;
+                }
+                log.warn("Request with proxy {}:{} failed (attempt {}, {}): {}",
+                        proxyInfo.getIp(), proxyInfo.getPort(), retries + 1, failure, e.getMessage());
                 retries++;
+                metrics.recordAttempt(proxyInfo.getAddress(), failure.name(), System.nanoTime() - startTime);
+
+                if (failure == FailureKind.TARGET_ERROR) {
+                    // The proxy relayed the target's own answer, which another proxy would not change
+                    performance.recordSuccess(elapsedMillis(startTime));
+                    return convertErrorResponse((HttpStatusCodeException) e, proxyInfo);
+                }
+                performance.recordFailure(elapsedMillis(startTime));
+
+                if (!context.idempotent && (failure == FailureKind.TIMEOUT || failure == FailureKind.OTHER)) {
+                    // The target may already have acted on it, so it must not be sent again
+                    context.abandoned = true;
+                    return null;
+                }
 
-                if (e instanceof ResourceAccessException) {
-                    // This is likely a proxy connectivity issue
-                    if (retries >= config.getMaxRetriesPerProxy()) {
+                switch (failure) {
+                    case CONNECT -> {
                         proxyManager.markProxyUnhealthy(proxyInfo);
+                        return null;
+                    }
+                    case TIMEOUT, PROXY_REJECTED, THROTTLED -> {
+                        // Retrying through the same proxy would most likely meet the same fate
+                        return null;
+                    }
+                    default -> {
                     }
                 }
+
+                if (retries >= config.getMaxRetriesPerProxy()) {
+                    if (e instanceof ResourceAccessException) {
+                        // This is likely a proxy connectivity issue
+                        proxyManager.markProxyUnhealthy(proxyInfo);
+                    }
+                    return null;
+                }
+                if (!mayRetry(context) || !backOff(retries, context)) {
+                    return null;
+                }
             }
         }
 
         return null;
     }
 
-    private ForwardResponse makeDirectRequest(ForwardRequest request) {
+    /**
+     * Bounds one attempt by the proxy's observed tail latency, so a stalled proxy is abandoned long before the
+     * static connect and read timeouts, and never beyond what is left of the request deadline.
+     */
+    private long attemptTimeoutMillis(ProxyPerformance performance, ForwardContext context) {
+        return attemptTimeoutMillis(config, performance, context.remainingMillis());
+    }
+
+    static long attemptTimeoutMillis(ProxyConfigProperties config, ProxyPerformance performance, long remainingMillis) {
+        long timeout = TimeUnit.SECONDS.toMillis(config.getConnectionTimeoutSeconds() + config.getReadTimeoutSeconds());
+        if (config.getAttemptTimeoutPercentile() > 0 && performance.getLatencySampleCount() >= MIN_LATENCY_SAMPLES) {
+            long adaptive = (long) (performance.latencyPercentile(config.getAttemptTimeoutPercentile())
+                    * config.getAttemptTimeoutMultiplier());
+            timeout = Math.min(timeout, Math.max(config.getMinAttemptTimeoutMillis(), adaptive));
+        }
+        return Math.min(timeout, remainingMillis);
+    }
+
+    /**
+     * Sleeps for an exponentially growing delay with full jitter, so retries from many requests spread out.
+     *
+     * @return false when interrupted or when the deadline leaves no time for another attempt
+     */
+    private boolean backOff(int retry, ForwardContext context) {
+        long delay = backoffMillis(config, retry);
+        if (delay >= context.remainingMillis()) {
+            return false;
+        }
         try {
-            // Create a RestTemplate without proxy
-            RestTemplate template = createDirectRestTemplate();
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static long backoffMillis(ProxyConfigProperties config, int retry) {
+        long ceiling = Math.min(config.getMaxRetryBackoffMillis(),
+                (long) config.getRetryBackoffMillis() << Math.min(retry - 1, 20));
+        return ThreadLocalRandom.current().nextLong(Math.max(1, ceiling) + 1);
+    }
+
+    private boolean mayRetry(ForwardContext context) {
+        if (context.canContinue() && retryBudget.tryRetry()) {
+            metrics.retry();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs a blocking exchange on the upstream executor and gives up on it after timeoutMillis. Cancelling
+     * interrupts the virtual thread, which closes its socket.
+     */
+    private <T> T withTimeout(Callable<T> exchange, long timeoutMillis) throws Exception {
+        Future<T> future = upstreamExecutor.submit(exchange);
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    private static FailureKind classify(Exception e) {
+        if (e instanceof TimeoutException) {
+            return FailureKind.TIMEOUT;
+        }
+        if (e instanceof HttpStatusCodeException statusError) {
+            return FailureKind.ofStatus(statusError.getStatusCode().value());
+        }
+        return FailureKind.ofCause(e);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private ForwardResponse makeDirectRequest(ForwardRequest request, ForwardContext context) {
+        try {
+            // Reuse the pooled client without proxy
+            RestTemplate template = clientRegistry.getDirectRestTemplate();
 
             // Convert headers
             HttpHeaders headers = convertHeaders(request.getHeaders());
@@ -166,55 +584,28 @@ public class ForwardProxyService {
             HttpEntity<String> entity = new HttpEntity<>(request.getBody(), headers);
 
             // Make the request
-            ResponseEntity<String> response = template.exchange(
+            ResponseEntity<String> response = withTimeout(() -> template.exchange(
                     request.getUrl(),
                     HttpMethod.valueOf(request.getMethod().toUpperCase()),
                     entity,
                     String.class
-            );
+            ), context.remainingMillis());
 
             // Convert the response
             return convertResponse(response, null);
         } catch (HttpStatusCodeException e) {
             // Handle HTTP error responses
-            ForwardResponse response = new ForwardResponse();
-            response.setStatusCode(e.getStatusCode().value());
-            response.setBody(e.getResponseBodyAsString());
-            response.setHeaders(convertHeaders(e.getResponseHeaders()));
-            response.setUsedDirectConnection(true);
-            return response;
+            return convertErrorResponse(e, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             log.error("Direct request failed: {}", e.getMessage());
             return null;
         }
     }
 
-    private RestTemplate createProxyRestTemplate(ProxyInfo proxyInfo) {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-
-        // Set proxy
-        InetSocketAddress address = new InetSocketAddress(proxyInfo.getIp(), Integer.parseInt(proxyInfo.getPort()));
-        Proxy proxy = new Proxy(Proxy.Type.HTTP, address);
-        factory.setProxy(proxy);
-
-        // Set timeouts
-        factory.setConnectTimeout(config.getConnectionTimeoutSeconds() * 1000);
-        factory.setReadTimeout(config.getReadTimeoutSeconds() * 1000);
-
-        return new RestTemplate(factory);
-    }
-
-    private RestTemplate createDirectRestTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-
-        // Set timeouts
-        factory.setConnectTimeout(config.getConnectionTimeoutSeconds() * 1000);
-        factory.setReadTimeout(config.getReadTimeoutSeconds() * 1000);
-
-        return new RestTemplate(factory);
-    }
-
-    private HttpHeaders convertHeaders(List<Header> headers) {
+    static HttpHeaders convertHeaders(List<Header> headers) {
         HttpHeaders httpHeaders = new HttpHeaders();
         if (headers != null) {
             headers.forEach(header -> httpHeaders.add(header.getName(), header.getValue()));
@@ -222,7 +613,7 @@ public class ForwardProxyService {
         return httpHeaders;
     }
 
-    private List<Header> convertHeaders(HttpHeaders httpHeaders) {
+    static List<Header> convertHeaders(HttpHeaders httpHeaders) {
         List<Header> headers = new ArrayList<>();
         if (httpHeaders != null) {
             httpHeaders.forEach((name, values) -> values.forEach(value -> {
@@ -236,6 +627,18 @@ public class ForwardProxyService {
     }
 
 
+    private ForwardResponse convertErrorResponse(HttpStatusCodeException e, ProxyInfo proxyInfo) {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(e.getStatusCode().value());
+        response.setBody(e.getResponseBodyAsString());
+        response.setHeaders(convertHeaders(e.getResponseHeaders()));
+        response.setUsedDirectConnection(proxyInfo == null);
+        if (proxyInfo != null) {
+            response.setProxyUsed(proxyInfo.getAddress());
+        }
+        return response;
+    }
+
     private ForwardResponse convertResponse(ResponseEntity<String> responseEntity, ProxyInfo proxyInfo) {
         ForwardResponse response = new ForwardResponse();
         response.setStatusCode(responseEntity.getStatusCode().value());
@@ -247,4 +650,10 @@ public class ForwardProxyService {
         }
         return response;
     }
-}
\ No newline at end of file
+
+    /**
+     * A hedged attempt and whether its thread has started, which decides who releases its proxy on cancellation.
+     */
+    private record HedgedAttempt(ProxyInfo proxy, AtomicBoolean started) {
+    }
+}
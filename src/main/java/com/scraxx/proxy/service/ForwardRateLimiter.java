@@ -0,0 +1,185 @@
+package com.scraxx.proxy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.Header;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limits per target host and per upstream proxy, plus a cap on requests in flight through each proxy.
+ * Every host and proxy has its own {@link TokenBucket}, so contention is spread over many independent
+ * counters rather than one shared limiter.
+ * <p>
+ * The host limit applies once per forward: in QUEUE mode the caller waits up to rateLimitMaxQueueMillis for a
+ * permit, in REJECT mode it is refused straight away. Proxy limits are applied at selection time, where a
+ * throttled or saturated proxy is skipped in favour of another one.
+ */
+@Component
+@Slf4j
+public class ForwardRateLimiter {
+    private static final Duration IDLE_HOST_EXPIRY = Duration.ofMinutes(10);
+    private static final int MAX_TRACKED_HOSTS = 100_000;
+
+    private final ProxyConfigProperties config;
+    private final ProxyPerformanceTracker performanceTracker;
+
+    private final Cache<String, TokenBucket> hostBuckets;
+    private final Map<String, TokenBucket> proxyBuckets = new ConcurrentHashMap<>();
+    private final LongAdder rateLimitedRequests = new LongAdder();
+
+    public ForwardRateLimiter(ProxyConfigProperties config, ProxyPerformanceTracker performanceTracker) {
+        this.config = config;
+        this.performanceTracker = performanceTracker;
+        this.hostBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(IDLE_HOST_EXPIRY)
+                .maximumSize(MAX_TRACKED_HOSTS)
+                .build();
+    }
+
+    /**
+     * Reserves a permit for the URL's host.
+     *
+     * @return nanoseconds to wait before sending, or -1 when the request must be refused
+     */
+    public long reserveHost(String url) {
+        if (config.getHostRateLimitPerSecond() <= 0) {
+            return 0;
+        }
+        String host = hostOf(url);
+        if (host == null) {
+            return 0;
+        }
+
+        TokenBucket bucket = hostBuckets.get(host,
+                key -> new TokenBucket(config.getHostRateLimitPerSecond(), config.getHostRateLimitBurst()));
+        long maxWaitNanos = config.getRateLimitMode() == ProxyConfigProperties.RateLimitMode.QUEUE
+                ? TimeUnit.MILLISECONDS.toNanos(config.getRateLimitMaxQueueMillis())
+                : 0;
+        long waitNanos = bucket.reserve(maxWaitNanos);
+        if (waitNanos < 0) {
+            rateLimitedRequests.increment();
+            log.warn("Rate limit for host {} exceeded", host);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Blocking form of {@link #reserveHost}: waits out any queueing delay and tells whether the request may go ahead.
+     */
+    public boolean acquireHost(String url) {
+        long waitNanos = reserveHost(url);
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives back the host permit of a request that was refused further on, such as by load shedding, and so never
+     * reached the host.
+     */
+    public void refundHost(String url) {
+        if (config.getHostRateLimitPerSecond() <= 0) {
+            return;
+        }
+        String host = hostOf(url);
+        TokenBucket bucket = host != null ? hostBuckets.getIfPresent(host) : null;
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    /**
+     * Whether the proxy is below its in-flight cap and has a rate permit; takes an in-flight slot and the permit
+     * if so. The slot is the caller's to give back through {@link ProxyPerformance#requestFinished} once the
+     * attempt is over.
+     */
+    public boolean tryAcquireProxy(ProxyInfo proxy) {
+        ProxyPerformance performance = performanceTracker.get(proxy);
+        if (!performance.tryStartRequest(config.getMaxInFlightPerProxy())) {
+            return false;
+        }
+        if (config.getProxyRateLimitPerSecond() <= 0) {
+            return true;
+        }
+        TokenBucket bucket = proxyBuckets.computeIfAbsent(proxy.getAddress(),
+                key -> new TokenBucket(config.getProxyRateLimitPerSecond(), config.getProxyRateLimitBurst()));
+        if (bucket.reserve(0) >= 0) {
+            return true;
+        }
+        performance.requestFinished();
+        return false;
+    }
+
+    /**
+     * Hands back the slot and permit taken by {@link #tryAcquireProxy} for a request that was not sent after all.
+     */
+    public void refundProxy(ProxyInfo proxy) {
+        performanceTracker.get(proxy).requestFinished();
+        TokenBucket bucket = proxyBuckets.get(proxy.getAddress());
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    /**
+     * The answer given when every candidate proxy is throttled: 503 with a Retry-After header.
+     */
+    public ForwardResponse proxyThrottledResponse(ProxyThrottledException e) {
+        rateLimitedRequests.increment();
+        Header retryAfter = new Header();
+        retryAfter.setName(HttpHeaders.RETRY_AFTER);
+        retryAfter.setValue(String.valueOf(e.getRetryAfterSeconds()));
+
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setBody("Every proxy is at its rate or in-flight limit, try again later");
+        response.setHeaders(List.of(retryAfter));
+        return response;
+    }
+
+    @EventListener
+    public void onProxyListRefreshed(ProxyListRefreshedEvent event) {
+        for (ProxyInfo proxy : event.getRemovedProxies()) {
+            proxyBuckets.remove(proxy.getAddress());
+        }
+    }
+
+    public long getRateLimitedRequests() {
+        return rateLimitedRequests.sum();
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : null;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.scraxx.proxy.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.Header;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared HTTP cache for forwarded GET and HEAD responses, bounded by total body size with Caffeine's
+ * W-TinyLFU eviction. Freshness follows the response's {@code Cache-Control} ({@code s-maxage}, {@code max-age})
+ * or {@code Expires}; responses that carry an {@code ETag} or {@code Last-Modified} are kept past their freshness
+ * for a while so they can be revalidated with a conditional request instead of refetched.
+ */
+@Component
+@Slf4j
+public class ForwardResponseCache {
+    private static final Set<String> CACHEABLE_METHODS = Set.of("GET", "HEAD");
+    // Status codes that are cacheable by default (RFC 9110, section 15.1), limited to those worth keeping
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(200, 203, 204, 300, 301, 404, 410);
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final ProxyConfigProperties config;
+    private final Cache<String, CachedResponse> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+
+    public ForwardResponseCache(ProxyConfigProperties config) {
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getResponseCacheMaxBytes())
+                .weigher((String key, CachedResponse entry) -> entry.weight())
+                .expireAfter(new RetentionExpiry(TimeUnit.SECONDS.toNanos(config.getResponseCacheStaleRetentionSeconds())))
+                .build();
+    }
+
+    /**
+     * Whether the request may be answered from or stored in the cache. Requests carrying their own validators,
+     * credentials, cookies or a no-store/no-cache directive always go upstream.
+     */
+    public boolean isCacheable(ForwardRequest request) {
+        if (!config.isResponseCacheEnabled() || request.getMethod() == null
+                || !CACHEABLE_METHODS.contains(request.getMethod().toUpperCase(Locale.ROOT))) {
+            return false;
+        }
+
+        HttpHeaders headers = ForwardProxyService.convertHeaders(request.getHeaders());
+        String cacheControl = headers.getCacheControl();
+        return !headers.containsKey(HttpHeaders.AUTHORIZATION)
+                && !headers.containsKey(HttpHeaders.COOKIE)
+                && !headers.containsKey(HttpHeaders.IF_NONE_MATCH)
+                && !headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                && !hasDirective(cacheControl, "no-store")
+                && !hasDirective(cacheControl, "no-cache");
+    }
+
+    public String keyFor(ForwardRequest request) {
+        HttpHeaders headers = ForwardProxyService.convertHeaders(request.getHeaders());
+        StringBuilder key = new StringBuilder(request.getMethod().toUpperCase(Locale.ROOT)).append(' ').append(request.getUrl());
+        for (String name : config.getResponseCacheKeyHeaders()) {
+            List<String> values = headers.get(name);
+            if (values != null) {
+                key.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':').append(String.join(",", values));
+            }
+        }
+        // Responses can differ by exit location, so constrained requests get their own entries
+        if (request.getRouting() != null && request.getRouting().isConstrained()) {
+            key.append('\n').append(request.getRouting());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the stored entry for the key, fresh or stale, or null when there is none or its Vary headers
+     * do not match this request.
+     */
+    public CachedResponse get(String key, ForwardRequest request) {
+        CachedResponse entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.varyValues().equals(varyValues(entry.varyValues().keySet(), request)) ? entry : null;
+    }
+
+    public ForwardResponse serveHit(CachedResponse entry) {
+        hits.increment();
+        return entry.toForwardResponse();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Copy of the request with validators from the stale entry, so an unchanged upstream answers 304 without a body.
+     */
+    public ForwardRequest conditionalRequest(ForwardRequest request, CachedResponse entry) {
+        List<Header> headers = request.getHeaders() != null ? new ArrayList<>(request.getHeaders()) : new ArrayList<>();
+        if (entry.headers().getETag() != null) {
+            headers.add(header(HttpHeaders.IF_NONE_MATCH, entry.headers().getETag()));
+        }
+        if (entry.headers().getFirst(HttpHeaders.LAST_MODIFIED) != null) {
+            headers.add(header(HttpHeaders.IF_MODIFIED_SINCE, entry.headers().getFirst(HttpHeaders.LAST_MODIFIED)));
+        }
+
+        ForwardRequest conditional = new ForwardRequest();
+        conditional.setUrl(request.getUrl());
+        conditional.setMethod(request.getMethod());
+        conditional.setBody(request.getBody());
+        conditional.setHeaders(headers);
+        conditional.setTimeoutMillis(request.getTimeoutMillis());
+        conditional.setRouting(request.getRouting());
+        return conditional;
+    }
+
+    /**
+     * Applies a 304 answer to the stale entry: its headers are updated, freshness restarts, and the stored body is served.
+     * When the updated headers make the response unstorable, such as a Set-Cookie or private directive, the entry is
+     * dropped instead and the response goes to this caller only.
+     */
+    public ForwardResponse revalidated(String key, CachedResponse entry, ForwardResponse notModified) {
+        revalidations.increment();
+
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(entry.headers());
+        ForwardProxyService.convertHeaders(notModified.getHeaders()).forEach(merged::put);
+
+        CachedResponse refreshed = new CachedResponse(entry.statusCode(), entry.body(), merged,
+                freshUntil(merged, System.currentTimeMillis()), entry.varyValues(),
+                notModified.isUsedDirectConnection(), notModified.getProxyUsed());
+        if (!isStorable(merged)) {
+            cache.invalidate(key);
+            ForwardResponse response = refreshed.toForwardResponse();
+            response.setServedFromCache(false);
+            return response;
+        }
+        cache.put(key, refreshed);
+
+        return refreshed.toForwardResponse();
+    }
+
+    public void store(String key, ForwardRequest request, ForwardResponse response) {
+        if (!CACHEABLE_STATUSES.contains(response.getStatusCode())) {
+            return;
+        }
+
+        HttpHeaders headers = ForwardProxyService.convertHeaders(response.getHeaders());
+        if (!isStorable(headers)) {
+            return;
+        }
+        int bodyBytes = response.getBody() != null ? response.getBody().length() : 0;
+        if (bodyBytes > config.getResponseCacheMaxEntryBytes()) {
+            return;
+        }
+
+        List<String> vary = headers.getVary();
+
+        long freshUntil = freshUntil(headers, System.currentTimeMillis());
+        boolean hasValidators = headers.getETag() != null || headers.containsKey(HttpHeaders.LAST_MODIFIED);
+        if (freshUntil <= System.currentTimeMillis() && !hasValidators) {
+            // Neither fresh nor revalidatable, so storing it would never save a request
+            return;
+        }
+
+        cache.put(key, new CachedResponse(response.getStatusCode(), response.getBody(), headers, freshUntil,
+                varyValues(vary, request), response.isUsedDirectConnection(), response.getProxyUsed()));
+        log.debug("Cached response for {} {}", request.getMethod(), request.getUrl());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Whether response headers allow sharing the response between clients at all.
+     */
+    private static boolean isStorable(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")) {
+            return false;
+        }
+        // A session cookie handed to one client must never be replayed to another
+        return !headers.containsKey(HttpHeaders.SET_COOKIE) && !headers.getVary().contains("*");
+    }
+
+    /**
+     * Expiry time from s-maxage, max-age or Expires, less any age the response already had upstream.
+     * no-cache responses are stored already stale so every use is revalidated.
+     */
+    private static long freshUntil(HttpHeaders headers, long now) {
+        String cacheControl = headers.getCacheControl();
+        if (hasDirective(cacheControl, "no-cache")) {
+            return now;
+        }
+
+        long maxAgeSeconds = directiveSeconds(cacheControl, "s-maxage");
+        if (maxAgeSeconds < 0) {
+            maxAgeSeconds = directiveSeconds(cacheControl, "max-age");
+        }
+        if (maxAgeSeconds >= 0) {
+            long ageSeconds = parseSeconds(headers.getFirst(HttpHeaders.AGE));
+            return now + TimeUnit.SECONDS.toMillis(Math.max(0, maxAgeSeconds - Math.max(0, ageSeconds)));
+        }
+
+        try {
+            long expires = headers.getExpires();
+            if (expires >= 0) {
+                long date = headers.getDate();
+                return now + (expires - (date >= 0 ? date : now));
+            }
+        } catch (IllegalArgumentException e) {
+            // An invalid Expires value means already expired (RFC 9111, section 5.3)
+        }
+        return now;
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String part : cacheControl.split(",")) {
+            String name = part.trim();
+            int equals = name.indexOf('=');
+            if ((equals >= 0 ? name.substring(0, equals).trim() : name).equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long directiveSeconds(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (String part : cacheControl.split(",")) {
+            String[] nameValue = part.trim().split("=", 2);
+            if (nameValue.length == 2 && nameValue[0].trim().equalsIgnoreCase(directive)) {
+                return parseSeconds(nameValue[1].trim().replace("\"", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, String> varyValues(Iterable<String> names, ForwardRequest request) {
+        HttpHeaders headers = ForwardProxyService.convertHeaders(request.getHeaders());
+        Map<String, String> values = new HashMap<>();
+        for (String name : names) {
+            List<String> headerValues = headers.get(name);
+            values.put(name.toLowerCase(Locale.ROOT), headerValues != null ? String.join(",", headerValues) : "");
+        }
+        return values;
+    }
+
+    private static Header header(String name, String value) {
+        Header header = new Header();
+        header.setName(name);
+        header.setValue(value);
+        return header;
+    }
+
+    /**
+     * An immutable stored response. Entries are never modified in place; revalidation replaces them.
+     */
+    public record CachedResponse(int statusCode, String body, HttpHeaders headers, long freshUntilMillis,
+                                 Map<String, String> varyValues, boolean usedDirectConnection, String proxyUsed) {
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntilMillis;
+        }
+
+        boolean hasValidators() {
+            return headers.getETag() != null || headers.containsKey(HttpHeaders.LAST_MODIFIED);
+        }
+
+        int weight() {
+            int headerBytes = 0;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    headerBytes += header.getKey().length() + value.length();
+                }
+            }
+            return ENTRY_OVERHEAD_BYTES + headerBytes + (body != null ? body.length() : 0);
+        }
+
+        ForwardResponse toForwardResponse() {
+            ForwardResponse response = new ForwardResponse();
+            response.setStatusCode(statusCode);
+            response.setBody(body);
+            response.setHeaders(ForwardProxyService.convertHeaders(headers));
+            response.setUsedDirectConnection(usedDirectConnection);
+            response.setProxyUsed(proxyUsed);
+            response.setServedFromCache(true);
+            return response;
+        }
+    }
+
+    /**
+     * Keeps an entry until it goes stale, or for the stale retention period beyond that when it can be revalidated.
+     */
+    private record RetentionExpiry(long staleRetentionNanos) implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse entry, long currentTime) {
+            long freshNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.freshUntilMillis() - System.currentTimeMillis()));
+            return entry.hasValidators() ? freshNanos + staleRetentionNanos : freshNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.AnonymityLevel;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.model.RoutingConstraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable snapshot of the healthy proxies, indexed by country, protocol and anonymity level. It is rebuilt
+ * whenever health changes, so constrained selection is a map lookup rather than a scan of every proxy. The
+ * candidates for each distinct country, protocol and anonymity combination are computed once per snapshot and
+ * reused; the latency bound is applied on top at selection time, as a filter over that stable array, so that
+ * strategies keeping per-array state still find it. There is a single session ring over every healthy proxy;
+ * constrained sessions skip the proxies that do not match.
+ */
+final class HealthyProxyIndex {
+    static final HealthyProxyIndex EMPTY = new HealthyProxyIndex(new ProxyInfo[0], proxy -> 0);
+
+    // Bounds the memo against callers sending endless distinct constraint combinations
+    private static final int MAX_MEMOIZED_CONSTRAINTS = 1024;
+    private static final ProxyInfo[] NONE = new ProxyInfo[0];
+
+    private final ProxyInfo[] all;
+    private final Map<String, ProxyInfo[]> byCountry;
+    private final Map<String, ProxyInfo[]> byProtocol;
+    private final ProxyInfo[][] byMinAnonymity;
+    private final ToDoubleFunction<ProxyInfo> latencyMillis;
+    private final Map<Key, ProxyInfo[]> memo = new ConcurrentHashMap<>();
+    private volatile SessionRing sessionRing;
+
+    HealthyProxyIndex(ProxyInfo[] healthyProxies, ToDoubleFunction<ProxyInfo> latencyMillis) {
+        this.all = healthyProxies;
+        this.latencyMillis = latencyMillis;
+
+        Map<String, List<ProxyInfo>> countries = new HashMap<>();
+        Map<String, List<ProxyInfo>> protocols = new HashMap<>();
+        List<List<ProxyInfo>> anonymity = new ArrayList<>();
+        for (int i = 0; i < AnonymityLevel.values().length; i++) {
+            anonymity.add(new ArrayList<>());
+        }
+
+        for (ProxyInfo proxy : healthyProxies) {
+            if (proxy.getCountry() != null) {
+                countries.computeIfAbsent(normalizeCountry(proxy.getCountry()), key -> new ArrayList<>()).add(proxy);
+            }
+            if (proxy.getProtocols() != null) {
+                for (String protocol : Set.copyOf(proxy.getProtocols())) {
+                    protocols.computeIfAbsent(normalizeProtocol(protocol), key -> new ArrayList<>()).add(proxy);
+                }
+            }
+            AnonymityLevel level = AnonymityLevel.of(proxy.getAnonymityLevel());
+            if (level != null) {
+                // A proxy satisfies every minimum up to its own level
+                for (int i = 0; i <= level.ordinal(); i++) {
+                    anonymity.get(i).add(proxy);
+                }
+            }
+        }
+
+        this.byCountry = toArrays(countries);
+        this.byProtocol = toArrays(protocols);
+        this.byMinAnonymity = anonymity.stream().map(list -> list.toArray(ProxyInfo[]::new)).toArray(ProxyInfo[][]::new);
+    }
+
+    ProxyInfo[] all() {
+        return all;
+    }
+
+    /**
+     * The healthy proxies satisfying the constraints; all of them when there are none.
+     * Country, protocol and anonymity matches are memoized per snapshot, but latency keeps moving between
+     * snapshots, so the latency bound is applied to each proxy's current average on every call.
+     */
+    ProxyInfo[] candidates(RoutingConstraints constraints) {
+        ProxyInfo[] matching = matching(constraints);
+        if (constraints == null || constraints.getMaxResponseTimeMillis() == null) {
+            return matching;
+        }
+        return Arrays.stream(matching)
+                .filter(latencyFilter(constraints))
+                .toArray(ProxyInfo[]::new);
+    }
+
+    /**
+     * The healthy proxies matching the country, protocol and anonymity constraints, ignoring the latency bound.
+     * The same array comes back for the same constraints until the snapshot is replaced.
+     */
+    ProxyInfo[] matching(RoutingConstraints constraints) {
+        if (constraints == null || !constraints.isConstrained()) {
+            return all;
+        }
+        return matching(Key.of(constraints));
+    }
+
+    /**
+     * Tests a proxy's current average latency against the constraints' bound, accepting every proxy when there is none.
+     */
+    Predicate<ProxyInfo> latencyFilter(RoutingConstraints constraints) {
+        Integer maxResponseTimeMillis = constraints != null ? constraints.getMaxResponseTimeMillis() : null;
+        if (maxResponseTimeMillis == null) {
+            return proxy -> true;
+        }
+        return proxy -> isFastEnough(proxy, maxResponseTimeMillis);
+    }
+
+    /**
+     * The session ring over every healthy proxy, built on first use in this snapshot. Combine it with
+     * {@link #filter} so that constrained sessions only land on matching proxies.
+     */
+    SessionRing sessionRing(int virtualNodes) {
+        SessionRing ring = sessionRing;
+        if (ring == null) {
+            // Two callers racing here build equal rings, so either may win
+            ring = new SessionRing(all, virtualNodes);
+            sessionRing = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * Tests a single proxy against the constraints, accepting every proxy when there are none.
+     */
+    Predicate<ProxyInfo> filter(RoutingConstraints constraints) {
+        if (constraints == null || !constraints.isConstrained()) {
+            return proxy -> true;
+        }
+        Key key = Key.of(constraints);
+        Integer maxResponseTimeMillis = constraints.getMaxResponseTimeMillis();
+        return proxy -> matches(proxy, key)
+                && (maxResponseTimeMillis == null || isFastEnough(proxy, maxResponseTimeMillis));
+    }
+
+    private ProxyInfo[] matching(Key key) {
+        if (key.equals(Key.NONE)) {
+            return all;
+        }
+        ProxyInfo[] matching = memo.get(key);
+        if (matching == null) {
+            matching = compute(key);
+            if (memo.size() < MAX_MEMOIZED_CONSTRAINTS) {
+                memo.putIfAbsent(key, matching);
+            }
+        }
+        return matching;
+    }
+
+    private ProxyInfo[] compute(Key key) {
+        // Start from the narrowest indexed attribute and filter the rest
+        ProxyInfo[] narrowest = all;
+        if (key.country != null) {
+            narrowest = smaller(narrowest, byCountry.getOrDefault(key.country, NONE));
+        }
+        if (key.protocol != null) {
+            narrowest = smaller(narrowest, byProtocol.getOrDefault(key.protocol, NONE));
+        }
+        if (key.minAnonymity != null) {
+            narrowest = smaller(narrowest, byMinAnonymity[key.minAnonymity.ordinal()]);
+        }
+
+        return Arrays.stream(narrowest)
+                .filter(proxy -> matches(proxy, key))
+                .toArray(ProxyInfo[]::new);
+    }
+
+    private static boolean matches(ProxyInfo proxy, Key key) {
+        return (key.country == null || key.country.equals(normalizeCountry(proxy.getCountry())))
+                && (key.protocol == null || supportsProtocol(proxy, key.protocol))
+                && (key.minAnonymity == null || isAtLeast(proxy, key.minAnonymity));
+    }
+
+    private boolean isFastEnough(ProxyInfo proxy, int maxResponseTimeMillis) {
+        return latencyMillis.applyAsDouble(proxy) <= maxResponseTimeMillis;
+    }
+
+    private static ProxyInfo[] smaller(ProxyInfo[] a, ProxyInfo[] b) {
+        return b.length < a.length ? b : a;
+    }
+
+    private static boolean supportsProtocol(ProxyInfo proxy, String protocol) {
+        return proxy.getProtocols() != null
+                && proxy.getProtocols().stream().anyMatch(candidate -> normalizeProtocol(candidate).equals(protocol));
+    }
+
+    private static boolean isAtLeast(ProxyInfo proxy, AnonymityLevel minimum) {
+        AnonymityLevel level = AnonymityLevel.of(proxy.getAnonymityLevel());
+        return level != null && level.compareTo(minimum) >= 0;
+    }
+
+    private static Map<String, ProxyInfo[]> toArrays(Map<String, List<ProxyInfo>> lists) {
+        Map<String, ProxyInfo[]> arrays = HashMap.newHashMap(lists.size());
+        lists.forEach((key, list) -> arrays.put(key, list.toArray(ProxyInfo[]::new)));
+        return arrays;
+    }
+
+    private static String normalizeCountry(String country) {
+        return country != null ? country.trim().toUpperCase(Locale.ROOT) : null;
+    }
+
+    private static String normalizeProtocol(String protocol) {
+        return protocol != null ? protocol.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private record Key(String country, String protocol, AnonymityLevel minAnonymity) {
+        static final Key NONE = new Key(null, null, null);
+
+        static Key of(RoutingConstraints constraints) {
+            AnonymityLevel minAnonymity = AnonymityLevel.of(constraints.getMinAnonymity());
+            if (constraints.getMinAnonymity() != null && minAnonymity == null) {
+                throw new IllegalArgumentException("Unknown anonymity level: " + constraints.getMinAnonymity());
+            }
+            return new Key(normalizeCountry(constraints.getCountry()), normalizeProtocol(constraints.getProtocol()),
+                    minAnonymity);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Passive health of one upstream proxy, driven by the outcomes of live requests over a sliding window.
+ * <p>
+ * CLOSED lets everything through. Once enough calls in the window have failed or been slow the breaker
+ * OPENs and the proxy is taken out of rotation. After the open period a limited number of trial calls are
+ * let through (HALF_OPEN): if they all succeed the breaker closes again, any failure re-opens it.
+ */
+public class ProxyCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ProxyConfigProperties config;
+    private final BiConsumer<State, State> onStateChange;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int windowIndex;
+    private int windowCount;
+    private int failureCount;
+    private int slowCount;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilMillis;
+    private int trialCallsStarted;
+    private int trialCallsSucceeded;
+
+    public ProxyCircuitBreaker(ProxyConfigProperties config, BiConsumer<State, State> onStateChange) {
+        this.config = config;
+        this.onStateChange = onStateChange;
+        this.failedCalls = new boolean[Math.max(1, config.getCircuitBreakerWindowSize())];
+        this.slowCalls = new boolean[failedCalls.length];
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Whether the proxy may be offered for selection: closed, half-open, or open with the open period elapsed.
+     */
+    public boolean isSelectable() {
+        return state != State.OPEN || System.currentTimeMillis() >= openUntilMillis;
+    }
+
+    public long getOpenUntilMillis() {
+        return openUntilMillis;
+    }
+
+    /**
+     * Asks to send a request through the proxy. Always granted while closed; while half-open only
+     * circuitBreakerHalfOpenTrialCalls requests are granted per open period.
+     */
+    public boolean tryAcquirePermission() {
+        if (!config.isCircuitBreakerEnabled() || state == State.CLOSED) {
+            return true;
+        }
+
+        State previous;
+        State current;
+        boolean permitted = true;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            previous = state;
+            if (state == State.OPEN) {
+                if (now < openUntilMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+            } else if (state == State.HALF_OPEN && now >= openUntilMillis + openDurationMillis()) {
+                // Trial calls that never reported back must not keep the breaker half-open forever
+                trialCallsStarted = 0;
+                trialCallsSucceeded = 0;
+                openUntilMillis = now;
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (trialCallsStarted < config.getCircuitBreakerHalfOpenTrialCalls()) {
+                    trialCallsStarted++;
+                } else {
+                    permitted = false;
+                }
+            }
+            current = state;
+        }
+
+        notifyIfChanged(previous, current);
+        return permitted;
+    }
+
+    public void onSuccess(long latencyMillis) {
+        if (!config.isCircuitBreakerEnabled()) {
+            return;
+        }
+
+        State previous;
+        State current;
+        synchronized (this) {
+            previous = state;
+            if (state == State.HALF_OPEN) {
+                trialCallsSucceeded++;
+                if (trialCallsSucceeded >= config.getCircuitBreakerHalfOpenTrialCalls()) {
+                    resetWindow();
+                    state = State.CLOSED;
+                }
+            } else if (state == State.CLOSED) {
+                record(false, latencyMillis >= config.getCircuitBreakerSlowCallMillis());
+            }
+            current = state;
+        }
+        notifyIfChanged(previous, current);
+    }
+
+    public void onFailure() {
+        if (!config.isCircuitBreakerEnabled()) {
+            return;
+        }
+
+        State previous;
+        State current;
+        synchronized (this) {
+            previous = state;
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true, false);
+            }
+            current = state;
+        }
+        notifyIfChanged(previous, current);
+    }
+
+    /**
+     * Puts back the state saved by a previous run, without notifying. A breaker that was open stays open until
+     * its original deadline; one that was half-open goes straight back to trial calls.
+     */
+    public synchronized void restore(State savedState, long savedOpenUntilMillis) {
+        resetWindow();
+        switch (savedState) {
+            case CLOSED -> state = State.CLOSED;
+            case OPEN -> {
+                openUntilMillis = savedOpenUntilMillis;
+                state = State.OPEN;
+            }
+            case HALF_OPEN -> {
+                openUntilMillis = System.currentTimeMillis();
+                state = State.OPEN;
+            }
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (windowCount == failedCalls.length) {
+            if (failedCalls[windowIndex]) {
+                failureCount--;
+            }
+            if (slowCalls[windowIndex]) {
+                slowCount--;
+            }
+        } else {
+            windowCount++;
+        }
+
+        failedCalls[windowIndex] = failed;
+        slowCalls[windowIndex] = slow;
+        if (failed) {
+            failureCount++;
+        }
+        if (slow) {
+            slowCount++;
+        }
+        windowIndex = (windowIndex + 1) % failedCalls.length;
+
+        if (windowCount >= config.getCircuitBreakerMinimumCalls()
+                && (failureCount * 100.0 / windowCount >= config.getCircuitBreakerFailureRateThreshold()
+                || slowCount * 100.0 / windowCount >= config.getCircuitBreakerSlowCallRateThreshold())) {
+            open();
+        }
+    }
+
+    private void open() {
+        resetWindow();
+        openUntilMillis = System.currentTimeMillis() + openDurationMillis();
+        state = State.OPEN;
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        failureCount = 0;
+        slowCount = 0;
+        trialCallsStarted = 0;
+        trialCallsSucceeded = 0;
+    }
+
+    private long openDurationMillis() {
+        return config.getCircuitBreakerOpenSeconds() * 1000L;
+    }
+
+    private void notifyIfChanged(State previous, State current) {
+        if (previous != current) {
+            onStateChange.accept(previous, current);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ProxyInfo;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Holds one long-lived, connection-pooled HTTP client per upstream proxy plus one for direct requests,
+ * so that keep-alive connections (and CONNECT tunnels) are reused across forwarded requests.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProxyClientRegistry {
+    private static final String CONNECT_START_ATTRIBUTE = "proxy.connect.start";
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final ProxyConfigProperties config;
+    private final ForwardMetrics metrics;
+    private final CachingDnsResolver dnsResolver;
+
+    private final Map<String, PooledClient> proxyClients = new ConcurrentHashMap<>();
+    private volatile PooledClient directClient;
+    // Addresses in the proxy list as of the last refresh; null until the first one
+    private volatile Set<String> currentAddresses;
+
+    public RestTemplate getProxyRestTemplate(ProxyInfo proxyInfo) {
+        return getProxyClient(proxyInfo).restTemplate();
+    }
+
+    public RestTemplate getDirectRestTemplate() {
+        return getDirectClient().restTemplate();
+    }
+
+    /**
+     * Raw request factory over the same pool, for callers that stream bodies instead of binding them.
+     */
+    public ClientHttpRequestFactory getProxyRequestFactory(ProxyInfo proxyInfo) {
+        return getProxyClient(proxyInfo).requestFactory();
+    }
+
+    public ClientHttpRequestFactory getDirectRequestFactory() {
+        return getDirectClient().requestFactory();
+    }
+
+    private PooledClient getProxyClient(ProxyInfo proxyInfo) {
+        String address = proxyInfo.getAddress();
+        PooledClient client = proxyClients.computeIfAbsent(address, key -> createProxyClient(proxyInfo));
+        Set<String> current = currentAddresses;
+        if (current != null && !current.contains(address)) {
+            // Selected just before the proxy was removed: serve this request, but do not keep a pool for it
+            release(address);
+        }
+        return client;
+    }
+
+    private PooledClient getDirectClient() {
+        PooledClient client = directClient;
+        if (client == null) {
+            synchronized (this) {
+                client = directClient;
+                if (client == null) {
+                    client = createClient(HttpClients.custom(), "direct");
+                    directClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Releases the clients of every proxy that is no longer listed, which covers the removed proxies as well as any
+     * client created for one of them by a request that selected it just before the removal.
+     */
+    @EventListener
+    public void onProxyListRefreshed(ProxyListRefreshedEvent event) {
+        Set<String> current = event.getCurrentProxies().stream()
+                .map(ProxyInfo::getAddress)
+                .collect(Collectors.toUnmodifiableSet());
+        currentAddresses = current;
+        for (String address : proxyClients.keySet()) {
+            if (!current.contains(address)) {
+                release(address);
+            }
+        }
+    }
+
+    /**
+     * Stops handing out the proxy's client and closes it once no connection is leased from its pool any more, so
+     * requests still in flight through a removed proxy are not cut off. The first check waits one interval, giving
+     * a request that has just been handed the client time to lease its connection. A client still busy after
+     * requestDeadlineMillis is closed regardless.
+     */
+    public void release(String proxyAddress) {
+        PooledClient client = proxyClients.remove(proxyAddress);
+        if (client != null) {
+            log.debug("Closing pooled client for removed proxy {} once idle", proxyAddress);
+            long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getRequestDeadlineMillis());
+            CompletableFuture.runAsync(() -> closeWhenIdle(proxyAddress, client, deadlineNanos),
+                    CompletableFuture.delayedExecutor(IDLE_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Addresses that currently have a pooled client.
+     */
+    Set<String> pooledAddresses() {
+        return Set.copyOf(proxyClients.keySet());
+    }
+
+    private void closeWhenIdle(String proxyAddress, PooledClient client, long deadlineNanos) {
+        if (client.connectionManager().getTotalStats().getLeased() == 0 || System.nanoTime() - deadlineNanos >= 0) {
+            close(client, CloseMode.GRACEFUL);
+            return;
+        }
+        CompletableFuture.runAsync(() -> closeWhenIdle(proxyAddress, client, deadlineNanos),
+                CompletableFuture.delayedExecutor(IDLE_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        proxyClients.values().forEach(client -> close(client, CloseMode.IMMEDIATE));
+        proxyClients.clear();
+        if (directClient != null) {
+            close(directClient, CloseMode.IMMEDIATE);
+            directClient = null;
+        }
+    }
+
+    private PooledClient createProxyClient(ProxyInfo proxyInfo) {
+        log.debug("Creating pooled client for proxy {}", proxyInfo.getAddress());
+        HttpHost proxy = new HttpHost(proxyInfo.getIp(), Integer.parseInt(proxyInfo.getPort()));
+        return createClient(HttpClients.custom().setProxy(proxy), proxyInfo.getAddress());
+    }
+
+    private PooledClient createClient(HttpClientBuilder builder, String route) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setDnsResolver(dnsResolver)
+                .setMaxConnPerRoute(config.getMaxConnectionsPerRoute())
+                .setMaxConnTotal(config.getMaxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(config.getConnectionTimeoutSeconds()))
+                        .setSocketTimeout(Timeout.ofSeconds(config.getReadTimeoutSeconds()))
+                        .build())
+                .build();
+
+        // Retries and cookies are handled per forwarded request, never shared through the pooled client
+        CloseableHttpClient httpClient = builder
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofSeconds(config.getReadTimeoutSeconds()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(config.getIdleConnectionEvictionSeconds()))
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .addExecInterceptorBefore(ChainElement.CONNECT.name(), "connect-timer", (request, scope, chain) -> {
+                    scope.clientContext.setAttribute(CONNECT_START_ATTRIBUTE, System.nanoTime());
+                    return chain.proceed(request, scope);
+                })
+                .addExecInterceptorAfter(ChainElement.CONNECT.name(), "first-byte-timer", (request, scope, chain) -> {
+                    // Runs once the connection (and any CONNECT tunnel) is established
+                    long connected = System.nanoTime();
+                    if (scope.clientContext.getAttribute(CONNECT_START_ATTRIBUTE) instanceof Long start) {
+                        metrics.recordConnect(route, connected - start);
+                    }
+                    ClassicHttpResponse response = chain.proceed(request, scope);
+                    metrics.recordFirstByte(route, System.nanoTime() - connected);
+                    return response;
+                })
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        return new PooledClient(httpClient, connectionManager, requestFactory, new RestTemplate(requestFactory));
+    }
+
+    private void close(PooledClient client, CloseMode closeMode) {
+        client.httpClient().close(closeMode);
+    }
+
+    private record PooledClient(CloseableHttpClient httpClient,
+                                PoolingHttpClientConnectionManager connectionManager,
+                                HttpComponentsClientHttpRequestFactory requestFactory,
+                                RestTemplate restTemplate) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decides whether a single proxy is usable, either by opening a TCP connection to it or by
+ * asking it to open a CONNECT tunnel to a known target.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProxyHealthProbe {
+    private final ProxyConfigProperties config;
+    private final CachingDnsResolver dnsResolver;
+
+    /**
+     * @throws IOException when the proxy cannot be reached or refuses the probe
+     */
+    public void probe(ProxyInfo proxy) throws IOException {
+        int timeoutMillis = config.getHealthCheckTimeoutSeconds() * 1000;
+
+        try (Socket socket = connect(proxy, timeoutMillis)) {
+            if (config.getHealthCheckMode() == ProxyConfigProperties.HealthCheckMode.HTTP_CONNECT) {
+                socket.setSoTimeout(timeoutMillis);
+                probeConnect(socket);
+            }
+        }
+    }
+
+    /**
+     * Connects to the first of the proxy's addresses that accepts.
+     */
+    private Socket connect(ProxyInfo proxy, int timeoutMillis) throws IOException {
+        int port = Integer.parseInt(proxy.getPort());
+        IOException failure = null;
+        for (InetAddress address : dnsResolver.resolve(proxy.getIp())) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(address, port), timeoutMillis);
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                failure = e;
+            }
+        }
+        // A resolver answer with no addresses leaves nothing that could have failed
+        throw failure != null ? failure : new UnknownHostException(proxy.getIp());
+    }
+
+    private void probeConnect(Socket socket) throws IOException {
+        String target = config.getHealthCheckProbeTarget();
+        OutputStream out = socket.getOutputStream();
+        out.write(("CONNECT " + target + " HTTP/1.1\r\nHost: " + target + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        String statusLine = reader.readLine();
+        if (statusLine == null) {
+            throw new IOException("Proxy closed the connection without answering CONNECT");
+        }
+
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[1].startsWith("2")) {
+            throw new IOException("Proxy refused CONNECT to " + target + ": " + statusLine);
+        }
+    }
+}
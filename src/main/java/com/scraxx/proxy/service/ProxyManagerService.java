@@ -1,200 +1,614 @@
 package com.scraxx.proxy.service;
 
 import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyCircuitStateChangedEvent;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ForwardRequest;
 import com.scraxx.proxy.model.ProxyInfo;
 import com.scraxx.proxy.model.ProxyStats;
+import com.scraxx.proxy.model.RoutingConstraints;
+import com.scraxx.proxy.service.selection.ProxySelectionStrategy;
+import com.scraxx.proxy.service.source.ProxySource;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.URI;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ProxyManagerService {
+    /** Header on the forward and stream endpoints naming the sticky session a request belongs to */
+    public static final String SESSION_HEADER = "X-Proxy-Session";
+    private static final int MAX_SELECTION_TRIES = 3;
+    // How soon a throttled selection is worth repeating when no rate limit says otherwise
+    private static final long THROTTLE_POLL_MILLIS = 10;
+
     private final ProxyConfigProperties config;
-    private final RestTemplate restTemplate = new RestTemplate();
     private final AlertService alertService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ForwardConcurrencyLimiter concurrencyLimiter;
+    private final ForwardResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final ForwardRateLimiter rateLimiter;
+    private final RetryBudget retryBudget;
+    private final ForwardMetrics metrics;
+    private final ProxySelectionStrategy selectionStrategy;
+    private final ProxySource proxySource;
+    private final ProxyHealthProbe healthProbe;
+    private final ProxyPerformanceTracker performanceTracker;
+    private final ProxyStateStore stateStore;
+    private final TaskScheduler taskScheduler;
 
-    private List<ProxyInfo> proxies = Collections.synchronizedList(new ArrayList<>());
-    private final AtomicInteger currentProxyIndex = new AtomicInteger(0);
-    private final AtomicInteger totalRequests = new AtomicInteger(0);
-    private final AtomicInteger successfulRequests = new AtomicInteger(0);
-    private final AtomicInteger failedRequests = new AtomicInteger(0);
-    private final AtomicInteger directRequests = new AtomicInteger(0);
+    // Both lists are immutable snapshots, replaced wholesale; readers never lock or copy
+    private volatile List<ProxyInfo> proxies = List.of();
+    private volatile HealthyProxyIndex healthyProxies = HealthyProxyIndex.EMPTY;
+    private final LongAdder totalRequests = new LongAdder();
+    private final LongAdder successfulRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder directRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final AtomicBoolean healthCheckRunning = new AtomicBoolean(false);
 
     @PostConstruct
     public void initialize() {
         log.info("Initializing proxy manager service");
+        metrics.gauge("proxy.pool.size", "Proxies currently known", this, manager -> manager.proxies.size());
+        metrics.gauge("proxy.pool.healthy", "Proxies currently eligible for selection", this,
+                manager -> manager.healthyProxies.all().length);
+        metrics.gauge("proxy.forwards.inflight", "Forwards currently holding a concurrency permit",
+                concurrencyLimiter, ForwardConcurrencyLimiter::getInFlight);
         fetchProxies();
-        if (!proxies.isEmpty()) {
+        if (proxies.isEmpty()) {
+            return;
+        }
+        if (stateStore.restore(proxies) > 0) {
+            // Known proxies keep their saved schedule; only new ones and those already due are checked now
+            republishHealthyProxies();
+            scheduleRestoredCircuitReopening();
+            checkDueProxyHealth();
+        } else {
             checkProxyHealth();
         }
     }
 
-    @Scheduled(fixedDelayString = "${proxy.proxyFetchIntervalMinutes:60}000")
+    private void scheduleRestoredCircuitReopening() {
+        long now = System.currentTimeMillis();
+        for (ProxyInfo proxy : proxies) {
+            long openUntilMillis = performanceTracker.get(proxy).getCircuitBreaker().getOpenUntilMillis();
+            if (openUntilMillis > now) {
+                taskScheduler.schedule(this::republishHealthyProxies, Instant.ofEpochMilli(openUntilMillis));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${proxy.proxyStateSnapshotSeconds:30}",
+            initialDelayString = "${proxy.proxyStateSnapshotSeconds:30}", timeUnit = TimeUnit.SECONDS)
+    public void saveState() {
+        stateStore.save(proxies);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveState();
+    }
+
+    @Scheduled(fixedDelayString = "${proxy.proxyFetchIntervalMinutes:60}",
+            initialDelayString = "${proxy.proxyFetchIntervalMinutes:60}", timeUnit = TimeUnit.MINUTES)
     public void fetchProxies() {
         log.info("Fetching proxy list");
-//        try {
-//            FetchProxyResponseWrapper  fetchProxyResponseWrapper = restTemplate.exchange(
-//                    config.getProxyProviderUrl(),
-//                    HttpMethod.GET,
-//                    null,
-//                    FetchProxyResponseWrapper.class
-//            ).getBody();
-//
-//            if (fetchProxyResponseWrapper != null && fetchProxyResponseWrapper.getData() != null && !fetchProxyResponseWrapper.getData().isEmpty()) {
-//                List<ProxyInfo> newProxies = fetchProxyResponseWrapper.getData();
-//                log.info("Received {} proxies", newProxies.size());
-//                // Preserve health status of existing proxies
-//                if (!proxies.isEmpty()) {
-//                    for (ProxyInfo newProxy : newProxies) {
-//                        proxies.stream()
-//                                .filter(p -> p.getIp().equals(newProxy.getIp()) && p.getPort().equals(newProxy.getPort()))
-//                                .findFirst()
-//                                .ifPresent(existingProxy -> {
-//                                    newProxy.setHealthy(existingProxy.isHealthy());
-//                                    newProxy.setLastHealthCheck(existingProxy.getLastHealthCheck());
-//                                    newProxy.setConsecutiveFailures(existingProxy.getConsecutiveFailures());
-//                                });
-//                    }
-//                }
-//                proxies = Collections.synchronizedList(new ArrayList<>(newProxies));
-//
-//                // Reset the index if it's out of bounds
-//                if (currentProxyIndex.get() >= proxies.size()) {
-//                    currentProxyIndex.set(0);
-//                }
-//            } else {
-//                log.warn("Received empty proxy list");
-//            }
-//        } catch (Exception e) {
-//            log.error("Failed to fetch proxy list", e);
-//        }
-
-        List<ProxyInfo> newProxies = new ArrayList<>();
-        for(int i = 0; i < 10; i++){
-            ProxyInfo proxyInfo = new ProxyInfo();
-            proxyInfo.setIp("p.webshare.io");
-            proxyInfo.setPort("1000"+i);
-            newProxies.add(proxyInfo);
-        }
-        proxies = Collections.synchronizedList(new ArrayList<>(newProxies));
-    }
-
-    @Scheduled(fixedDelayString = "${proxy.healthCheckIntervalMinutes:5}000")
+        List<ProxyInfo> newProxies;
+        try {
+            newProxies = proxySource.fetchProxies();
+        } catch (Exception e) {
+            log.error("Failed to fetch proxy list", e);
+            return;
+        }
+        if (newProxies.isEmpty()) {
+            log.warn("Received empty proxy list");
+            return;
+        }
+        log.info("Received {} proxies", newProxies.size());
+        mergeProxies(newProxies);
+    }
+
+    /**
+     * Makes the fetched list the current one, keyed by ip:port. Proxies already known keep their object, and with
+     * it their health, schedule, latency history and pooled connections; only their provider metadata is updated.
+     * Components holding per-proxy resources are notified only when proxies were actually added or removed.
+     */
+    void mergeProxies(List<ProxyInfo> fetchedProxies) {
+        List<ProxyInfo> mergedProxies = new ArrayList<>(fetchedProxies.size());
+        List<ProxyInfo> removedProxies;
+        int added = 0;
+        synchronized (this) {
+            Map<String, ProxyInfo> existing = HashMap.newHashMap(proxies.size());
+            for (ProxyInfo proxy : proxies) {
+                existing.put(proxy.getAddress(), proxy);
+            }
+            Set<String> seen = HashSet.newHashSet(fetchedProxies.size());
+            for (ProxyInfo fetched : fetchedProxies) {
+                if (!seen.add(fetched.getAddress())) {
+                    continue;
+                }
+                ProxyInfo current = existing.remove(fetched.getAddress());
+                if (current != null) {
+                    updateProviderMetadata(current, fetched);
+                    mergedProxies.add(current);
+                } else {
+                    mergedProxies.add(fetched);
+                    added++;
+                }
+            }
+            removedProxies = List.copyOf(existing.values());
+            proxies = List.copyOf(mergedProxies);
+            republishHealthyProxies();
+        }
+
+        log.info("Proxy list merged: {} added, {} removed, {} total", added, removedProxies.size(), mergedProxies.size());
+        if (added > 0 || !removedProxies.isEmpty()) {
+            eventPublisher.publishEvent(new ProxyListRefreshedEvent(proxies, removedProxies));
+        }
+    }
+
+    private static void updateProviderMetadata(ProxyInfo target, ProxyInfo source) {
+        target.setId(source.getId());
+        target.setProtocols(source.getProtocols());
+        target.setAnonymityLevel(source.getAnonymityLevel());
+        target.setCountry(source.getCountry());
+        target.setCity(source.getCity());
+        target.setUpTime(source.getUpTime());
+        target.setLastChecked(source.getLastChecked());
+        target.setResponseTime(source.getResponseTime());
+        target.setUpTimeSuccessCount(source.getUpTimeSuccessCount());
+        target.setUpTimeTryCount(source.getUpTimeTryCount());
+    }
+
+    /**
+     * Rebuilds the healthy-proxy snapshot. Called only when the list changes or a proxy's health changes,
+     * so that selection on the request path is an index lookup.
+     */
+    private synchronized void republishHealthyProxies() {
+        ProxyInfo[] healthy = proxies.stream()
+                .filter(ProxyInfo::isHealthy)
+                .filter(proxy -> performanceTracker.get(proxy).getCircuitBreaker().isSelectable())
+                .toArray(ProxyInfo[]::new);
+        healthyProxies = new HealthyProxyIndex(healthy,
+                proxy -> performanceTracker.get(proxy).getEwmaLatencyMillis());
+    }
+
+    @EventListener
+    public void onCircuitStateChanged(ProxyCircuitStateChangedEvent event) {
+        log.info("Circuit of proxy {} moved from {} to {}",
+                event.getProxyAddress(), event.getPreviousState(), event.getNewState());
+        republishHealthyProxies();
+
+        if (event.getNewState() == ProxyCircuitBreaker.State.OPEN) {
+            // Put the proxy back in rotation for trial calls once the open period is over
+            taskScheduler.schedule(this::republishHealthyProxies, Instant.ofEpochMilli(event.getOpenUntilMillis()));
+        }
+    }
+
+    /**
+     * Checks every proxy now, regardless of when it is next due.
+     */
     public void checkProxyHealth() {
-        if (proxies.isEmpty()) {
+        List<ProxyInfo> currentProxies = proxies;
+        if (currentProxies.isEmpty()) {
             log.warn("No proxies available for health check");
             return;
         }
+        if (!healthCheckRunning.compareAndSet(false, true)) {
+            log.info("Health check already in progress, skipping");
+            return;
+        }
+        sweepAll(currentProxies);
+    }
+
+    /**
+     * Starts checking every proxy in the background, unless a sweep is already running.
+     */
+    public HealthCheckStart startProxyHealthCheck() {
+        List<ProxyInfo> currentProxies = proxies;
+        if (currentProxies.isEmpty()) {
+            return HealthCheckStart.NO_PROXIES;
+        }
+        if (!healthCheckRunning.compareAndSet(false, true)) {
+            return HealthCheckStart.ALREADY_RUNNING;
+        }
+        // On its own thread rather than the scheduler's, whose timed tasks must not wait for a whole sweep
+        Thread.ofVirtual().name("health-check").start(() -> sweepAll(currentProxies));
+        return HealthCheckStart.STARTED;
+    }
 
-        log.info("Starting health check for {} proxies", proxies.size());
+    /**
+     * Sweeps the given proxies; the caller must already hold the running flag.
+     */
+    private void sweepAll(List<ProxyInfo> currentProxies) {
+        log.info("Starting health check for {} proxies", currentProxies.size());
+        runClaimedHealthChecks(currentProxies);
 
-        for (ProxyInfo proxy : proxies) {
-            checkSingleProxyHealth(proxy);
+        int healthyCount = healthyProxies.all().length;
+        log.info("Health check completed. Healthy proxies: {}/{}", healthyCount, currentProxies.size());
+
+        if (healthyCount == 0) {
+            alertService.alertNoHealthyProxies();
         }
+    }
 
-        int healthyCount = getHealthyProxies().size();
-        log.info("Health check completed. Healthy proxies: {}/{}", healthyCount, proxies.size());
+    /**
+     * Checks only the proxies whose adaptive schedule says they are due: healthy proxies every
+     * healthCheckIntervalMinutes, failed ones sooner, and proxies that keep failing with exponential back-off.
+     */
+    @Scheduled(fixedDelayString = "${proxy.healthCheckTickSeconds:15}",
+            initialDelayString = "${proxy.healthCheckTickSeconds:15}", timeUnit = TimeUnit.SECONDS)
+    public void checkDueProxyHealth() {
+        Instant now = Instant.now();
+        List<ProxyInfo> dueProxies = proxies.stream()
+                .filter(proxy -> proxy.getNextHealthCheck() == null || !proxy.getNextHealthCheck().isAfter(now))
+                .toList();
+        if (dueProxies.isEmpty()) {
+            return;
+        }
 
-        if (healthyCount == 0 && !proxies.isEmpty()) {
+        log.debug("Checking health of {} due proxies", dueProxies.size());
+        boolean hadHealthyProxies = hasHealthyProxies();
+        if (runHealthChecks(dueProxies) && hadHealthyProxies && !hasHealthyProxies()) {
             alertService.alertNoHealthyProxies();
         }
     }
 
-    private void checkSingleProxyHealth(ProxyInfo proxy) {
+    /**
+     * Probes the given proxies concurrently on virtual threads, at most healthCheckParallelism at a time.
+     *
+     * @return false when another sweep was already running and nothing was checked
+     */
+    private boolean runHealthChecks(List<ProxyInfo> targets) {
+        if (!healthCheckRunning.compareAndSet(false, true)) {
+            log.debug("Health check already in progress, skipping");
+            return false;
+        }
+        runClaimedHealthChecks(targets);
+        return true;
+    }
+
+    private void runClaimedHealthChecks(List<ProxyInfo> targets) {
+        long startTime = System.nanoTime();
+        AtomicBoolean healthChanged = new AtomicBoolean(false);
+        Semaphore permits = new Semaphore(config.getHealthCheckParallelism());
+        try {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (ProxyInfo proxy : targets) {
+                    permits.acquireUninterruptibly();
+                    executor.submit(() -> {
+                        try {
+                            if (checkSingleProxyHealth(proxy)) {
+                                healthChanged.set(true);
+                            }
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+
+            if (healthChanged.get()) {
+                republishHealthyProxies();
+            }
+        } finally {
+            // Released only once the results are published, so the next sweep starts from them
+            healthCheckRunning.set(false);
+        }
+        metrics.recordHealthSweep(System.nanoTime() - startTime);
+        log.debug("Checked {} proxies in {} ms", targets.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    private boolean checkSingleProxyHealth(ProxyInfo proxy) {
+        boolean wasHealthy = proxy.isHealthy();
         String ip = proxy.getIp();
-        int port = Integer.parseInt(proxy.getPort());
+        String port = proxy.getPort();
 
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(ip, port), config.getHealthCheckTimeoutSeconds() * 1000);
+        long startTime = System.nanoTime();
+        try {
+            healthProbe.probe(proxy);
             proxy.setHealthy(true);
             proxy.setConsecutiveFailures(0);
             log.debug("Proxy {}:{} is healthy", ip, port);
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             proxy.setConsecutiveFailures(proxy.getConsecutiveFailures() + 1);
             proxy.setHealthy(false);
             log.debug("Proxy {}:{} is unhealthy: {}", ip, port, e.getMessage());
         }
 
+        metrics.recordHealthCheck(proxy.isHealthy(), System.nanoTime() - startTime);
         proxy.setLastHealthCheck(Instant.now());
+        scheduleNextHealthCheck(proxy);
+        return wasHealthy != proxy.isHealthy();
+    }
+
+    private void scheduleNextHealthCheck(ProxyInfo proxy) {
+        long delaySeconds;
+        if (proxy.isHealthy()) {
+            delaySeconds = config.getHealthCheckIntervalMinutes() * 60L;
+        } else {
+            int doublings = Math.min(Math.max(proxy.getConsecutiveFailures() - 1, 0), 20);
+            delaySeconds = Math.min((long) config.getUnhealthyRecheckSeconds() << doublings,
+                    config.getMaxHealthCheckBackoffMinutes() * 60L);
+        }
+
+        // Spread checks out so that proxies added together are not all due on the same tick
+        double jitter = 0.9 + ThreadLocalRandom.current().nextDouble(0.2);
+        proxy.setNextHealthCheck(Instant.now().plusSeconds(Math.max(1, (long) (delaySeconds * jitter))));
     }
 
     public ProxyInfo getNextHealthyProxy() {
-        if (proxies.isEmpty()) {
+        return getNextHealthyProxy(null);
+    }
+
+    /**
+     * Picks a healthy proxy satisfying the routing constraints, or returns null when none is available.
+     *
+     * @throws ProxyThrottledException when there are candidates but none of those offered may take a request now
+     */
+    public ProxyInfo getNextHealthyProxy(RoutingConstraints constraints) {
+        return getNextHealthyProxy(constraints, null, Set.of());
+    }
+
+    /**
+     * Picks the proxy for the next attempt of a forward, skipping proxies it has already tried. A forward that
+     * belongs to a session goes to the session's proxy on the ring, as long as that proxy is not loaded beyond
+     * sessionLoadFactor times the average; otherwise it moves clockwise to the next one.
+     */
+    public ProxyInfo getNextHealthyProxy(ForwardRequest request, Set<String> triedAddresses) {
+        return getNextHealthyProxy(request.getRouting(), sessionKeyOf(request.getSessionKey(), request.getUrl()),
+                triedAddresses);
+    }
+
+    public ProxyInfo getNextHealthyProxy(RoutingConstraints constraints, String sessionKey, Set<String> triedAddresses) {
+        return sessionKey == null
+                ? selectFromPool(constraints, triedAddresses)
+                : selectForSession(constraints, sessionKey, triedAddresses);
+    }
+
+    private ProxyInfo selectFromPool(RoutingConstraints constraints, Set<String> triedAddresses) {
+        HealthyProxyIndex index = healthyProxies;
+        ProxyInfo[] snapshot = index.matching(constraints);
+        if (snapshot.length == 0) {
             return null;
         }
 
-        // Find healthy proxies
-        List<ProxyInfo> healthyProxies = proxies.stream()
-                .filter(ProxyInfo::isHealthy)
-                .toList();
+        // The latency bound filters the memoized array rather than copying it, so strategy state keyed by it holds
+        Predicate<ProxyInfo> eligible = index.latencyFilter(constraints);
+        if (!triedAddresses.isEmpty()) {
+            eligible = eligible.and(proxy -> !triedAddresses.contains(proxy.getAddress()));
+        }
+        // Look for another proxy when this one is throttled, at its in-flight cap, or a saturated half-open circuit
+        for (int i = 0; i < Math.min(snapshot.length, MAX_SELECTION_TRIES); i++) {
+            ProxyInfo proxy = selectionStrategy.select(snapshot, eligible);
+            if (proxy == null) {
+                return null;
+            }
+            if (tryAdmit(proxy)) {
+                return proxy;
+            }
+        }
+        throw throttled();
+    }
 
-        if (healthyProxies.isEmpty()) {
+    private ProxyInfo selectForSession(RoutingConstraints constraints, String sessionKey, Set<String> triedAddresses) {
+        HealthyProxyIndex index = healthyProxies;
+        // The latency bound is left to the filter below, so sizing the share does not copy the candidates
+        ProxyInfo[] candidates = index.matching(constraints);
+        if (candidates.length == 0) {
             return null;
         }
 
-        // Get the next index in a thread-safe way
-        int index = currentProxyIndex.getAndUpdate(i -> (i + 1) % healthyProxies.size());
+        // Bounded load: no proxy takes more than its share of what is in flight, so hot sessions spill over
+        long maxLoad = (long) Math.ceil(
+                config.getSessionLoadFactor() * (concurrencyLimiter.getInFlight() + 1) / candidates.length);
+        Predicate<ProxyInfo> eligible = index.filter(constraints);
+        boolean[] refused = new boolean[1];
+        ProxyInfo selected = index.sessionRing(config.getSessionRingVirtualNodes()).select(sessionKey, proxy -> {
+            if (!eligible.test(proxy) || triedAddresses.contains(proxy.getAddress())) {
+                return false;
+            }
+            if (performanceTracker.get(proxy).getInFlight() < maxLoad && tryAdmit(proxy)) {
+                return true;
+            }
+            refused[0] = true;
+            return false;
+        });
+        if (selected == null && refused[0]) {
+            throw throttled();
+        }
+        return selected;
+    }
 
-        // Ensure index is within bounds
-        if (index >= healthyProxies.size()) {
-            index = 0;
-            currentProxyIndex.set(1); // Set to 1 because we're returning index 0
+    /**
+     * Blocking form of selection that honours rateLimitMode: while every candidate is throttled, QUEUE mode keeps
+     * trying for up to rateLimitMaxQueueMillis (and at most maxWaitMillis), REJECT gives up at once.
+     *
+     * @throws ProxyThrottledException when the candidates are still throttled after waiting
+     */
+    public ProxyInfo awaitProxy(Supplier<ProxyInfo> selection, long maxWaitMillis) {
+        long maxWait = config.getRateLimitMode() == ProxyConfigProperties.RateLimitMode.QUEUE
+                ? Math.min(config.getRateLimitMaxQueueMillis(), maxWaitMillis)
+                : 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWait);
+        while (true) {
+            try {
+                return selection.get();
+            } catch (ProxyThrottledException e) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(e.getRetryAfterMillis())));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
         }
+    }
+
+    /**
+     * How long a caller facing a throttled pool should wait before selecting again.
+     */
+    public long throttleRetryMillis() {
+        return config.getProxyRateLimitPerSecond() > 0
+                ? Math.max(THROTTLE_POLL_MILLIS, (long) Math.ceil(1000 / config.getProxyRateLimitPerSecond()))
+                : THROTTLE_POLL_MILLIS;
+    }
+
+    /**
+     * Gives back what selecting the proxy took, for a selection that ends up not being used.
+     */
+    public void releaseUnused(ProxyInfo proxy) {
+        rateLimiter.refundProxy(proxy);
+    }
+
+    private ProxyThrottledException throttled() {
+        return new ProxyThrottledException(throttleRetryMillis());
+    }
 
-        return healthyProxies.get(index);
+    /**
+     * Takes the proxy's in-flight slot and rate permit, then its breaker permission; the first two are handed
+     * back if the breaker says no. A proxy returned by selection is counted in flight until the caller's attempt
+     * calls {@link ProxyPerformance#requestFinished}.
+     */
+    private boolean tryAdmit(ProxyInfo proxy) {
+        if (!rateLimiter.tryAcquireProxy(proxy)) {
+            return false;
+        }
+        if (performanceTracker.get(proxy).getCircuitBreaker().tryAcquirePermission()) {
+            return true;
+        }
+        rateLimiter.refundProxy(proxy);
+        return false;
+    }
+
+    /**
+     * The session a forward belongs to: the explicit key if given, otherwise the target host when
+     * sessionAffinityByHost is on, otherwise none.
+     */
+    public String sessionKeyOf(String sessionKey, String url) {
+        if (sessionKey != null && !sessionKey.isBlank()) {
+            return sessionKey;
+        }
+        if (config.isSessionAffinityByHost() && url != null) {
+            try {
+                return URI.create(url).getHost();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
     }
 
     public void markProxyUnhealthy(ProxyInfo proxy) {
         if (proxy != null) {
+            boolean wasHealthy = proxy.isHealthy();
             proxy.setHealthy(false);
             proxy.setConsecutiveFailures(proxy.getConsecutiveFailures() + 1);
+            scheduleNextHealthCheck(proxy);
             log.info("Marked proxy {}:{} as unhealthy", proxy.getIp(), proxy.getPort());
+            if (wasHealthy) {
+                republishHealthyProxies();
+            }
         }
     }
 
     public ProxyStats getProxyStats() {
         ProxyStats stats = new ProxyStats();
         stats.setTotalProxies(proxies.size());
-        stats.setHealthyProxies(getHealthyProxies().size());
-        stats.setUnhealthyProxies(proxies.size() - stats.getHealthyProxies());
-        stats.setTotalRequests(totalRequests.get());
-        stats.setSuccessfulRequests(successfulRequests.get());
-        stats.setFailedRequests(failedRequests.get());
-        stats.setDirectRequests(directRequests.get());
+        stats.setHealthyProxies(healthyProxies.all().length);
+        stats.setUnhealthyProxies(stats.getTotalProxies() - stats.getHealthyProxies());
+        stats.setTotalRequests(totalRequests.sum());
+        stats.setSuccessfulRequests(successfulRequests.sum());
+        stats.setFailedRequests(failedRequests.sum());
+        stats.setDirectRequests(directRequests.sum());
+        stats.setRejectedRequests(rejectedRequests.sum());
+        stats.setInFlightRequests(concurrencyLimiter.getInFlight());
+        stats.setCacheHits(responseCache.getHits());
+        stats.setCacheMisses(responseCache.getMisses());
+        stats.setCacheRevalidations(responseCache.getRevalidations());
+        stats.setCoalescedRequests(requestCoalescer.getCoalescedRequests());
+        stats.setRateLimitedRequests(rateLimiter.getRateLimitedRequests());
+        stats.setRetriesDenied(retryBudget.getRetriesDenied());
+        for (ProxyInfo proxy : proxies) {
+            switch (performanceTracker.get(proxy).getCircuitBreaker().getState()) {
+                case OPEN -> stats.setOpenCircuits(stats.getOpenCircuits() + 1);
+                case HALF_OPEN -> stats.setHalfOpenCircuits(stats.getHalfOpenCircuits() + 1);
+                default -> {
+                }
+            }
+        }
         return stats;
     }
 
+    public boolean hasHealthyProxies() {
+        return healthyProxies.all().length > 0;
+    }
+
     public List<ProxyInfo> getHealthyProxies() {
-        return proxies.stream().filter(ProxyInfo::isHealthy).toList();
+        return Collections.unmodifiableList(Arrays.asList(healthyProxies.all()));
     }
 
     public void incrementTotalRequests() {
-        totalRequests.incrementAndGet();
+        totalRequests.increment();
     }
 
     public void incrementSuccessfulRequests() {
-        successfulRequests.incrementAndGet();
+        successfulRequests.increment();
     }
 
     public void incrementFailedRequests() {
-        failedRequests.incrementAndGet();
+        failedRequests.increment();
     }
 
     public void incrementDirectRequests() {
-        directRequests.incrementAndGet();
+        directRequests.increment();
+    }
+
+    public void incrementRejectedRequests() {
+        rejectedRequests.increment();
+    }
+
+    /**
+     * What came of asking for a full health check.
+     */
+    public enum HealthCheckStart {
+        STARTED,
+        ALREADY_RUNNING,
+        NO_PROXIES
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ProxyInfo;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live performance figures of a single upstream proxy, recorded from forwarded requests.
+ */
+public class ProxyPerformance {
+    private static final int LATENCY_SAMPLE_SIZE = 128;
+    private static final double EWMA_ALPHA = 0.3;
+    private static final double DEFAULT_LATENCY_MILLIS = 1000;
+
+    private final AtomicLongArray latencySamples = new AtomicLongArray(LATENCY_SAMPLE_SIZE);
+    private final AtomicLong latencySampleCount = new AtomicLong();
+
+    // EWMAs are stored as raw double bits so they can be updated without locking
+    private final AtomicLong ewmaLatencyBits;
+    private final AtomicLong ewmaSuccessRateBits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ProxyCircuitBreaker circuitBreaker;
+
+    /**
+     * Seeds the moving averages with the provider's own figures, when it reported any.
+     */
+    public ProxyPerformance(ProxyInfo proxyInfo, ProxyCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        double latency = proxyInfo.getResponseTime() != null && proxyInfo.getResponseTime() > 0
+                ? proxyInfo.getResponseTime()
+                : DEFAULT_LATENCY_MILLIS;
+        double successRate = proxyInfo.getUpTime() != null
+                ? Math.max(0, Math.min(1, proxyInfo.getUpTime() / 100.0))
+                : 1.0;
+        this.ewmaLatencyBits = new AtomicLong(Double.doubleToLongBits(latency));
+        this.ewmaSuccessRateBits = new AtomicLong(Double.doubleToLongBits(successRate));
+    }
+
+    public void recordSuccess(long latencyMillis) {
+        recordLatency(latencyMillis);
+        updateEwma(ewmaSuccessRateBits, 1.0);
+        circuitBreaker.onSuccess(latencyMillis);
+    }
+
+    public void recordFailure(long latencyMillis) {
+        recordLatency(latencyMillis);
+        updateEwma(ewmaSuccessRateBits, 0.0);
+        circuitBreaker.onFailure();
+    }
+
+    /**
+     * Replaces the moving averages with ones saved by a previous run.
+     */
+    public void restore(double ewmaLatencyMillis, double ewmaSuccessRate) {
+        ewmaLatencyBits.set(Double.doubleToLongBits(ewmaLatencyMillis));
+        ewmaSuccessRateBits.set(Double.doubleToLongBits(ewmaSuccessRate));
+    }
+
+    public ProxyCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void recordLatency(long latencyMillis) {
+        long sample = latencySampleCount.getAndIncrement();
+        latencySamples.set((int) (sample % LATENCY_SAMPLE_SIZE), latencyMillis);
+        updateEwma(ewmaLatencyBits, latencyMillis);
+    }
+
+    /**
+     * Counts a request as in flight unless maxInFlight (when positive) are already; claimed as part of selecting
+     * the proxy, so concurrent selections cannot overshoot the cap.
+     */
+    public boolean tryStartRequest(int maxInFlight) {
+        while (true) {
+            int current = inFlight.get();
+            if (maxInFlight > 0 && current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getEwmaLatencyMillis() {
+        return Double.longBitsToDouble(ewmaLatencyBits.get());
+    }
+
+    public double getEwmaSuccessRate() {
+        return Double.longBitsToDouble(ewmaSuccessRateBits.get());
+    }
+
+    public long getLatencySampleCount() {
+        return latencySampleCount.get();
+    }
+
+    /**
+     * Latency percentile over the most recent samples, or -1 when nothing has been recorded yet.
+     */
+    public long latencyPercentile(double percentile) {
+        int size = (int) Math.min(latencySampleCount.get(), LATENCY_SAMPLE_SIZE);
+        if (size == 0) {
+            return -1;
+        }
+
+        long[] samples = new long[size];
+        for (int i = 0; i < size; i++) {
+            samples[i] = latencySamples.get(i);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return samples[Math.max(0, Math.min(index, size - 1))];
+    }
+
+    private static void updateEwma(AtomicLong bits, double value) {
+        bits.getAndUpdate(current -> Double.doubleToLongBits(
+                EWMA_ALPHA * value + (1 - EWMA_ALPHA) * Double.longBitsToDouble(current)));
+    }
+}
@@ -0,0 +1,43 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyCircuitStateChangedEvent;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@link ProxyPerformance} per upstream proxy, keyed by ip:port so it survives list refreshes.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProxyPerformanceTracker {
+    private final ProxyConfigProperties config;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, ProxyPerformance> performances = new ConcurrentHashMap<>();
+
+    public ProxyPerformance get(ProxyInfo proxyInfo) {
+        return performances.computeIfAbsent(proxyInfo.getAddress(), address -> create(address, proxyInfo));
+    }
+
+    @EventListener
+    public void onProxyListRefreshed(ProxyListRefreshedEvent event) {
+        for (ProxyInfo proxy : event.getRemovedProxies()) {
+            performances.remove(proxy.getAddress());
+        }
+    }
+
+    private ProxyPerformance create(String address, ProxyInfo proxyInfo) {
+        ProxyCircuitBreaker[] breaker = new ProxyCircuitBreaker[1];
+        breaker[0] = new ProxyCircuitBreaker(config, (previous, current) -> eventPublisher.publishEvent(
+                new ProxyCircuitStateChangedEvent(address, previous, current, breaker[0].getOpenUntilMillis())));
+        return new ProxyPerformance(proxyInfo, breaker[0]);
+    }
+}
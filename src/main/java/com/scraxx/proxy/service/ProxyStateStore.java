@@ -0,0 +1,174 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists what the service has learned about each proxy (health, failure streak, check schedule, latency and
+ * success-rate EWMAs, circuit state) to a compact binary snapshot, so a restart comes up routing like the
+ * process it replaced. Snapshots are written to a temporary file, flushed to disk and atomically moved over the
+ * previous one, so a crash mid-write never leaves a torn file behind. A snapshot is read in full before any of it
+ * is applied, so a truncated or corrupt one changes nothing.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProxyStateStore {
+    private static final int MAGIC = 0x50585354; // "PXST"
+    private static final int VERSION = 1;
+    private static final long NO_INSTANT = Long.MIN_VALUE;
+
+    private final ProxyConfigProperties config;
+    private final ProxyPerformanceTracker performanceTracker;
+
+    public void save(List<ProxyInfo> proxies) {
+        if (!config.isProxyStatePersistenceEnabled() || proxies.isEmpty()) {
+            return;
+        }
+
+        Path file = Path.of(config.getProxyStateFile());
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                    write(out, proxies);
+                    out.flush();
+                    // Otherwise the rename can reach the disk before the data and a crash leaves an empty snapshot
+                    channel.force(true);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.debug("Saved state of {} proxies to {}", proxies.size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to save proxy state to {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the saved state to the proxies it knows about. A snapshot older than proxyStateMaxAgeMinutes is
+     * ignored, as is anything about proxies no longer on the list.
+     *
+     * @return how many proxies had their state restored
+     */
+    public int restore(List<ProxyInfo> proxies) {
+        if (!config.isProxyStatePersistenceEnabled() || proxies.isEmpty()) {
+            return 0;
+        }
+
+        Path file = Path.of(config.getProxyStateFile());
+        Map<String, ProxyInfo> byAddress = HashMap.newHashMap(proxies.size());
+        for (ProxyInfo proxy : proxies) {
+            byAddress.put(proxy.getAddress(), proxy);
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignoring proxy state file {} in an unknown format", file);
+                return 0;
+            }
+            Instant savedAt = Instant.ofEpochMilli(in.readLong());
+            Duration age = Duration.between(savedAt, Instant.now());
+            if (age.toMinutes() >= config.getProxyStateMaxAgeMinutes()) {
+                log.info("Ignoring proxy state saved {} minutes ago", age.toMinutes());
+                return 0;
+            }
+
+            int count = in.readInt();
+            List<SavedState> states = new ArrayList<>(Math.min(count, proxies.size()));
+            for (int i = 0; i < count; i++) {
+                SavedState state = read(in);
+                if (byAddress.containsKey(state.address())) {
+                    states.add(state);
+                }
+            }
+
+            for (SavedState state : states) {
+                apply(state, byAddress.get(state.address()));
+            }
+            int restored = states.size();
+            log.info("Restored state of {} proxies saved {} seconds ago", restored, age.toSeconds());
+            return restored;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to restore proxy state from {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void write(DataOutputStream out, List<ProxyInfo> proxies) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(proxies.size());
+        for (ProxyInfo proxy : proxies) {
+            ProxyPerformance performance = performanceTracker.get(proxy);
+            ProxyCircuitBreaker circuitBreaker = performance.getCircuitBreaker();
+            out.writeUTF(proxy.getAddress());
+            out.writeBoolean(proxy.isHealthy());
+            out.writeInt(proxy.getConsecutiveFailures());
+            writeInstant(out, proxy.getLastHealthCheck());
+            writeInstant(out, proxy.getNextHealthCheck());
+            out.writeDouble(performance.getEwmaLatencyMillis());
+            out.writeDouble(performance.getEwmaSuccessRate());
+            out.writeByte(circuitBreaker.getState().ordinal());
+            out.writeLong(circuitBreaker.getOpenUntilMillis());
+        }
+    }
+
+    private static SavedState read(DataInputStream in) throws IOException {
+        return new SavedState(in.readUTF(), in.readBoolean(), in.readInt(), readInstant(in), readInstant(in),
+                in.readDouble(), in.readDouble(), ProxyCircuitBreaker.State.values()[in.readByte()], in.readLong());
+    }
+
+    private void apply(SavedState state, ProxyInfo proxy) {
+        proxy.setHealthy(state.healthy());
+        proxy.setConsecutiveFailures(state.consecutiveFailures());
+        proxy.setLastHealthCheck(state.lastHealthCheck());
+        proxy.setNextHealthCheck(state.nextHealthCheck());
+        ProxyPerformance performance = performanceTracker.get(proxy);
+        performance.restore(state.ewmaLatencyMillis(), state.ewmaSuccessRate());
+        performance.getCircuitBreaker().restore(state.circuitState(), state.openUntilMillis());
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant != null ? instant.toEpochMilli() : NO_INSTANT);
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        long millis = in.readLong();
+        return millis != NO_INSTANT ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    private record SavedState(String address, boolean healthy, int consecutiveFailures, Instant lastHealthCheck,
+                              Instant nextHealthCheck, double ewmaLatencyMillis, double ewmaSuccessRate,
+                              ProxyCircuitBreaker.State circuitState, long openUntilMillis) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.scraxx.proxy.service;
+
+/**
+ * Thrown by proxy selection when healthy candidates exist but every one offered is at its rate limit, in-flight
+ * cap or half-open trial limit. Unlike "no healthy proxy", this must not lead to a direct connection: the
+ * request is queued or refused instead.
+ */
+public class ProxyThrottledException extends RuntimeException {
+    private final long retryAfterMillis;
+
+    public ProxyThrottledException(long retryAfterMillis) {
+        // Signals a routine outcome, so skip the stack trace
+        super("Every candidate proxy is throttled", null, false, false);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Roughly when a candidate may have room again.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,436 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.model.RequestPriority;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking forwarding engine with the same caching, rotation, retry and direct-fallback rules as
+ * {@link ForwardProxyService}, selected with {@code proxy.engine=REACTIVE}. Request coalescing and hedging
+ * are not implemented here, so startup fails when either is enabled together with this engine.
+ */
+@Service
+@ConditionalOnProperty(prefix = "proxy", name = "engine", havingValue = "reactive")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveForwardProxyService {
+    private final ProxyManagerService proxyManager;
+    private final ProxyConfigProperties config;
+    private final AlertService alertService;
+    private final ReactiveProxyClientRegistry clientRegistry;
+    private final ForwardConcurrencyLimiter concurrencyLimiter;
+    private final ProxyPerformanceTracker performanceTracker;
+    private final ForwardResponseCache responseCache;
+    private final ForwardRateLimiter rateLimiter;
+    private final RetryBudget retryBudget;
+    private final ForwardMetrics metrics;
+
+    @PostConstruct
+    void checkSupportedFeatures() {
+        if (config.isCoalescingEnabled() || config.isHedgingEnabled()) {
+            throw new IllegalStateException("proxy.engine=REACTIVE supports neither request coalescing nor hedging;"
+                    + " disable proxy.coalescing-enabled and proxy.hedging-enabled or use the BLOCKING engine");
+        }
+    }
+
+    public Mono<ForwardResponse> forwardRequest(ForwardRequest request) {
+        proxyManager.incrementTotalRequests();
+
+        long startTime = System.nanoTime();
+        return forwardThroughCache(request)
+                .doOnNext(response -> metrics.recordForward(response, System.nanoTime() - startTime));
+    }
+
+    private Mono<ForwardResponse> forwardThroughCache(ForwardRequest request) {
+        if (!responseCache.isCacheable(request)) {
+            return forwardUpstream(request);
+        }
+
+        String cacheKey = responseCache.keyFor(request);
+        ForwardResponseCache.CachedResponse cached = responseCache.get(cacheKey, request);
+        if (cached != null && cached.isFresh()) {
+            log.debug("Serving cached response for URL: {}", request.getUrl());
+            proxyManager.incrementSuccessfulRequests();
+            return Mono.just(responseCache.serveHit(cached));
+        }
+
+        responseCache.recordMiss();
+        if (cached != null) {
+            // Stale but revalidatable: let the upstream answer 304 instead of resending the body
+            return forwardUpstream(responseCache.conditionalRequest(request, cached))
+                    .map(response -> {
+                        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+                            return responseCache.revalidated(cacheKey, cached, response);
+                        }
+                        responseCache.store(cacheKey, request, response);
+                        return response;
+                    });
+        }
+
+        return forwardUpstream(request)
+                .doOnNext(response -> responseCache.store(cacheKey, request, response));
+    }
+
+    private Mono<ForwardResponse> forwardUpstream(ForwardRequest request) {
+        long hostWaitNanos = rateLimiter.reserveHost(request.getUrl());
+        if (hostWaitNanos < 0) {
+            ForwardResponse response = new ForwardResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setBody("Rate limit for target host exceeded, try again later");
+            return Mono.just(response);
+        }
+        if (hostWaitNanos > 0) {
+            return Mono.delay(Duration.ofNanos(hostWaitNanos)).then(Mono.defer(() -> forwardWithPermit(request)));
+        }
+        return forwardWithPermit(request);
+    }
+
+    private Mono<ForwardResponse> forwardWithPermit(ForwardRequest request) {
+        RequestPriority priority = RequestPriority.of(request);
+        if (!concurrencyLimiter.tryAcquire(priority)) {
+            log.warn("Shedding {} priority request to URL {}: too many forwards in flight", priority, request.getUrl());
+            proxyManager.incrementRejectedRequests();
+            // Nothing was sent, so shedding under overload must not also drain the host's budget
+            rateLimiter.refundHost(request.getUrl());
+            return Mono.just(concurrencyLimiter.rejection());
+        }
+
+        long startTime = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ForwardContext context = new ForwardContext(request, config.getRequestDeadlineMillis());
+        return doForwardRequest(request, context)
+                .timeout(Duration.ofMillis(Math.max(0, context.remainingMillis())), Mono.fromSupplier(() -> {
+                    log.error("Request deadline exceeded for URL: {}", request.getUrl());
+                    timedOut.set(true);
+                    proxyManager.incrementFailedRequests();
+                    ForwardResponse response = new ForwardResponse();
+                    response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+                    response.setBody("Request deadline exceeded before any attempt succeeded");
+                    return response;
+                }))
+                .doOnEach(signal -> {
+                    // Cancelled forwards never reach here and release below without feeding the limit
+                    if (signal.hasValue()) {
+                        released.set(true);
+                        // Only running out of time says upstream is congested; a 504 relayed from the target does not
+                        concurrencyLimiter.release(startTime, timedOut.get() || context.attemptTimedOut);
+                    }
+                })
+                .doFinally(signal -> {
+                    metrics.recordTarget(request.getUrl(), System.nanoTime() - startTime);
+                    if (released.compareAndSet(false, true)) {
+                        concurrencyLimiter.release();
+                    }
+                });
+    }
+
+    private Mono<ForwardResponse> doForwardRequest(ForwardRequest request, ForwardContext context) {
+        log.info("Forwarding request to URL: {}", request.getUrl());
+        retryBudget.onRequest();
+
+        // A direct connection cannot satisfy routing constraints, so constrained requests never fall back to one
+        boolean constrained = request.getRouting() != null && request.getRouting().isConstrained();
+
+        Mono<ForwardResponse> response;
+        if (constrained) {
+            response = tryWithProxies(request, context, 0, new HashSet<>());
+        } else if (proxyManager.hasHealthyProxies()) {
+            response = tryWithProxies(request, context, 0, new HashSet<>())
+                    .switchIfEmpty(Mono.defer(() -> {
+                        // Going direct is one more try, so it needs the same budget as any retry
+                        if (!context.canContinue() || !retryBudget.tryRetry()) {
+                            return Mono.empty();
+                        }
+                        log.warn("All proxy attempts failed, falling back to direct connection");
+                        return fallbackToDirect(request);
+                    }));
+        } else {
+            log.warn("No proxies available, using direct connection");
+            response = fallbackToDirect(request);
+        }
+
+        return response
+                .doOnNext(result -> proxyManager.incrementSuccessfulRequests())
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.error("Failed to forward request to URL: {}", request.getUrl());
+                    proxyManager.incrementFailedRequests();
+                    ForwardResponse failure = new ForwardResponse();
+                    if (context.isExpired()) {
+                        failure.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+                        failure.setBody("Request deadline exceeded before any attempt succeeded");
+                    } else if (context.abandoned) {
+                        // A non-idempotent request may already have reached the target, so it was not resent
+                        failure.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+                        failure.setBody("Upstream did not answer and the request is not safe to retry");
+                    } else if (constrained) {
+                        failure.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+                        failure.setBody("No healthy proxy matching the routing constraints answered");
+                    } else {
+                        failure.setStatusCode(500);
+                        failure.setBody("Failed to forward request after all attempts");
+                    }
+                    return failure;
+                }))
+                .onErrorResume(ProxyThrottledException.class, e -> {
+                    // Going direct would bypass the per-proxy limits and expose our own address to the target
+                    log.warn("Rejecting request to URL {}: every proxy is throttled", request.getUrl());
+                    proxyManager.incrementRejectedRequests();
+                    return Mono.just(rateLimiter.proxyThrottledResponse(e));
+                });
+    }
+
+    private Mono<ForwardResponse> fallbackToDirect(ForwardRequest request) {
+        alertService.alertFallbackToDirect(request.getUrl());
+        metrics.directFallback();
+        return makeDirectRequest(request)
+                .doOnNext(response -> {
+                    response.setUsedDirectConnection(true);
+                    proxyManager.incrementDirectRequests();
+                });
+    }
+
+    private Mono<ForwardResponse> tryWithProxies(ForwardRequest request, ForwardContext context, int proxyAttempts,
+                                                 Set<String> triedAddresses) {
+        if (proxyAttempts >= config.getMaxProxyAttempts()) {
+            return Mono.empty();
+        }
+        if (proxyAttempts > 0 && !mayRetry(context)) {
+            return Mono.empty();
+        }
+
+        long maxQueueMillis = config.getRateLimitMode() == ProxyConfigProperties.RateLimitMode.QUEUE
+                ? config.getRateLimitMaxQueueMillis()
+                : 0;
+        return nextProxy(request, triedAddresses, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxQueueMillis))
+                .flatMap(proxyInfo -> {
+                    String proxyAddress = proxyInfo.getAddress();
+                    log.info("Attempting request with proxy: {}", proxyAddress);
+
+                    return tryWithSingleProxy(request, context, proxyInfo)
+                            .doOnNext(response -> log.info("Request successful with proxy: {}", proxyAddress))
+                            .switchIfEmpty(Mono.defer(() -> {
+                                log.warn("Proxy attempt {} failed. Moving to next proxy.", proxyAttempts + 1);
+                                triedAddresses.add(proxyAddress);
+                                return tryWithProxies(request, context, proxyAttempts + 1, triedAddresses);
+                            }));
+                });
+    }
+
+    /**
+     * Non-blocking counterpart of {@link ProxyManagerService#awaitProxy}: while every candidate is throttled,
+     * selects again after a timer until the queue deadline passes, then fails with the throttling.
+     */
+    private Mono<ProxyInfo> nextProxy(ForwardRequest request, Set<String> triedAddresses, long queueDeadlineNanos) {
+        return Mono.defer(() -> {
+            try {
+                ProxyInfo proxyInfo = proxyManager.getNextHealthyProxy(request, triedAddresses);
+                if (proxyInfo == null) {
+                    log.warn("No healthy proxies available");
+                    return Mono.empty();
+                }
+                return Mono.just(proxyInfo);
+            } catch (ProxyThrottledException e) {
+                long remainingNanos = queueDeadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return Mono.error(e);
+                }
+                long waitNanos = Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(e.getRetryAfterMillis()));
+                return Mono.delay(Duration.ofNanos(waitNanos))
+                        .then(nextProxy(request, triedAddresses, queueDeadlineNanos));
+            }
+        });
+    }
+
+    private Mono<ForwardResponse> tryWithSingleProxy(ForwardRequest request, ForwardContext context, ProxyInfo proxyInfo) {
+        ProxyPerformance performance = performanceTracker.get(proxyInfo);
+        if (config.getMaxRetriesPerProxy() <= 0) {
+            performance.requestFinished();
+            return Mono.empty();
+        }
+
+        // Counted in flight since selection, until every retry through this proxy is over
+        return clientRegistry.proxyWebClient(proxyInfo)
+                .flatMap(webClient -> attempt(webClient, request, context, proxyInfo, performance, 0))
+                .doFinally(signal -> performance.requestFinished());
+    }
+
+    /**
+     * One try through the proxy, with the same failure handling as {@link ForwardProxyService}: the failure's
+     * kind decides whether to relay it, rotate to another proxy, or back off and retry through this one.
+     */
+    private Mono<ForwardResponse> attempt(WebClient webClient, ForwardRequest request, ForwardContext context,
+                                          ProxyInfo proxyInfo, ProxyPerformance performance, int retries) {
+        return Mono.defer(() -> {
+            long attemptTimeout = ForwardProxyService.attemptTimeoutMillis(config, performance, context.remainingMillis());
+            if (attemptTimeout <= 0) {
+                return Mono.empty();
+            }
+
+            long startTime = System.nanoTime();
+            return exchange(webClient, request)
+                    .timeout(Duration.ofMillis(attemptTimeout))
+                    .map(entity -> {
+                        performance.recordSuccess(elapsedMillis(startTime));
+                        metrics.recordAttempt(proxyInfo.getAddress(), "success", System.nanoTime() - startTime);
+                        return convertResponse(entity, proxyInfo);
+                    })
+                    .onErrorResume(e -> {
+                        if (context.isExpired()) {
+                            // Cut short by the request deadline rather than by the proxy
+                            return Mono.empty();
+                        }
+                        return onAttemptFailure(webClient, request, context, proxyInfo, performance, retries, e, startTime);
+                    });
+        });
+    }
+
+    private Mono<ForwardResponse> onAttemptFailure(WebClient webClient, ForwardRequest request, ForwardContext context,
+                                                   ProxyInfo proxyInfo, ProxyPerformance performance, int retries,
+                                                   Throwable e, long startTime) {
+        FailureKind failure = classify(e);
+        if (failure == FailureKind.TIMEOUT) {
+            context.attemptTimedOut = true;
+        }
+        log.warn("Request with proxy {} failed (attempt {}, {}): {}",
+                proxyInfo.getAddress(), retries + 1, failure, e.getMessage());
+        metrics.recordAttempt(proxyInfo.getAddress(), failure.name(), System.nanoTime() - startTime);
+
+        if (failure == FailureKind.TARGET_ERROR) {
+            // The proxy relayed the target's own answer, which another proxy would not change
+            performance.recordSuccess(elapsedMillis(startTime));
+            return Mono.just(convertErrorResponse((WebClientResponseException) e, proxyInfo));
+        }
+        performance.recordFailure(elapsedMillis(startTime));
+
+        if (!context.idempotent && (failure == FailureKind.TIMEOUT || failure == FailureKind.OTHER)) {
+            // The target may already have acted on it, so it must not be sent again
+            context.abandoned = true;
+            return Mono.empty();
+        }
+
+        switch (failure) {
+            case CONNECT -> {
+                proxyManager.markProxyUnhealthy(proxyInfo);
+                return Mono.empty();
+            }
+            case TIMEOUT, PROXY_REJECTED, THROTTLED -> {
+                // Retrying through the same proxy would most likely meet the same fate
+                return Mono.empty();
+            }
+            default -> {
+            }
+        }
+
+        if (retries + 1 >= config.getMaxRetriesPerProxy()) {
+            if (e instanceof WebClientRequestException) {
+                // This is likely a proxy connectivity issue
+                proxyManager.markProxyUnhealthy(proxyInfo);
+            }
+            return Mono.empty();
+        }
+        if (!mayRetry(context)) {
+            return Mono.empty();
+        }
+        long delay = ForwardProxyService.backoffMillis(config, retries + 1);
+        if (delay >= context.remainingMillis()) {
+            return Mono.empty();
+        }
+        return Mono.delay(Duration.ofMillis(delay))
+                .then(attempt(webClient, request, context, proxyInfo, performance, retries + 1));
+    }
+
+    private boolean mayRetry(ForwardContext context) {
+        if (context.canContinue() && retryBudget.tryRetry()) {
+            metrics.retry();
+            return true;
+        }
+        return false;
+    }
+
+    private static FailureKind classify(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return FailureKind.TIMEOUT;
+        }
+        if (e instanceof WebClientResponseException responseError) {
+            return FailureKind.ofStatus(responseError.getStatusCode().value());
+        }
+        return FailureKind.ofCause(e);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private Mono<ForwardResponse> makeDirectRequest(ForwardRequest request) {
+        return Mono.defer(() -> exchange(clientRegistry.getDirectWebClient(), request))
+                .map(entity -> convertResponse(entity, null))
+                // Handle HTTP error responses
+                .onErrorResume(WebClientResponseException.class, e -> Mono.just(convertErrorResponse(e, null)))
+                .onErrorResume(e -> {
+                    log.error("Direct request failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<ResponseEntity<String>> exchange(WebClient webClient, ForwardRequest request) {
+        HttpHeaders headers = ForwardProxyService.convertHeaders(request.getHeaders());
+        if (!headers.containsKey(HttpHeaders.CONTENT_TYPE)) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+
+        WebClient.RequestBodySpec bodySpec = webClient
+                .method(HttpMethod.valueOf(request.getMethod().toUpperCase()))
+                .uri(request.getUrl())
+                .headers(target -> target.addAll(headers));
+        WebClient.RequestHeadersSpec<?> spec = request.getBody() != null ? bodySpec.bodyValue(request.getBody()) : bodySpec;
+        return spec.retrieve().toEntity(String.class);
+    }
+
+    private ForwardResponse convertErrorResponse(WebClientResponseException e, ProxyInfo proxyInfo) {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(e.getStatusCode().value());
+        response.setBody(e.getResponseBodyAsString());
+        response.setHeaders(ForwardProxyService.convertHeaders(e.getHeaders()));
+        response.setUsedDirectConnection(proxyInfo == null);
+        if (proxyInfo != null) {
+            response.setProxyUsed(proxyInfo.getAddress());
+        }
+        return response;
+    }
+
+    private ForwardResponse convertResponse(ResponseEntity<String> responseEntity, ProxyInfo proxyInfo) {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(responseEntity.getStatusCode().value());
+        response.setBody(responseEntity.getBody());
+        response.setHeaders(ForwardProxyService.convertHeaders(responseEntity.getHeaders()));
+        response.setUsedDirectConnection(proxyInfo == null);
+        if (proxyInfo != null) {
+            response.setProxyUsed(proxyInfo.getAddress());
+        }
+        return response;
+    }
+}
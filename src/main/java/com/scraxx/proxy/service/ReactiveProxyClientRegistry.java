@@ -0,0 +1,147 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ProxyInfo;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.ProxyProvider;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reactive counterpart of {@link ProxyClientRegistry}: one WebClient per upstream proxy plus one for direct
+ * requests, each backed by its own Reactor Netty connection pool sharing the default event loops.
+ */
+@Component
+@ConditionalOnProperty(prefix = "proxy", name = "engine", havingValue = "reactive")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveProxyClientRegistry {
+    private final ProxyConfigProperties config;
+    private final WebClient.Builder webClientBuilder;
+    private final CachingDnsResolver dnsResolver;
+
+    private final Map<String, PooledWebClient> proxyClients = new ConcurrentHashMap<>();
+    private volatile PooledWebClient directClient;
+
+    /**
+     * The proxy's client, once the proxy's hostname is in the DNS cache. Netty connects to the address as given
+     * and never resolves a proxy itself, so the lookup has to finish before the connect, off the event loop.
+     */
+    public Mono<WebClient> proxyWebClient(ProxyInfo proxyInfo) {
+        WebClient webClient = proxyClients.computeIfAbsent(proxyInfo.getAddress(), key -> createProxyClient(proxyInfo)).webClient();
+        // A host that does not resolve still gets its client; the connect then fails like for any unreachable proxy
+        return Mono.fromFuture(dnsResolver.resolveAsync(proxyInfo.getIp()))
+                .onErrorResume(UnknownHostException.class, e -> Mono.empty())
+                .thenReturn(webClient);
+    }
+
+    public WebClient getDirectWebClient() {
+        PooledWebClient client = directClient;
+        if (client == null) {
+            synchronized (this) {
+                client = directClient;
+                if (client == null) {
+                    ConnectionProvider provider = createConnectionProvider("direct");
+                    // Only direct requests resolve targets themselves; proxies resolve the targets sent through them
+                    client = createClient(provider, HttpClient.create(provider).resolver(dnsResolver.nettyResolverGroup()));
+                    directClient = client;
+                }
+            }
+        }
+        return client.webClient();
+    }
+
+    @EventListener
+    public void onProxyListRefreshed(ProxyListRefreshedEvent event) {
+        for (ProxyInfo proxy : event.getRemovedProxies()) {
+            PooledWebClient client = proxyClients.remove(proxy.getAddress());
+            if (client != null) {
+                log.debug("Disposing reactive client for removed proxy {}", proxy.getAddress());
+                client.connectionProvider().disposeLater().subscribe();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        proxyClients.values().forEach(client -> client.connectionProvider().dispose());
+        proxyClients.clear();
+        if (directClient != null) {
+            directClient.connectionProvider().dispose();
+            directClient = null;
+        }
+    }
+
+    private PooledWebClient createProxyClient(ProxyInfo proxyInfo) {
+        log.debug("Creating reactive client for proxy {}", proxyInfo.getAddress());
+        ConnectionProvider provider = createConnectionProvider("proxy-" + proxyInfo.getAddress());
+        String host = proxyInfo.getIp();
+        int port = Integer.parseInt(proxyInfo.getPort());
+        // host() would resolve the proxy through the JDK on every connect; the supplier takes it from the cache
+        HttpClient httpClient = HttpClient.create(provider)
+                .proxy(spec -> {
+                    ProxyProvider.Builder builder = config.isDnsCacheEnabled()
+                            ? spec.type(ProxyProvider.Proxy.HTTP).socketAddress(() -> proxyAddress(host, port))
+                            : spec.type(ProxyProvider.Proxy.HTTP).host(host).port(port);
+                    builder.connectTimeoutMillis(config.getConnectionTimeoutSeconds() * 1000L);
+                });
+        return createClient(provider, httpClient);
+    }
+
+    /**
+     * Called on the event loop for every connect, so it only reads the cache, which {@link #proxyWebClient} has
+     * filled. Should the answer expire in between, the address is left unresolved and that one connect fails.
+     */
+    private InetSocketAddress proxyAddress(String host, int port) {
+        try {
+            InetAddress[] addresses = dnsResolver.resolveIfCached(host);
+            return addresses != null
+                    ? new InetSocketAddress(addresses[0], port)
+                    : InetSocketAddress.createUnresolved(host, port);
+        } catch (UnknownHostException e) {
+            // Left unresolved, the connect attempt fails and the proxy is treated like any unreachable one
+            return InetSocketAddress.createUnresolved(host, port);
+        }
+    }
+
+    private ConnectionProvider createConnectionProvider(String name) {
+        Duration idleTime = Duration.ofSeconds(config.getIdleConnectionEvictionSeconds());
+        return ConnectionProvider.builder(name)
+                .maxConnections(config.getMaxConnectionsPerRoute())
+                .maxIdleTime(idleTime)
+                .evictInBackground(idleTime)
+                .build();
+    }
+
+    private PooledWebClient createClient(ConnectionProvider provider, HttpClient httpClient) {
+        HttpClient configured = httpClient
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectionTimeoutSeconds() * 1000)
+                .responseTimeout(Duration.ofSeconds(config.getReadTimeoutSeconds()));
+
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(configured))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(config.getMaxBufferedBodyBytes()))
+                .build();
+        return new PooledWebClient(provider, webClient);
+    }
+
+    private record PooledWebClient(ConnectionProvider connectionProvider, WebClient webClient) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Single-flight layer for idempotent forwards: while a request is in flight upstream, identical requests
+ * (same method, URL and significant headers) wait for its result instead of sending their own. Each waiter
+ * gets its own copy of the shared response. Once maxCoalescedWaiters are waiting, further callers go upstream
+ * on their own rather than piling onto one slow request.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RequestCoalescer {
+    // Headers that change what the upstream answers, so requests differing in them are never merged
+    private static final List<String> CONDITIONAL_HEADERS = List.of(
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_MATCH,
+            HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.RANGE);
+
+    private final ProxyConfigProperties config;
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalescedRequests = new LongAdder();
+
+    public boolean isCoalescable(ForwardRequest request) {
+        return config.isCoalescingEnabled()
+                && request.getMethod() != null
+                && config.getCoalescingMethods().stream().anyMatch(method -> method.equalsIgnoreCase(request.getMethod()));
+    }
+
+    /**
+     * Runs the request through the upstream function, or joins an identical request that is already running.
+     * A waiter gives up with 504 once its own deadline passes, and goes upstream itself when the leader was
+     * refused locally, since a shed or rate-limited leader says nothing about the waiter's own chances.
+     */
+    public ForwardResponse execute(ForwardRequest request, Function<ForwardRequest, ForwardResponse> upstream) {
+        String key = keyFor(request);
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            if (existing.waiters.incrementAndGet() <= config.getMaxCoalescedWaiters()) {
+                coalescedRequests.increment();
+                log.debug("Joining in-flight request to URL: {}", request.getUrl());
+                ForwardResponse shared = await(existing, request);
+                if (shared == null) {
+                    return deadlineExceeded();
+                }
+                return refusedLocally(shared) ? upstream.apply(request) : copyOf(shared);
+            }
+            existing.waiters.decrementAndGet();
+            return upstream.apply(request);
+        }
+
+        try {
+            ForwardResponse response = upstream.apply(request);
+            flight.result.complete(response);
+            return copyOf(response);
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getCoalescedRequests() {
+        return coalescedRequests.sum();
+    }
+
+    private String keyFor(ForwardRequest request) {
+        HttpHeaders headers = ForwardProxyService.convertHeaders(request.getHeaders());
+        StringBuilder key = new StringBuilder(request.getMethod().toUpperCase(Locale.ROOT)).append(' ').append(request.getUrl());
+        appendHeaders(key, headers, config.getCoalescingKeyHeaders());
+        appendHeaders(key, headers, CONDITIONAL_HEADERS);
+        if (request.getRouting() != null && request.getRouting().isConstrained()) {
+            key.append('\n').append(request.getRouting());
+        }
+        if (request.getSessionKey() != null) {
+            key.append("\nsession:").append(request.getSessionKey());
+        }
+        return key.toString();
+    }
+
+    private static void appendHeaders(StringBuilder key, HttpHeaders headers, List<String> names) {
+        for (String name : names) {
+            List<String> values = headers.get(name);
+            if (values != null) {
+                key.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':').append(String.join(",", values));
+            }
+        }
+    }
+
+    /**
+     * Waits for the leader's response within this caller's own deadline; null if that passes first.
+     */
+    private ForwardResponse await(Flight flight, ForwardRequest request) {
+        long remainingMillis = new ForwardContext(request, config.getRequestDeadlineMillis()).remainingMillis();
+        try {
+            return flight.result.get(Math.max(0, remainingMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Deadline passed while waiting for in-flight request to URL: {}", request.getUrl());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Whether the response is a refusal issued here rather than an answer from upstream: a shed, host rate limit
+     * or throttled-proxy refusal, none of which went through a proxy or direct connection.
+     */
+    private static boolean refusedLocally(ForwardResponse response) {
+        int status = response.getStatusCode();
+        return (status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value())
+                && response.getProxyUsed() == null
+                && !response.isUsedDirectConnection();
+    }
+
+    private static ForwardResponse deadlineExceeded() {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT.value());
+        response.setBody("Request deadline exceeded while waiting for an identical in-flight request");
+        return response;
+    }
+
+    private static ForwardResponse copyOf(ForwardResponse shared) {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(shared.getStatusCode());
+        response.setBody(shared.getBody());
+        response.setHeaders(shared.getHeaders() != null ? new ArrayList<>(shared.getHeaders()) : null);
+        response.setUsedDirectConnection(shared.isUsedDirectConnection());
+        response.setProxyUsed(shared.getProxyUsed());
+        response.setServedFromCache(shared.isServedFromCache());
+        return response;
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<ForwardResponse> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+}
@@ -0,0 +1,64 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global budget that keeps retries to a fraction of traffic. Every forward deposits retryBudgetPercent of a
+ * retry and every retry withdraws a whole one, with a small per-second allowance so quiet periods can still
+ * retry. When upstreams fail broadly the budget runs dry and requests fail fast instead of multiplying load.
+ */
+@Component
+public class RetryBudget {
+    // Balance is kept in thousandths of a retry so that fractional deposits add up exactly
+    private static final long UNIT = 1000;
+
+    private final ProxyConfigProperties config;
+    private final AtomicLong balance;
+    private final LongAdder retriesDenied = new LongAdder();
+
+    public RetryBudget(ProxyConfigProperties config) {
+        this.config = config;
+        this.balance = new AtomicLong(maxBalance());
+    }
+
+    public void onRequest() {
+        deposit((long) (config.getRetryBudgetPercent() * UNIT / 100));
+    }
+
+    public boolean tryRetry() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                retriesDenied.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.SECONDS)
+    public void replenish() {
+        deposit(config.getRetryBudgetMinRetriesPerSecond() * UNIT);
+    }
+
+    public long getRetriesDenied() {
+        return retriesDenied.sum();
+    }
+
+    private void deposit(long amount) {
+        long max = maxBalance();
+        balance.getAndUpdate(current -> Math.min(max, current + amount));
+    }
+
+    private long maxBalance() {
+        return config.getRetryBudgetMaxRetries() * UNIT;
+    }
+}
@@ -0,0 +1,90 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ProxyInfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Consistent-hash ring over a set of proxies, each placed at several virtual points. A session maps to the first
+ * proxy clockwise from its own hash, so when a proxy joins or leaves only the sessions next to its points move.
+ */
+final class SessionRing {
+    private final long[] points;
+    private final ProxyInfo[] owners;
+    private final int proxyCount;
+
+    SessionRing(ProxyInfo[] proxies, int virtualNodes) {
+        int pointsPerProxy = Math.max(1, virtualNodes);
+        Point[] ring = new Point[proxies.length * pointsPerProxy];
+        for (int i = 0; i < proxies.length; i++) {
+            String address = proxies[i].getAddress();
+            for (int v = 0; v < pointsPerProxy; v++) {
+                ring[i * pointsPerProxy + v] = new Point(hash(address + '#' + v), proxies[i]);
+            }
+        }
+        Arrays.sort(ring, Comparator.comparingLong(Point::hash));
+
+        this.points = new long[ring.length];
+        this.owners = new ProxyInfo[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i].hash();
+            owners[i] = ring[i].owner();
+        }
+        this.proxyCount = proxies.length;
+    }
+
+    /**
+     * Walks clockwise from the session's position and returns the first proxy the predicate accepts, or null
+     * when it accepts none. Each proxy is offered at most once.
+     */
+    ProxyInfo select(String sessionKey, Predicate<ProxyInfo> accept) {
+        if (proxyCount == 0) {
+            return null;
+        }
+
+        int start = Arrays.binarySearch(points, hash(sessionKey));
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        ProxyInfo first = owners[start % owners.length];
+        if (accept.test(first)) {
+            return first;
+        }
+
+        Set<ProxyInfo> offered = Collections.newSetFromMap(new IdentityHashMap<>());
+        offered.add(first);
+        for (int i = 1; i < owners.length && offered.size() < proxyCount; i++) {
+            ProxyInfo candidate = owners[(start + i) % owners.length];
+            if (offered.add(candidate) && accept.test(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 64-bit FNV-1a, finished with MurmurHash3's mixer so that similar keys spread evenly over the ring.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record Point(long hash, ProxyInfo owner) {
+    }
+}
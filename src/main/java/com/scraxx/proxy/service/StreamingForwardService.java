@@ -0,0 +1,346 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards a raw HTTP exchange without buffering either body: the caller's body is streamed to the upstream
+ * and the upstream body is piped back through a fixed-size buffer, so memory per request stays constant and
+ * binary or chunked content passes through untouched. Upstream status and headers become the response's own.
+ * <p>
+ * Proxies are rotated as in {@link ForwardProxyService}, but only while the caller's body has not been read;
+ * once it has been sent it cannot be replayed through another proxy.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StreamingForwardService {
+    public static final String FORWARD_URL_HEADER = "X-Forward-Url";
+    public static final String PROXY_USED_HEADER = "X-Proxy-Used";
+    public static final String DIRECT_CONNECTION_HEADER = "X-Direct-Connection";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Hop-by-hop headers describe a single connection and must not be forwarded (RFC 9110, section 7.6.1)
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "proxy-connection",
+            "te", "trailer", "transfer-encoding", "upgrade", "host");
+
+    private final ProxyManagerService proxyManager;
+    private final ProxyConfigProperties config;
+    private final AlertService alertService;
+    private final ProxyClientRegistry clientRegistry;
+    private final ForwardConcurrencyLimiter concurrencyLimiter;
+    private final ProxyPerformanceTracker performanceTracker;
+    private final ForwardRateLimiter rateLimiter;
+    private final RetryBudget retryBudget;
+    private final ForwardMetrics metrics;
+
+    public void streamRequest(String url, ServerHttpRequest request, ServerHttpResponse response) throws IOException {
+        proxyManager.incrementTotalRequests();
+
+        long startTime = System.nanoTime();
+        ForwardResponse outcome = streamWithPermit(url, request, response);
+        metrics.recordForward(outcome, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Streams the exchange once the host and forward permits are granted.
+     *
+     * @return status and route of what was sent to the caller, without the body, for the forward metrics
+     */
+    private ForwardResponse streamWithPermit(String url, ServerHttpRequest request, ServerHttpResponse response)
+            throws IOException {
+        if (!rateLimiter.acquireHost(url)) {
+            return writeError(response, HttpStatus.TOO_MANY_REQUESTS, "Rate limit for target host exceeded, try again later");
+        }
+
+        if (!concurrencyLimiter.tryAcquire()) {
+            log.warn("Rejecting streamed request to URL {}: too many forwards in flight", url);
+            proxyManager.incrementRejectedRequests();
+            rateLimiter.refundHost(url);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(config.getShedRetryAfterSeconds()));
+            return writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent forward requests, try again later");
+        }
+
+        ForwardContext context = new ForwardContext(request.getMethod().name(), config.getRequestDeadlineMillis());
+        long startTime = System.nanoTime();
+        ForwardResponse outcome = null;
+        try {
+            outcome = doStreamRequest(URI.create(url), request, response, context);
+            return outcome;
+        } finally {
+            metrics.recordTarget(url, System.nanoTime() - startTime);
+            if (outcome != null) {
+                concurrencyLimiter.release(startTime, context.isExpired() || context.attemptTimedOut);
+            } else {
+                concurrencyLimiter.release();
+            }
+        }
+    }
+
+    private ForwardResponse doStreamRequest(URI uri, ServerHttpRequest request, ServerHttpResponse response,
+                                            ForwardContext context) throws IOException {
+        log.info("Streaming request to URL: {}", uri);
+        retryBudget.onRequest();
+
+        HttpHeaders headers = forwardableHeaders(request.getHeaders());
+        TrackingInputStream body = new TrackingInputStream(request.getBody());
+        boolean hasBody = request.getHeaders().getContentLength() > 0
+                || request.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING);
+
+        ProxyInfo proxyUsed = null;
+        ClientHttpResponse upstream = null;
+
+        String sessionKey = proxyManager.sessionKeyOf(
+                request.getHeaders().getFirst(ProxyManagerService.SESSION_HEADER), uri.toString());
+        Set<String> triedAddresses = new HashSet<>();
+
+        int proxyAttempts = 0;
+        while (upstream == null && !body.isTouched() && proxyAttempts < config.getMaxProxyAttempts()) {
+            if (proxyAttempts > 0 && !mayRetry(context)) {
+                break;
+            }
+
+            ProxyInfo proxyInfo;
+            try {
+                proxyInfo = proxyManager.awaitProxy(
+                        () -> proxyManager.getNextHealthyProxy(null, sessionKey, triedAddresses), context.remainingMillis());
+            } catch (ProxyThrottledException e) {
+                // Going direct would bypass the per-proxy limits and expose our own address to the target
+                log.warn("Rejecting streamed request to URL {}: every proxy is throttled", uri);
+                proxyManager.incrementRejectedRequests();
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+                return writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "Every proxy is at its rate or in-flight limit, try again later");
+            }
+            if (proxyInfo == null) {
+                log.warn("No healthy proxies available");
+                break;
+            }
+
+            proxyAttempts++;
+            upstream = tryWithSingleProxy(uri, request.getMethod(), headers, hasBody ? body : null, proxyInfo, context);
+            if (upstream != null) {
+                proxyUsed = proxyInfo;
+            } else {
+                triedAddresses.add(proxyInfo.getAddress());
+            }
+        }
+
+        // Going direct after failed proxies is one more try, so it needs the same budget as any retry
+        boolean mayGoDirect = proxyAttempts == 0 || (context.canContinue() && retryBudget.tryRetry());
+        if (upstream == null && !body.isTouched() && mayGoDirect) {
+            log.warn("All proxy attempts failed, falling back to direct connection");
+            alertService.alertFallbackToDirect(uri.toString());
+            metrics.directFallback();
+            try {
+                upstream = execute(clientRegistry.getDirectRequestFactory(), uri, request.getMethod(), headers,
+                        hasBody ? body : null);
+                proxyManager.incrementDirectRequests();
+            } catch (IOException e) {
+                log.error("Direct request failed: {}", e.getMessage());
+            }
+        }
+
+        if (upstream == null) {
+            log.error("Failed to stream request to URL: {}", uri);
+            proxyManager.incrementFailedRequests();
+            if (context.isExpired() || context.abandoned) {
+                return writeError(response, HttpStatus.GATEWAY_TIMEOUT, "Upstream did not answer in time and the request was not resent");
+            }
+            return writeError(response, HttpStatus.BAD_GATEWAY, "Failed to forward request after all attempts");
+        }
+
+        try (ClientHttpResponse upstreamResponse = upstream) {
+            ForwardResponse outcome = copyResponse(upstreamResponse, proxyUsed, response);
+            proxyManager.incrementSuccessfulRequests();
+            return outcome;
+        }
+    }
+
+    /**
+     * One try through the proxy. Failures are classified as in {@link ForwardProxyService}: only an unreachable
+     * or refusing proxy is marked unhealthy, and a gateway answer rotates to another proxy as long as the caller's
+     * body has not been consumed.
+     */
+    private ClientHttpResponse tryWithSingleProxy(URI uri, HttpMethod method, HttpHeaders headers,
+                                                  TrackingInputStream body, ProxyInfo proxyInfo, ForwardContext context) {
+        ProxyPerformance performance = performanceTracker.get(proxyInfo);
+        long startTime = System.nanoTime();
+        // Counted in flight since selection; released below whatever happens
+        try {
+            log.info("Attempting streamed request with proxy: {}", proxyInfo.getAddress());
+            ClientHttpResponse upstream = execute(clientRegistry.getProxyRequestFactory(proxyInfo), uri, method, headers, body);
+
+            int status = upstream.getStatusCode().value();
+            FailureKind failure = FailureKind.ofStatus(status);
+            metrics.recordAttempt(proxyInfo.getAddress(),
+                    failure == FailureKind.TARGET_ERROR ? "success" : failure.name(), System.nanoTime() - startTime);
+            if (failure == FailureKind.TARGET_ERROR) {
+                performance.recordSuccess(elapsedMillis(startTime));
+                return upstream;
+            }
+
+            performance.recordFailure(elapsedMillis(startTime));
+            if (failure == FailureKind.PROXY_REJECTED) {
+                proxyManager.markProxyUnhealthy(proxyInfo);
+            }
+            if (body != null && body.isTouched()) {
+                // The body is gone, so this answer is the only one the caller can get
+                return upstream;
+            }
+            log.warn("Proxy {} answered {} ({}), moving to next proxy", proxyInfo.getAddress(), status, failure);
+            upstream.close();
+            return null;
+        } catch (IOException e) {
+            FailureKind failure = FailureKind.ofCause(e);
+            log.warn("Streamed request with proxy {} failed ({}): {}", proxyInfo.getAddress(), failure, e.getMessage());
+            metrics.recordAttempt(proxyInfo.getAddress(), failure.name(), System.nanoTime() - startTime);
+            performance.recordFailure(elapsedMillis(startTime));
+            if (failure == FailureKind.TIMEOUT) {
+                context.attemptTimedOut = true;
+            }
+            if (failure == FailureKind.CONNECT) {
+                proxyManager.markProxyUnhealthy(proxyInfo);
+            } else if (!context.idempotent) {
+                // The target may already have acted on it, so it must not be sent again
+                context.abandoned = true;
+            }
+            return null;
+        } finally {
+            performance.requestFinished();
+        }
+    }
+
+    private boolean mayRetry(ForwardContext context) {
+        if (context.canContinue() && retryBudget.tryRetry()) {
+            metrics.retry();
+            return true;
+        }
+        return false;
+    }
+
+    private ClientHttpResponse execute(ClientHttpRequestFactory requestFactory, URI uri, HttpMethod method,
+                                       HttpHeaders headers, InputStream body) throws IOException {
+        ClientHttpRequest upstreamRequest = requestFactory.createRequest(uri, method);
+        upstreamRequest.getHeaders().putAll(headers);
+        if (body != null && upstreamRequest instanceof StreamingHttpOutputMessage streaming) {
+            streaming.setBody(outputStream -> copy(body, outputStream, false));
+        }
+        return upstreamRequest.execute();
+    }
+
+    private ForwardResponse copyResponse(ClientHttpResponse upstream, ProxyInfo proxyUsed, ServerHttpResponse response)
+            throws IOException {
+        response.setStatusCode(upstream.getStatusCode());
+        response.getHeaders().putAll(forwardableHeaders(upstream.getHeaders()));
+        if (proxyUsed != null) {
+            response.getHeaders().set(PROXY_USED_HEADER, proxyUsed.getAddress());
+        }
+        response.getHeaders().set(DIRECT_CONNECTION_HEADER, String.valueOf(proxyUsed == null));
+
+        copy(upstream.getBody(), response.getBody(), true);
+        response.flush();
+        return outcome(upstream.getStatusCode().value(), proxyUsed);
+    }
+
+    /**
+     * Copies through a fixed buffer. When flushing, anything already read is pushed to the client as soon as
+     * the upstream pauses, so slow or chunked responses are relayed as they arrive.
+     */
+    private static void copy(InputStream in, OutputStream out, boolean flushOnPause) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (flushOnPause && in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    private static HttpHeaders forwardableHeaders(HttpHeaders source) {
+        HttpHeaders headers = new HttpHeaders();
+        source.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase()) && !FORWARD_URL_HEADER.equalsIgnoreCase(name)
+                    && !ProxyManagerService.SESSION_HEADER.equalsIgnoreCase(name)) {
+                headers.addAll(name, values);
+            }
+        });
+        return headers;
+    }
+
+    private static ForwardResponse writeError(ServerHttpResponse response, HttpStatus status, String message)
+            throws IOException {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        response.getBody().write(message.getBytes(StandardCharsets.UTF_8));
+        response.flush();
+        ForwardResponse outcome = new ForwardResponse();
+        outcome.setStatusCode(status.value());
+        return outcome;
+    }
+
+    private static ForwardResponse outcome(int status, ProxyInfo proxyUsed) {
+        ForwardResponse outcome = new ForwardResponse();
+        outcome.setStatusCode(status);
+        outcome.setUsedDirectConnection(proxyUsed == null);
+        outcome.setProxyUsed(proxyUsed != null ? proxyUsed.getAddress() : null);
+        return outcome;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Remembers whether the caller's body has been read, which decides whether another proxy may be tried.
+     */
+    private static final class TrackingInputStream extends FilterInputStream {
+        private volatile boolean touched;
+
+        private TrackingInputStream(InputStream in) {
+            super(in);
+        }
+
+        boolean isTouched() {
+            return touched;
+        }
+
+        @Override
+        public int read() throws IOException {
+            touched = true;
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            touched = true;
+            return super.read(b, off, len);
+        }
+    }
+}
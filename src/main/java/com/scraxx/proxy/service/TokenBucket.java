@@ -0,0 +1,48 @@
+package com.scraxx.proxy.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time", advanced by
+ * one emission interval per permit with a single CAS, so no refill thread or lock is needed.
+ */
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstToleranceNanos = intervalNanos * Math.max(0, burst - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserves a permit if one is available within maxWaitNanos.
+     *
+     * @return how long the caller must wait before using the permit, or -1 if none could be reserved
+     */
+    long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            long waitNanos = start - burstToleranceNanos - now;
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + intervalNanos)) {
+                return Math.max(0, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit that ended up unused. The bucket still never holds more than its burst, since
+     * {@link #reserve} never starts from an arrival time earlier than now.
+     */
+    void refund() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+}
@@ -0,0 +1,18 @@
+package com.scraxx.proxy.service.selection;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.service.ProxyPerformanceTracker;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sends traffic in inverse proportion to each proxy's moving-average latency.
+ */
+@RequiredArgsConstructor
+public class EwmaLatencySelectionStrategy extends WeightedSelectionStrategy {
+    private final ProxyPerformanceTracker performanceTracker;
+
+    @Override
+    protected double weight(ProxyInfo proxyInfo) {
+        return 1.0 / Math.max(1.0, performanceTracker.get(proxyInfo).getEwmaLatencyMillis());
+    }
+}
@@ -0,0 +1,37 @@
+package com.scraxx.proxy.service.selection;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.service.ProxyPerformance;
+import com.scraxx.proxy.service.ProxyPerformanceTracker;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples two random proxies and takes the one with fewer requests in flight, breaking ties on latency.
+ */
+@RequiredArgsConstructor
+public class PowerOfTwoChoicesSelectionStrategy implements ProxySelectionStrategy {
+    private final ProxyPerformanceTracker performanceTracker;
+
+    @Override
+    public ProxyInfo select(ProxyInfo[] healthyProxies) {
+        if (healthyProxies.length == 1) {
+            return healthyProxies[0];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(healthyProxies.length);
+        int second = random.nextInt(healthyProxies.length - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        ProxyPerformance a = performanceTracker.get(healthyProxies[first]);
+        ProxyPerformance b = performanceTracker.get(healthyProxies[second]);
+        if (a.getInFlight() != b.getInFlight()) {
+            return a.getInFlight() < b.getInFlight() ? healthyProxies[first] : healthyProxies[second];
+        }
+        return a.getEwmaLatencyMillis() <= b.getEwmaLatencyMillis() ? healthyProxies[first] : healthyProxies[second];
+    }
+}
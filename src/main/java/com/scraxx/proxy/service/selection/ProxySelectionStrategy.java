@@ -0,0 +1,35 @@
+package com.scraxx.proxy.service.selection;
+
+import com.scraxx.proxy.model.ProxyInfo;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Picks the upstream proxy for the next attempt out of the current healthy snapshot.
+ * Implementations are called on the request path and must be thread-safe and cheap.
+ */
+public interface ProxySelectionStrategy {
+    /** Draws tried before falling back to a pass over the eligible proxies */
+    int MAX_FILTERED_DRAWS = 8;
+
+    /**
+     * @param healthyProxies the current healthy snapshot, never empty and never modified
+     */
+    ProxyInfo select(ProxyInfo[] healthyProxies);
+
+    /**
+     * Picks among the proxies of the snapshot that pass the filter, or returns null when none does. The snapshot is
+     * passed whole rather than pre-filtered, so that state an implementation keeps per array stays valid.
+     */
+    default ProxyInfo select(ProxyInfo[] healthyProxies, Predicate<ProxyInfo> eligible) {
+        for (int i = 0; i < Math.min(healthyProxies.length, MAX_FILTERED_DRAWS); i++) {
+            ProxyInfo proxy = select(healthyProxies);
+            if (eligible.test(proxy)) {
+                return proxy;
+            }
+        }
+        ProxyInfo[] filtered = Arrays.stream(healthyProxies).filter(eligible).toArray(ProxyInfo[]::new);
+        return filtered.length > 0 ? select(filtered) : null;
+    }
+}
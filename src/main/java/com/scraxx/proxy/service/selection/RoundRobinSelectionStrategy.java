@@ -0,0 +1,15 @@
+package com.scraxx.proxy.service.selection;
+
+import com.scraxx.proxy.model.ProxyInfo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RoundRobinSelectionStrategy implements ProxySelectionStrategy {
+    private final AtomicInteger currentProxyIndex = new AtomicInteger(0);
+
+    @Override
+    public ProxyInfo select(ProxyInfo[] healthyProxies) {
+        // floorMod keeps the index valid when the counter wraps around
+        return healthyProxies[Math.floorMod(currentProxyIndex.getAndIncrement(), healthyProxies.length)];
+    }
+}
@@ -0,0 +1,21 @@
+package com.scraxx.proxy.service.selection;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.service.ProxyPerformanceTracker;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sends traffic in proportion to each proxy's moving-average success rate, with a small floor
+ * so that proxies which failed recently still receive the odd request.
+ */
+@RequiredArgsConstructor
+public class SuccessRateSelectionStrategy extends WeightedSelectionStrategy {
+    private static final double MIN_WEIGHT = 0.01;
+
+    private final ProxyPerformanceTracker performanceTracker;
+
+    @Override
+    protected double weight(ProxyInfo proxyInfo) {
+        return Math.max(MIN_WEIGHT, performanceTracker.get(proxyInfo).getEwmaSuccessRate());
+    }
+}
@@ -0,0 +1,104 @@
+package com.scraxx.proxy.service.selection;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scraxx.proxy.model.ProxyInfo;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Weighted random selection. The cumulative weight table of each candidate array is rebuilt at most once per
+ * refresh interval, or when the healthy snapshot is replaced, so a selection costs a binary search rather than a
+ * full scan. Tables are kept per array, so requests with different routing constraints do not evict each other's.
+ */
+public abstract class WeightedSelectionStrategy implements ProxySelectionStrategy {
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** The least weight any proxy gets, as a fraction of the mean weight */
+    private static final double MIN_WEIGHT_SHARE = 0.01;
+    // One table per memoized constraint array, matching HealthyProxyIndex's own bound, plus the whole snapshot
+    private static final int MAX_TABLES = 1025;
+
+    // Weak, identity-compared keys: the tables of a replaced snapshot go with it
+    private final Cache<ProxyInfo[], WeightTable> weightTables = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_TABLES)
+            .build();
+
+    protected abstract double weight(ProxyInfo proxyInfo);
+
+    @Override
+    public ProxyInfo select(ProxyInfo[] healthyProxies) {
+        double[] cumulative = table(healthyProxies).cumulativeWeights();
+        double target = ThreadLocalRandom.current().nextDouble(cumulative[cumulative.length - 1]);
+        int index = Arrays.binarySearch(cumulative, target);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return healthyProxies[Math.min(index, healthyProxies.length - 1)];
+    }
+
+    /**
+     * Draws from the array's own table and skips ineligible picks; when few proxies qualify, makes one weighted
+     * pass over the eligible ones, still reading the cached weights rather than building a table for the subset.
+     */
+    @Override
+    public ProxyInfo select(ProxyInfo[] healthyProxies, Predicate<ProxyInfo> eligible) {
+        for (int i = 0; i < Math.min(healthyProxies.length, MAX_FILTERED_DRAWS); i++) {
+            ProxyInfo proxy = select(healthyProxies);
+            if (eligible.test(proxy)) {
+                return proxy;
+            }
+        }
+
+        double[] cumulative = table(healthyProxies).cumulativeWeights();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ProxyInfo selected = null;
+        double eligibleTotal = 0;
+        for (int i = 0; i < healthyProxies.length; i++) {
+            if (eligible.test(healthyProxies[i])) {
+                double weight = cumulative[i] - (i > 0 ? cumulative[i - 1] : 0);
+                eligibleTotal += weight;
+                // Keeps each eligible proxy with probability weight / total of those seen so far
+                if (random.nextDouble() * eligibleTotal < weight) {
+                    selected = healthyProxies[i];
+                }
+            }
+        }
+        return selected;
+    }
+
+    private WeightTable table(ProxyInfo[] proxies) {
+        WeightTable table = weightTables.getIfPresent(proxies);
+        long now = System.nanoTime();
+        if (table == null || now - table.builtAt() > REFRESH_INTERVAL_NANOS) {
+            table = buildTable(proxies, now);
+            weightTables.put(proxies, table);
+        }
+        return table;
+    }
+
+    private WeightTable buildTable(ProxyInfo[] proxies, long now) {
+        double[] weights = new double[proxies.length];
+        double sum = 0;
+        for (int i = 0; i < proxies.length; i++) {
+            weights[i] = Math.max(weight(proxies[i]), 0);
+            sum += weights[i];
+        }
+
+        // Never starve a proxy entirely, otherwise it could not prove it has recovered
+        double floor = Math.max(sum / proxies.length * MIN_WEIGHT_SHARE, Double.MIN_NORMAL);
+        double[] cumulative = new double[proxies.length];
+        double total = 0;
+        for (int i = 0; i < proxies.length; i++) {
+            total += Math.max(weights[i], floor);
+            cumulative[i] = total;
+        }
+        return new WeightTable(cumulative, now);
+    }
+
+    private record WeightTable(double[] cumulativeWeights, long builtAt) {
+    }
+}
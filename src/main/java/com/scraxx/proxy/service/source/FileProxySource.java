@@ -0,0 +1,62 @@
+package com.scraxx.proxy.service.source;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the proxy list from proxyFile on every refresh. A {@code .json} file is parsed like a provider response;
+ * anything else is read as one {@code host:port} per line, with blank lines and {@code #} comments ignored.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class FileProxySource implements ProxySource {
+    private final ProxyConfigProperties config;
+    private final ProxyListParser parser;
+
+    @Override
+    public List<ProxyInfo> fetchProxies() {
+        Path file = Path.of(config.getProxyFile());
+        try {
+            if (file.getFileName().toString().endsWith(".json")) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    return parser.parse(in).getData();
+                }
+            }
+            return readLines(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read proxy file " + file, e);
+        }
+    }
+
+    private static List<ProxyInfo> readLines(Path file) throws IOException {
+        List<ProxyInfo> proxies = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.stripLeading().startsWith("#")) {
+                    continue;
+                }
+                ProxyInfo proxy = ProxyListParser.parseAddress(line);
+                if (proxy != null) {
+                    proxies.add(proxy);
+                } else {
+                    log.warn("Ignoring line {} of {}, expected host:port", lineNumber, file);
+                }
+            }
+        }
+        return proxies;
+    }
+}
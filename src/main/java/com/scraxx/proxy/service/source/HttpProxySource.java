@@ -0,0 +1,62 @@
+package com.scraxx.proxy.service.source;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.FetchProxyResponseWrapper;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetches the list from proxyProviderUrl, following the provider's page parameter until a short or empty page,
+ * the reported total, or proxyProviderMaxPages. Each page is parsed as it streams in. A failure on any page
+ * fails the whole fetch, so a partial list never replaces a complete one.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class HttpProxySource implements ProxySource {
+    private final ProxyConfigProperties config;
+    private final RestTemplate restTemplate;
+    private final ProxyListParser parser;
+
+    @Override
+    public List<ProxyInfo> fetchProxies() {
+        UriComponents providerUrl = UriComponentsBuilder.fromUriString(config.getProxyProviderUrl()).build(true);
+        String firstPage = providerUrl.getQueryParams().getFirst("page");
+        int page = firstPage != null ? Integer.parseInt(firstPage) : 1;
+
+        List<ProxyInfo> proxies = new ArrayList<>();
+        for (int fetched = 0; fetched < config.getProxyProviderMaxPages(); fetched++, page++) {
+            UriComponents pageUrl = UriComponentsBuilder.newInstance().uriComponents(providerUrl)
+                    .replaceQueryParam("page", page)
+                    .build(true);
+            FetchProxyResponseWrapper response = restTemplate.execute(pageUrl.toUri(), HttpMethod.GET, null,
+                    httpResponse -> parser.parse(httpResponse.getBody()));
+            List<ProxyInfo> data = response != null ? response.getData() : List.of();
+            proxies.addAll(data);
+            log.debug("Fetched page {} with {} proxies", page, data.size());
+
+            if (!hasMorePages(response, proxies.size())) {
+                break;
+            }
+        }
+        return proxies;
+    }
+
+    private static boolean hasMorePages(FetchProxyResponseWrapper response, int fetchedSoFar) {
+        if (response == null || response.getData().isEmpty()) {
+            return false;
+        }
+        if (response.getTotal() != null) {
+            return fetchedSoFar < response.getTotal();
+        }
+        // Without a total, only a full page suggests there is another one
+        return response.getLimit() != null && response.getData().size() >= response.getLimit();
+    }
+}
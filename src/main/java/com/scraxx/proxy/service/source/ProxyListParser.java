@@ -0,0 +1,90 @@
+package com.scraxx.proxy.service.source;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scraxx.proxy.model.FetchProxyResponseWrapper;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams proxy lists in the provider's {@link FetchProxyResponseWrapper} shape, or as a bare JSON array, one entry
+ * at a time. The document is never held in memory as a whole, and entries without an ip or port are dropped.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ProxyListParser {
+    private final ObjectMapper objectMapper;
+
+    public FetchProxyResponseWrapper parse(InputStream in) throws IOException {
+        FetchProxyResponseWrapper page = new FetchProxyResponseWrapper();
+        page.setData(new ArrayList<>());
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                readProxies(parser, page.getData());
+                return page;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a proxy list array or an object with a data array");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "data" -> readProxies(parser, page.getData());
+                    case "total" -> page.setTotal(parser.getValueAsInt());
+                    case "page" -> page.setPage(parser.getValueAsInt());
+                    case "limit" -> page.setLimit(parser.getValueAsInt());
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    private void readProxies(JsonParser parser, List<ProxyInfo> proxies) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        int skipped = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            ProxyInfo proxy = objectMapper.readValue(parser, ProxyInfo.class);
+            if (isValid(proxy)) {
+                proxies.add(proxy);
+            } else {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} proxy entries without an ip or port", skipped);
+        }
+    }
+
+    /**
+     * Parses a {@code host:port} entry, or returns null if it is not one.
+     */
+    static ProxyInfo parseAddress(String address) {
+        String trimmed = address.trim();
+        int colon = trimmed.lastIndexOf(':');
+        if (colon <= 0 || colon == trimmed.length() - 1) {
+            return null;
+        }
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(trimmed.substring(0, colon));
+        proxy.setPort(trimmed.substring(colon + 1));
+        return proxy;
+    }
+
+    private static boolean isValid(ProxyInfo proxy) {
+        return proxy.getIp() != null && !proxy.getIp().isBlank() && proxy.getPort() != null && !proxy.getPort().isBlank();
+    }
+}
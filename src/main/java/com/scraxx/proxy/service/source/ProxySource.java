@@ -0,0 +1,17 @@
+package com.scraxx.proxy.service.source;
+
+import com.scraxx.proxy.model.ProxyInfo;
+
+import java.util.List;
+
+/**
+ * Supplies the full upstream proxy list. Called on startup and on every scheduled refresh; the result
+ * replaces the current list.
+ */
+public interface ProxySource {
+
+    /**
+     * @return the current proxy list; an empty list means the source has nothing to offer right now
+     */
+    List<ProxyInfo> fetchProxies();
+}
@@ -0,0 +1,32 @@
+package com.scraxx.proxy.service.source;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code host:port} entries listed in staticProxies.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class StaticProxySource implements ProxySource {
+    private final ProxyConfigProperties config;
+
+    @Override
+    public List<ProxyInfo> fetchProxies() {
+        List<ProxyInfo> proxies = new ArrayList<>();
+        for (String address : config.getStaticProxies()) {
+            ProxyInfo proxy = ProxyListParser.parseAddress(address);
+            if (proxy != null) {
+                proxies.add(proxy);
+            } else {
+                log.warn("Ignoring static proxy entry '{}', expected host:port", address);
+            }
+        }
+        return proxies;
+    }
+}
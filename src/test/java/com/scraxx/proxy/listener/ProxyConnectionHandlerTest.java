@@ -0,0 +1,245 @@
+package com.scraxx.proxy.listener;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.service.AlertService;
+import com.scraxx.proxy.service.CachingDnsResolver;
+import com.scraxx.proxy.service.ForwardConcurrencyLimiter;
+import com.scraxx.proxy.service.ForwardMetrics;
+import com.scraxx.proxy.service.ForwardRateLimiter;
+import com.scraxx.proxy.service.ProxyManagerService;
+import com.scraxx.proxy.service.ProxyPerformanceTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProxyConnectionHandlerTest {
+    private static final String CONNECT = "CONNECT target.test:443 HTTP/1.1\r\nHost: target.test:443\r\n\r\n";
+    private static final String NO_ADDRESSES = "empty.test";
+
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ProxyManagerService proxyManager = mock(ProxyManagerService.class);
+    private final ProxyPerformanceTracker performanceTracker =
+            new ProxyPerformanceTracker(config, mock(ApplicationEventPublisher.class));
+    private final List<ProxyInfo> proxies = new ArrayList<>();
+    private final List<StubProxy> stubs = new ArrayList<>();
+    private ProxyConnectionHandler handler;
+
+    @BeforeEach
+    void configure() throws UnknownHostException {
+        config.setConnectionTimeoutSeconds(2);
+        config.setReadTimeoutSeconds(2);
+
+        // Select like the real manager does on the pool path: the first untried proxy, counted in flight
+        when(proxyManager.awaitProxy(any(), anyLong()))
+                .thenAnswer(invocation -> invocation.<Supplier<ProxyInfo>>getArgument(0).get());
+        when(proxyManager.getNextHealthyProxy(isNull(), isNull(), anySet())).thenAnswer(invocation -> {
+            Set<String> tried = invocation.getArgument(2);
+            ProxyInfo selected = proxies.stream()
+                    .filter(proxy -> !tried.contains(proxy.getAddress()))
+                    .findFirst()
+                    .orElse(null);
+            if (selected != null) {
+                performanceTracker.get(selected).tryStartRequest(0);
+            }
+            return selected;
+        });
+
+        // Only the stub proxies resolve, so the direct fallback to the target fails
+        CachingDnsResolver dnsResolver = mock(CachingDnsResolver.class);
+        when(dnsResolver.resolve(anyString())).thenAnswer(invocation -> {
+            String host = invocation.getArgument(0);
+            if (host.equals(NO_ADDRESSES)) {
+                return new InetAddress[0];
+            }
+            if (!host.equals("127.0.0.1")) {
+                throw new UnknownHostException(host);
+            }
+            return new InetAddress[]{InetAddress.getLoopbackAddress()};
+        });
+
+        handler = new ProxyConnectionHandler(proxyManager, config, mock(AlertService.class),
+                new ForwardConcurrencyLimiter(config, mock(ForwardMetrics.class)), performanceTracker,
+                new ForwardRateLimiter(config, performanceTracker), dnsResolver);
+    }
+
+    @AfterEach
+    void stopStubs() throws IOException {
+        for (StubProxy stub : stubs) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void gatewayErrorRotatesWithoutEvictingAndIsRelayed() throws Exception {
+        StubProxy first = stub("HTTP/1.1 502 Bad Gateway\r\n\r\n");
+        StubProxy second = stub("HTTP/1.1 502 Bad Gateway\r\n\r\n");
+
+        assertThat(connect()).isEqualTo("HTTP/1.1 502 Bad Gateway");
+
+        assertThat(first.connections).hasValue(1);
+        assertThat(second.connections).hasValue(1);
+        verify(proxyManager, never()).markProxyUnhealthy(any());
+        assertThat(performanceTracker.get(proxies.get(0)).getEwmaSuccessRate()).isLessThan(1.0);
+        assertThat(performanceTracker.get(proxies.get(0)).getInFlight()).isZero();
+    }
+
+    @Test
+    void targetErrorIsRelayedWithoutTryingAnotherProxy() throws Exception {
+        StubProxy first = stub("HTTP/1.1 403 Forbidden\r\n\r\n");
+        StubProxy second = stub("HTTP/1.1 200 Connection Established\r\n\r\n");
+
+        assertThat(connect()).isEqualTo("HTTP/1.1 403 Forbidden");
+
+        assertThat(first.connections).hasValue(1);
+        assertThat(second.connections).hasValue(0);
+        verify(proxyManager, never()).markProxyUnhealthy(any());
+        assertThat(performanceTracker.get(proxies.get(0)).getEwmaSuccessRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void proxyAuthenticationFailureIsNotAskedOfTheClient() throws Exception {
+        stub("HTTP/1.1 407 Proxy Authentication Required\r\n\r\n");
+
+        assertThat(connect()).isEqualTo("HTTP/1.1 502 Bad Gateway");
+        verify(proxyManager, never()).markProxyUnhealthy(any());
+    }
+
+    @Test
+    void unreachableProxyIsEvictedAndTheNextOneUsed() throws Exception {
+        ProxyInfo unreachable = proxy(closedPort());
+        proxies.add(unreachable);
+        StubProxy working = stub("HTTP/1.1 200 Connection Established\r\n\r\n");
+
+        assertThat(connect()).isEqualTo("HTTP/1.1 200 Connection Established");
+
+        verify(proxyManager).markProxyUnhealthy(unreachable);
+        assertThat(working.connections).hasValue(1);
+    }
+
+    @Test
+    void proxyResolvingToNoAddressesIsEvicted() throws Exception {
+        ProxyInfo unresolvable = proxy(closedPort());
+        unresolvable.setIp(NO_ADDRESSES);
+        proxies.add(unresolvable);
+        StubProxy working = stub("HTTP/1.1 200 Connection Established\r\n\r\n");
+
+        assertThat(connect()).isEqualTo("HTTP/1.1 200 Connection Established");
+
+        verify(proxyManager).markProxyUnhealthy(unresolvable);
+        assertThat(working.connections).hasValue(1);
+    }
+
+    @Test
+    void proxyClosingWithoutAnswerIsNotEvicted() throws Exception {
+        stub(null);
+
+        assertThat(connect()).isEqualTo("HTTP/1.1 502 Bad Gateway");
+        verify(proxyManager, never()).markProxyUnhealthy(any());
+    }
+
+    /**
+     * Sends a CONNECT through the handler and returns the status line it answers with.
+     */
+    private String connect() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort())) {
+                SocketChannel accepted = server.accept();
+                Thread serving = Thread.ofVirtual().start(() -> handler.handle(accepted));
+                client.setSoTimeout(5000);
+                client.getOutputStream().write(CONNECT.getBytes(StandardCharsets.US_ASCII));
+                String statusLine = new BufferedReader(
+                        new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+                client.close();
+                serving.join(5000);
+                return statusLine;
+            }
+        }
+    }
+
+    /**
+     * Adds a proxy that answers every CONNECT with the given response, or closes at once when it is null.
+     */
+    private StubProxy stub(String response) throws IOException {
+        StubProxy stub = new StubProxy(response);
+        stubs.add(stub);
+        proxies.add(proxy(stub.server.getLocalPort()));
+        return stub;
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static ProxyInfo proxy(int port) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp("127.0.0.1");
+        proxy.setPort(String.valueOf(port));
+        return proxy;
+    }
+
+    private static final class StubProxy implements AutoCloseable {
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final AtomicInteger connections = new AtomicInteger();
+
+        StubProxy(String response) throws IOException {
+            Thread.ofVirtual().start(() -> {
+                while (!server.isClosed()) {
+                    try (Socket socket = server.accept()) {
+                        connections.incrementAndGet();
+                        BufferedReader in = new BufferedReader(
+                                new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                        while (!in.readLine().isEmpty()) {
+                            // Skip the CONNECT head
+                        }
+                        if (response != null) {
+                            OutputStream out = socket.getOutputStream();
+                            out.write(response.getBytes(StandardCharsets.US_ASCII));
+                            out.flush();
+                        }
+                    } catch (IOException | NullPointerException e) {
+                        // Closed by the test, or the handler hung up
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
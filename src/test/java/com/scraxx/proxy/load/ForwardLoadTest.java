@@ -0,0 +1,111 @@
+package com.scraxx.proxy.load;
+
+import com.scraxx.proxy.service.source.ProxySource;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the forward endpoint against a fleet of local stub proxies with a production-like mix of slow, dead,
+ * flapping, throttling and erroring proxies, and reports throughput, latency percentiles and fallback rate.
+ * Direct fallbacks go to a local origin server, so nothing touches the internet.
+ *
+ * <p>Tagged {@code load} and excluded from the default build; run with {@code mvn -Pload-test test}. The run
+ * is tuned with {@code -Dload.concurrency}, {@code -Dload.durationSeconds} and {@code -Dload.maxErrorRate}.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.com.scraxx.proxy=ERROR",
+        "logging.level.com.scraxx.proxy.load=INFO",
+        "proxy.healthCheckMode=TCP",
+        "proxy.healthCheckTickSeconds=2",
+        "proxy.unhealthyRecheckSeconds=5",
+        "proxy.healthCheckTimeoutSeconds=1"
+})
+class ForwardLoadTest {
+    private static HttpServer origin;
+
+    @Autowired
+    private StubProxyFleet fleet;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void startOrigin() throws IOException {
+        byte[] body = "origin-response".getBytes(StandardCharsets.UTF_8);
+        origin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        origin.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        origin.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        origin.start();
+    }
+
+    @AfterAll
+    static void stopOrigin() {
+        origin.stop(0);
+    }
+
+    @Test
+    void mixedFleetUnderLoad() throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 64);
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.durationSeconds", 20));
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.maxErrorRate", "0.05"));
+
+        LoadGenerator generator = new LoadGenerator(URI.create("http://127.0.0.1:" + port + "/api/proxy/forward"));
+        LoadReport report = generator.run("http://127.0.0.1:" + origin.getAddress().getPort() + "/items",
+                concurrency, duration);
+
+        log.info("Load run with {} clients against {} stub proxies:\n{}", concurrency, fleet.getProxies().size(), report);
+        fleet.getProxies().forEach(proxy ->
+                log.info("  {}: {} requests, {} failed", proxy, proxy.getRequests(), proxy.getFailures()));
+
+        assertThat(report.requests()).isPositive();
+        assertThat(report.errorRate()).isLessThanOrEqualTo(maxErrorRate);
+    }
+
+    @TestConfiguration
+    static class StubProxyConfig {
+
+        @Bean
+        StubProxyFleet stubProxyFleet() throws IOException {
+            return new StubProxyFleet()
+                    .add(8, StubBehavior::healthy)
+                    .add(2, StubBehavior::slow)
+                    .add(2, StubBehavior::dead)
+                    .add(2, StubBehavior::flapping)
+                    .add(2, StubBehavior::throttling)
+                    .add(2, StubBehavior::erroring);
+        }
+
+        @Bean
+        @Primary
+        ProxySource stubProxySource(StubProxyFleet fleet) {
+            return fleet;
+        }
+    }
+}
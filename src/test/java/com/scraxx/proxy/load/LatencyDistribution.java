@@ -0,0 +1,28 @@
+package com.scraxx.proxy.load;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Per-request latency a stub proxy adds before answering.
+ */
+@FunctionalInterface
+interface LatencyDistribution {
+
+    long sampleMillis(RandomGenerator random);
+
+    static LatencyDistribution fixed(long millis) {
+        return random -> millis;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return random -> random.nextLong(minMillis, maxMillis + 1);
+    }
+
+    /**
+     * Long-tailed latency around the given median, the usual shape of real proxy response times.
+     */
+    static LatencyDistribution logNormal(long medianMillis, double sigma) {
+        double mu = Math.log(medianMillis);
+        return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+}
@@ -0,0 +1,116 @@
+package com.scraxx.proxy.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load against {@code /api/proxy/forward}: a fixed number of virtual-thread clients each send
+ * their next request as soon as the previous one returns, until the run time is up.
+ */
+final class LoadGenerator {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI forwardEndpoint;
+
+    LoadGenerator(URI forwardEndpoint) {
+        this.forwardEndpoint = forwardEndpoint;
+    }
+
+    /**
+     * @param targetUrl each request gets a distinct query string appended, so the service can neither cache
+     *                  nor coalesce them
+     */
+    LoadReport run(String targetUrl, int concurrency, Duration duration) throws Exception {
+        Run run = new Run(targetUrl, System.nanoTime() + duration.toNanos());
+        List<Future<long[]>> workers = new ArrayList<>();
+
+        long startNanos = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(run::work));
+            }
+        }
+        long elapsed = System.nanoTime() - startNanos;
+
+        List<long[]> latencies = new ArrayList<>();
+        for (Future<long[]> worker : workers) {
+            latencies.add(worker.get());
+        }
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new LoadReport(elapsed, all, Map.copyOf(run.statusCounts), run.directFallbacks.sum(),
+                run.transportErrors.sum());
+    }
+
+    private HttpResponse<String> send(String url) throws IOException, InterruptedException {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl(url);
+        request.setMethod("GET");
+        HttpRequest httpRequest = HttpRequest.newBuilder(forwardEndpoint)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(120))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(request)))
+                .build();
+        return client.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private final class Run {
+        private final String targetUrl;
+        private final long endNanos;
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<Integer, Long> statusCounts = new ConcurrentHashMap<>();
+        private final LongAdder directFallbacks = new LongAdder();
+        private final LongAdder transportErrors = new LongAdder();
+
+        private Run(String targetUrl, long endNanos) {
+            this.targetUrl = targetUrl;
+            this.endNanos = endNanos;
+        }
+
+        /**
+         * One client's loop; returns the latency of each of its calls that got an answer.
+         */
+        private long[] work() throws InterruptedException {
+            long[] latencies = new long[1024];
+            int count = 0;
+            while (System.nanoTime() < endNanos) {
+                String url = targetUrl + "?n=" + sequence.incrementAndGet();
+                long callStart = System.nanoTime();
+                try {
+                    HttpResponse<String> response = send(url);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - callStart;
+                    statusCounts.merge(response.statusCode(), 1L, Long::sum);
+                    if (objectMapper.readValue(response.body(), ForwardResponse.class).isUsedDirectConnection()) {
+                        directFallbacks.increment();
+                    }
+                } catch (IOException e) {
+                    transportErrors.increment();
+                }
+            }
+            return Arrays.copyOf(latencies, count);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.scraxx.proxy.load;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of one load run.
+ *
+ * @param latenciesNanos end-to-end latency of every completed call, sorted ascending
+ * @param transportErrors calls that got no HTTP answer from the service at all
+ */
+record LoadReport(long durationNanos, long[] latenciesNanos, Map<Integer, Long> statusCounts,
+                  long directFallbacks, long transportErrors) {
+
+    long requests() {
+        return latenciesNanos.length + transportErrors;
+    }
+
+    double throughputPerSecond() {
+        return requests() / (durationNanos / 1e9);
+    }
+
+    double percentileMillis(double percentile) {
+        if (latenciesNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latenciesNanos.length) - 1;
+        return latenciesNanos[Math.max(0, Math.min(index, latenciesNanos.length - 1))] / 1e6;
+    }
+
+    double fallbackRate() {
+        return requests() == 0 ? 0 : (double) directFallbacks / requests();
+    }
+
+    double errorRate() {
+        long ok = statusCounts.getOrDefault(200, 0L);
+        return requests() == 0 ? 0 : 1 - (double) ok / requests();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                        requests: %d in %.1fs (%.1f/s)
+                        latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f
+                        statuses: %s, transport errors: %d
+                        direct fallback rate: %.2f%%, error rate: %.2f%%""",
+                requests(), durationNanos / 1e9, throughputPerSecond(),
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100),
+                new TreeMap<>(statusCounts), transportErrors,
+                fallbackRate() * 100, errorRate() * 100);
+    }
+}
@@ -0,0 +1,37 @@
+package com.scraxx.proxy.load;
+
+import java.time.Duration;
+
+/**
+ * How a stub proxy behaves: its latency, how often it fails or throttles, and whether it flaps or is dead.
+ *
+ * @param flapPeriod         when set, the proxy alternates between answering and dropping connections for this long
+ * @param refusesConnections no one listens on the proxy's port, so every connection is refused
+ */
+record StubBehavior(String name, LatencyDistribution latency, double errorRate, double throttleRate,
+                    Duration flapPeriod, boolean refusesConnections) {
+
+    static StubBehavior healthy() {
+        return new StubBehavior("healthy", LatencyDistribution.logNormal(20, 0.5), 0, 0, null, false);
+    }
+
+    static StubBehavior slow() {
+        return new StubBehavior("slow", LatencyDistribution.logNormal(800, 0.8), 0, 0, null, false);
+    }
+
+    static StubBehavior dead() {
+        return new StubBehavior("dead", LatencyDistribution.fixed(0), 0, 0, null, true);
+    }
+
+    static StubBehavior flapping() {
+        return new StubBehavior("flapping", LatencyDistribution.logNormal(30, 0.5), 0, 0, Duration.ofSeconds(5), false);
+    }
+
+    static StubBehavior throttling() {
+        return new StubBehavior("throttling", LatencyDistribution.uniform(5, 50), 0, 0.5, null, false);
+    }
+
+    static StubBehavior erroring() {
+        return new StubBehavior("erroring", LatencyDistribution.uniform(5, 50), 0.3, 0, null, false);
+    }
+}
@@ -0,0 +1,128 @@
+package com.scraxx.proxy.load;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fake forward proxy on a local port. It answers absolute-form requests itself, after the latency and with
+ * the failures its {@link StubBehavior} calls for, so no request ever leaves the machine.
+ */
+final class StubProxy implements AutoCloseable {
+    private static final byte[] BODY = "stub-proxy-response".getBytes(StandardCharsets.UTF_8);
+
+    private final StubBehavior behavior;
+    private final HttpServer server;
+    private final int port;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private StubProxy(StubBehavior behavior) throws IOException {
+        this.behavior = behavior;
+        if (behavior.refusesConnections()) {
+            // Reserve a free port and release it again, so connections to it are refused
+            try (ServerSocket socket = new ServerSocket(0)) {
+                this.port = socket.getLocalPort();
+            }
+            this.server = null;
+        } else {
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+            this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            this.server.createContext("/", this::handle);
+            this.server.start();
+            this.port = server.getAddress().getPort();
+        }
+    }
+
+    static StubProxy start(StubBehavior behavior) throws IOException {
+        return new StubProxy(behavior);
+    }
+
+    ProxyInfo toProxyInfo() {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp("127.0.0.1");
+        proxy.setPort(String.valueOf(port));
+        return proxy;
+    }
+
+    StubBehavior getBehavior() {
+        return behavior;
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        exchange.getRequestBody().readAllBytes();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (isFlappedDown()) {
+            // Drop the connection without an answer, like a proxy that went away mid-request
+            failures.increment();
+            exchange.close();
+            return;
+        }
+
+        sleep(behavior.latency().sampleMillis(random));
+
+        if (random.nextDouble() < behavior.throttleRate()) {
+            failures.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            exchange.sendResponseHeaders(429, -1);
+        } else if (random.nextDouble() < behavior.errorRate()) {
+            failures.increment();
+            exchange.sendResponseHeaders(502, -1);
+        } else {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        }
+        exchange.close();
+    }
+
+    private boolean isFlappedDown() {
+        if (behavior.flapPeriod() == null) {
+            return false;
+        }
+        long periods = (System.nanoTime() - startNanos) / behavior.flapPeriod().toNanos();
+        return periods % 2 == 1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return behavior.name() + "@127.0.0.1:" + port;
+    }
+}
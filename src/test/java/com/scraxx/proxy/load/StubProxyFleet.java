@@ -0,0 +1,37 @@
+package com.scraxx.proxy.load;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.service.source.ProxySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A set of stub proxies, exposed to the application as its {@link ProxySource}.
+ */
+final class StubProxyFleet implements ProxySource, AutoCloseable {
+    private final List<StubProxy> proxies = new ArrayList<>();
+
+    StubProxyFleet add(int count, Supplier<StubBehavior> behavior) throws IOException {
+        for (int i = 0; i < count; i++) {
+            proxies.add(StubProxy.start(behavior.get()));
+        }
+        return this;
+    }
+
+    List<StubProxy> getProxies() {
+        return proxies;
+    }
+
+    @Override
+    public List<ProxyInfo> fetchProxies() {
+        return proxies.stream().map(StubProxy::toProxyInfo).toList();
+    }
+
+    @Override
+    public void close() {
+        proxies.forEach(StubProxy::close);
+    }
+}
@@ -0,0 +1,110 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.BatchForwardResult;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchForwardServiceTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ForwardProxyService proxyService = mock(ForwardProxyService.class);
+    private final ExecutorService upstreamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean slowInterrupted = new AtomicBoolean();
+
+    @SuppressWarnings("unchecked")
+    private final BatchForwardService service = new BatchForwardService(proxyService,
+            mock(ObjectProvider.class), config, upstreamExecutor);
+
+    @BeforeEach
+    void configure() {
+        config.setBatchDeadlineSeconds(1);
+        when(proxyService.forwardRequest(any())).thenAnswer(invocation -> {
+            ForwardRequest request = invocation.getArgument(0);
+            if (request.getUrl().contains("slow")) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    slowInterrupted.set(true);
+                    throw e;
+                }
+            }
+            ForwardResponse response = new ForwardResponse();
+            response.setStatusCode(200);
+            response.setBody(request.getUrl());
+            return response;
+        });
+    }
+
+    @AfterEach
+    void shutdown() {
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Test
+    void resultsArriveInCompletionOrderWithTheirIndex() {
+        List<BatchForwardResult> results = service.forwardBatch(List.of(
+                        request("https://slow.test/"), request("https://a.test/"), request("https://b.test/")))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(2).getIndex()).isZero();
+        assertThat(results).extracting(BatchForwardResult::getIndex).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(results.stream().filter(result -> result.getIndex() == 1).findFirst().orElseThrow()
+                .getResponse().getBody()).isEqualTo("https://a.test/");
+    }
+
+    @Test
+    void unfinishedRequestsAreCutOffAtTheDeadline() throws InterruptedException {
+        long start = System.nanoTime();
+        List<BatchForwardResult> results = service.forwardBatch(List.of(request("https://slow.test/"), request("https://a.test/")))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(3));
+        BatchForwardResult slow = results.stream().filter(result -> result.getIndex() == 0).findFirst().orElseThrow();
+        assertThat(slow.getResponse().getStatusCode()).isEqualTo(504);
+        assertThat(slow.getUrl()).isEqualTo("https://slow.test/");
+
+        // The blocked attempt is interrupted rather than left running
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (!slowInterrupted.get() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(slowInterrupted).isTrue();
+    }
+
+    @Test
+    void requestsBeyondTheParallelismWaitTheirTurn() {
+        config.setBatchParallelism(1);
+
+        List<BatchForwardResult> results = service.forwardBatch(List.of(
+                        request("https://a.test/"), request("https://b.test/"), request("https://c.test/")))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(BatchForwardResult::getIndex).containsExactly(0, 1, 2);
+    }
+
+    private static ForwardRequest request(String url) {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl(url);
+        request.setMethod("GET");
+        return request;
+    }
+}
@@ -0,0 +1,193 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+
+class CachingDnsResolverTest {
+    private static final String HOST = "proxy.test";
+
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+    // What the next lookup of each host answers; a missing host does not resolve
+    private final Map<String, InetAddress[]> answers = new ConcurrentHashMap<>();
+    // When set, lookups hold until it opens
+    private volatile CountDownLatch lookupGate;
+    private CachingDnsResolver resolver;
+
+    @BeforeEach
+    void configure() {
+        config.setDnsCacheTtlSeconds(60);
+        config.setDnsRefreshAfterSeconds(45);
+        config.setDnsNegativeTtlSeconds(5);
+        resolver = resolver();
+    }
+
+    @AfterEach
+    void shutdown() {
+        resolver.shutdown();
+    }
+
+    @Test
+    void answersFromCacheUntilTtl() throws Exception {
+        answers.put(HOST, addresses("10.0.0.1"));
+
+        assertThat(resolver.resolve(HOST)).containsExactly(address("10.0.0.1"));
+        advanceSeconds(30);
+        assertThat(resolver.resolve(HOST)).containsExactly(address("10.0.0.1"));
+
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void refreshesInBackgroundWhileServingCachedAnswer() throws Exception {
+        answers.put(HOST, addresses("10.0.0.1"));
+        resolver.resolve(HOST);
+        answers.put(HOST, addresses("10.0.0.2"));
+        lookupGate = new CountDownLatch(1);
+        advanceSeconds(50);
+
+        // Past refreshAfter: the stale answer comes back at once while the lookup is still running behind it
+        assertThat(assertTimeoutPreemptively(Duration.ofSeconds(2), () -> resolver.resolve(HOST)))
+                .containsExactly(address("10.0.0.1"));
+        awaitTrue(() -> lookups.get() == 2);
+        lookupGate.countDown();
+        awaitTrue(() -> resolvesTo("10.0.0.2"));
+    }
+
+    @Test
+    void failedRefreshKeepsLastAnswerUntilItsTtl() throws Exception {
+        answers.put(HOST, addresses("10.0.0.1"));
+        resolver.resolve(HOST);
+        answers.remove(HOST);
+        advanceSeconds(50);
+
+        assertThat(resolver.resolve(HOST)).containsExactly(address("10.0.0.1"));
+        awaitTrue(() -> lookups.get() == 2);
+        assertThat(resolver.resolve(HOST)).containsExactly(address("10.0.0.1"));
+
+        advanceSeconds(11);
+        assertThatThrownBy(() -> resolver.resolve(HOST)).isInstanceOf(UnknownHostException.class);
+    }
+
+    @Test
+    void cachesFailuresForNegativeTtl() throws Exception {
+        assertThatThrownBy(() -> resolver.resolve(HOST)).isInstanceOf(UnknownHostException.class);
+        answers.put(HOST, addresses("10.0.0.1"));
+        advanceSeconds(4);
+        assertThatThrownBy(() -> resolver.resolve(HOST)).isInstanceOf(UnknownHostException.class);
+        assertThat(lookups).hasValue(1);
+
+        advanceSeconds(2);
+        assertThat(resolver.resolve(HOST)).containsExactly(address("10.0.0.1"));
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void rotatesBetweenSeveralAddresses() throws Exception {
+        answers.put(HOST, addresses("10.0.0.1", "10.0.0.2", "10.0.0.3"));
+
+        assertThat(resolver.resolve(HOST)[0]).isEqualTo(address("10.0.0.1"));
+        assertThat(resolver.resolve(HOST)).containsExactly(address("10.0.0.2"), address("10.0.0.3"), address("10.0.0.1"));
+        assertThat(resolver.resolve(HOST)[0]).isEqualTo(address("10.0.0.3"));
+    }
+
+    @Test
+    void resolveIfCachedNeverWaitsForLookup() throws Exception {
+        answers.put(HOST, addresses("10.0.0.1"));
+        lookupGate = new CountDownLatch(1);
+
+        assertThat(assertTimeoutPreemptively(Duration.ofSeconds(2), () -> resolver.resolveIfCached(HOST))).isNull();
+        awaitTrue(() -> lookups.get() == 1);
+        lookupGate.countDown();
+        awaitTrue(() -> cachedAnswer() != null);
+        assertThat(cachedAnswer()).containsExactly(address("10.0.0.1"));
+    }
+
+    @Test
+    void literalsAndDisabledCacheBypassTheCache() throws Exception {
+        assertThat(resolver.resolve("10.1.2.3")).containsExactly(address("10.1.2.3"));
+        assertThat(lookups).hasValue(0);
+
+        config.setDnsCacheEnabled(false);
+        assertThat(resolver.resolveIfCached(HOST)).isNull();
+        assertThat(lookups).hasValue(0);
+    }
+
+    private CachingDnsResolver resolver() {
+        return new CachingDnsResolver(config, mock(ForwardMetrics.class), host -> {
+            lookups.incrementAndGet();
+            CountDownLatch gate = lookupGate;
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            InetAddress[] answer = answers.get(host);
+            if (answer == null) {
+                throw new UnknownHostException(host);
+            }
+            return answer.clone();
+        }, nanos::get);
+    }
+
+    private boolean resolvesTo(String ip) {
+        try {
+            return resolver.resolve(HOST)[0].equals(address(ip));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private InetAddress[] cachedAnswer() {
+        try {
+            return resolver.resolveIfCached(HOST);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private void advanceSeconds(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static InetAddress[] addresses(String... ips) throws UnknownHostException {
+        InetAddress[] addresses = new InetAddress[ips.length];
+        for (int i = 0; i < ips.length; i++) {
+            addresses[i] = address(ips[i]);
+        }
+        return addresses;
+    }
+
+    private static InetAddress address(String ip) throws UnknownHostException {
+        return InetAddress.getByName(ip);
+    }
+}
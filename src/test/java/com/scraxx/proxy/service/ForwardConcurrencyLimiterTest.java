@@ -0,0 +1,169 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.RequestPriority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ForwardConcurrencyLimiterTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+
+    @BeforeEach
+    void configure() {
+        config.setMaxConcurrentForwards(100);
+        config.setInitialConcurrencyLimit(10);
+        config.setMinConcurrencyLimit(4);
+        config.setConcurrencyBackoffRatio(0.5);
+        config.setNormalPriorityShare(0.8);
+        config.setLowPriorityShare(0.5);
+        config.setForwardPermitTimeoutMillis(10);
+    }
+
+    @Test
+    void startsAtInitialLimitWhenAdaptive() {
+        assertThat(limiter().getLimit()).isEqualTo(10);
+
+        config.setAdaptiveConcurrencyEnabled(false);
+        assertThat(limiter().getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void prioritiesGetTheirShareOfTheLimit() {
+        ForwardConcurrencyLimiter limiter = limiter();
+
+        assertThat(acquireAll(limiter, RequestPriority.LOW)).isEqualTo(5);
+        assertThat(acquireAll(limiter, RequestPriority.NORMAL)).isEqualTo(3);
+        assertThat(acquireAll(limiter, RequestPriority.HIGH)).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isEqualTo(10);
+    }
+
+    @Test
+    void releasedPermitAdmitsAgain() {
+        ForwardConcurrencyLimiter limiter = limiter();
+        acquireAll(limiter, RequestPriority.HIGH);
+        assertThat(limiter.tryAcquire(RequestPriority.HIGH)).isFalse();
+
+        limiter.release();
+
+        assertThat(limiter.tryAcquire(RequestPriority.HIGH)).isTrue();
+    }
+
+    @Test
+    void timeoutCutsLimitMultiplicatively() {
+        ForwardConcurrencyLimiter limiter = limiter();
+        long started = System.nanoTime();
+        limiter.tryAcquire(RequestPriority.HIGH);
+
+        limiter.release(started, true);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void burstOfTimeoutsFromOneOverloadCutsOnce() {
+        ForwardConcurrencyLimiter limiter = limiter();
+        long started = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(RequestPriority.HIGH);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            limiter.release(started, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        // A forward admitted after the cut may cut again
+        limiter.tryAcquire(RequestPriority.HIGH);
+        limiter.release(System.nanoTime(), true);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void limitNeverFallsBelowMinimum() {
+        ForwardConcurrencyLimiter limiter = limiter();
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(RequestPriority.HIGH);
+            limiter.release(System.nanoTime(), true);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void successGrowsLimitOnlyWhenWellUsed() {
+        ForwardConcurrencyLimiter limiter = limiter();
+        limiter.tryAcquire(RequestPriority.HIGH);
+        limiter.release(System.nanoTime(), false);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+
+        for (int i = 0; i < 6; i++) {
+            limiter.tryAcquire(RequestPriority.HIGH);
+        }
+        limiter.release(System.nanoTime(), false);
+
+        assertThat(limiter.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void limitNeverGrowsBeyondMaximum() {
+        config.setMaxConcurrentForwards(10);
+        ForwardConcurrencyLimiter limiter = limiter();
+        acquireAll(limiter, RequestPriority.HIGH);
+
+        limiter.release(System.nanoTime(), false);
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void slowForwardCountsAsCongestion() throws InterruptedException {
+        config.setConcurrencyLatencyThresholdMillis(1);
+        ForwardConcurrencyLimiter limiter = limiter();
+        long started = System.nanoTime();
+        limiter.tryAcquire(RequestPriority.HIGH);
+        Thread.sleep(5);
+
+        limiter.release(started, false);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void plainReleaseLeavesLimitAlone() {
+        ForwardConcurrencyLimiter limiter = limiter();
+        limiter.tryAcquire(RequestPriority.HIGH);
+
+        limiter.release();
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void rejectionCarriesRetryAfterOnlyShedResponsesExpose() {
+        config.setShedRetryAfterSeconds(7);
+        ForwardResponse rejection = limiter().rejection();
+        assertThat(rejection.getStatusCode()).isEqualTo(503);
+        assertThat(ForwardConcurrencyLimiter.shedRetryAfterSeconds(rejection)).isEqualTo(7);
+
+        // The same answer relayed from upstream is not ours to turn into a Retry-After
+        rejection.setProxyUsed("10.0.0.1:8080");
+        assertThat(ForwardConcurrencyLimiter.shedRetryAfterSeconds(rejection)).isEqualTo(-1);
+    }
+
+    private ForwardConcurrencyLimiter limiter() {
+        return new ForwardConcurrencyLimiter(config, mock(ForwardMetrics.class));
+    }
+
+    private static int acquireAll(ForwardConcurrencyLimiter limiter, RequestPriority priority) {
+        int acquired = 0;
+        while (limiter.tryAcquire(priority)) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,61 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ForwardRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForwardContextTest {
+
+    @Test
+    void requestTimeoutShortensTheDeadline() {
+        ForwardContext context = new ForwardContext(request("GET", 1_000L), 90_000);
+
+        assertThat(context.remainingMillis()).isBetween(900L, 1_000L);
+    }
+
+    @Test
+    void requestTimeoutCannotExtendTheDeadline() {
+        ForwardContext context = new ForwardContext(request("GET", 3_600_000L), 5_000);
+
+        assertThat(context.remainingMillis()).isBetween(4_900L, 5_000L);
+    }
+
+    @Test
+    void missingOrInvalidTimeoutUsesTheDefault() {
+        assertThat(new ForwardContext(request("GET", null), 5_000).remainingMillis()).isBetween(4_900L, 5_000L);
+        assertThat(new ForwardContext(request("GET", -1L), 5_000).remainingMillis()).isBetween(4_900L, 5_000L);
+    }
+
+    @Test
+    void expiredContextCannotContinue() {
+        ForwardContext context = new ForwardContext(request("GET", null), 0);
+
+        assertThat(context.isExpired()).isTrue();
+        assertThat(context.canContinue()).isFalse();
+    }
+
+    @Test
+    void abandonedContextCannotContinue() {
+        ForwardContext context = new ForwardContext(request("POST", null), 5_000);
+        context.abandoned = true;
+
+        assertThat(context.canContinue()).isFalse();
+    }
+
+    @Test
+    void idempotencyFollowsTheMethod() {
+        assertThat(new ForwardContext(request("get", null), 5_000).idempotent).isTrue();
+        assertThat(new ForwardContext(request("PUT", null), 5_000).idempotent).isTrue();
+        assertThat(new ForwardContext(request("POST", null), 5_000).idempotent).isFalse();
+        assertThat(new ForwardContext(request("PATCH", null), 5_000).idempotent).isFalse();
+    }
+
+    private static ForwardRequest request(String method, Long timeoutMillis) {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl("https://target.test/");
+        request.setMethod(method);
+        request.setTimeoutMillis(timeoutMillis);
+        return request;
+    }
+}
@@ -0,0 +1,163 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardJob;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.RequestPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ForwardJobServiceTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ForwardProxyService proxyService = mock(ForwardProxyService.class);
+    private final List<String> forwarded = new CopyOnWriteArrayList<>();
+    private ForwardJobService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void configure() {
+        config.setJobWorkers(1);
+        service = new ForwardJobService(proxyService, mock(ObjectProvider.class), config,
+                new ForwardMetrics(new SimpleMeterRegistry(), config), new RestTemplateBuilder());
+        when(proxyService.forwardRequest(any())).thenAnswer(invocation -> {
+            ForwardRequest request = invocation.getArgument(0);
+            forwarded.add(request.getUrl());
+            ForwardResponse response = new ForwardResponse();
+            response.setStatusCode(200);
+            response.setBody(request.getUrl());
+            return response;
+        });
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.stop();
+    }
+
+    @Test
+    void submissionsBeyondTheQueueBoundAreRefused() {
+        config.setMaxQueuedJobs(2);
+
+        assertThat(service.submit(request("https://a.test/", null), null)).isNotNull();
+        assertThat(service.submit(request("https://b.test/", null), null)).isNotNull();
+        assertThat(service.submit(request("https://c.test/", null), null)).isNull();
+    }
+
+    @Test
+    void workersTakeHigherPriorityFirstThenOldest() throws InterruptedException {
+        service.submit(request("https://low.test/", RequestPriority.LOW), null);
+        service.submit(request("https://normal-1.test/", null), null);
+        ForwardJob last = service.submit(request("https://high.test/", RequestPriority.HIGH), null);
+        service.submit(request("https://normal-2.test/", RequestPriority.NORMAL), null);
+        assertThat(last.getPriority()).isEqualTo(RequestPriority.HIGH);
+
+        service.start();
+        awaitForwarded(4);
+
+        assertThat(forwarded).containsExactly(
+                "https://high.test/", "https://normal-1.test/", "https://normal-2.test/", "https://low.test/");
+    }
+
+    @Test
+    void completedJobCarriesItsResponse() throws InterruptedException {
+        service.start();
+        ForwardJob job = service.submit(request("https://a.test/", null), null);
+        awaitForwarded(1);
+
+        ForwardJob result = awaitStatus(job.getId(), ForwardJob.Status.COMPLETED);
+        assertThat(result.getResponse().getBody()).isEqualTo("https://a.test/");
+        assertThat(result.getStartedAt()).isNotNull();
+        assertThat(result.getCompletedAt()).isNotNull();
+    }
+
+    @Test
+    void queuedJobPastItsDeadlineExpiresWithoutBeingSent() {
+        config.setJobDeadlineSeconds(0);
+        ForwardJob job = service.submit(request("https://a.test/", null), null);
+
+        service.evictExpiredResults();
+
+        ForwardJob result = service.get(job.getId());
+        assertThat(result.getStatus()).isEqualTo(ForwardJob.Status.EXPIRED);
+        assertThat(result.getResponse().getStatusCode()).isEqualTo(504);
+        verify(proxyService, never()).forwardRequest(any());
+    }
+
+    @Test
+    void onlyQueuedJobsCanBeCancelled() throws InterruptedException {
+        ForwardJob job = service.submit(request("https://a.test/", null), null);
+        assertThat(service.cancel(job.getId()).getStatus()).isEqualTo(ForwardJob.Status.CANCELLED);
+        assertThat(service.cancel("unknown")).isNull();
+
+        service.start();
+        ForwardJob other = service.submit(request("https://b.test/", null), null);
+        awaitStatus(other.getId(), ForwardJob.Status.COMPLETED);
+        assertThat(service.cancel(other.getId()).getStatus()).isEqualTo(ForwardJob.Status.COMPLETED);
+        assertThat(forwarded).containsExactly("https://b.test/");
+    }
+
+    @Test
+    void oldestResultsAreEvictedBeyondTheRetainedLimit() {
+        config.setMaxRetainedJobs(1);
+        ForwardJob first = service.submit(request("https://a.test/", null), null);
+        ForwardJob second = service.submit(request("https://b.test/", null), null);
+
+        service.cancel(first.getId());
+        service.cancel(second.getId());
+
+        assertThat(service.get(first.getId())).isNull();
+        assertThat(service.get(second.getId()).getStatus()).isEqualTo(ForwardJob.Status.CANCELLED);
+    }
+
+    @Test
+    void resultsOlderThanTheirTtlAreEvicted() {
+        config.setJobResultTtlSeconds(-1);
+        ForwardJob job = service.submit(request("https://a.test/", null), null);
+        service.cancel(job.getId());
+
+        service.evictExpiredResults();
+
+        assertThat(service.get(job.getId())).isNull();
+    }
+
+    private void awaitForwarded(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (forwarded.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private ForwardJob awaitStatus(String id, ForwardJob.Status status) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        ForwardJob job = service.get(id);
+        while (job.getStatus() != status && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = service.get(id);
+        }
+        assertThat(job.getStatus()).isEqualTo(status);
+        return job;
+    }
+
+    private static ForwardRequest request(String url, RequestPriority priority) {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl(url);
+        request.setMethod("GET");
+        request.setPriority(priority);
+        return request;
+    }
+}
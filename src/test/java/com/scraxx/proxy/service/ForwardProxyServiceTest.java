@@ -0,0 +1,171 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ForwardProxyServiceTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ProxyManagerService proxyManager = mock(ProxyManagerService.class);
+    private final ProxyClientRegistry clientRegistry = mock(ProxyClientRegistry.class);
+    private final ProxyPerformanceTracker performanceTracker =
+            new ProxyPerformanceTracker(config, mock(ApplicationEventPublisher.class));
+    private final ForwardMetrics metrics = mock(ForwardMetrics.class);
+    private final ExecutorService upstreamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<ProxyInfo> proxies = new ArrayList<>();
+
+    private final ForwardProxyService service = new ForwardProxyService(proxyManager, config, mock(AlertService.class),
+            clientRegistry, new ForwardConcurrencyLimiter(config, mock(ForwardMetrics.class)), performanceTracker,
+            upstreamExecutor, new ForwardResponseCache(config), new RequestCoalescer(config),
+            new ForwardRateLimiter(config, performanceTracker), new RetryBudget(config), metrics);
+
+    @BeforeEach
+    void configure() {
+        config.setHedgingEnabled(true);
+        config.setHedgeDelayMillis(50);
+        config.setMaxProxyAttempts(3);
+        config.setRequestDeadlineMillis(5000);
+
+        when(proxyManager.hasHealthyProxies()).thenReturn(true);
+        when(proxyManager.awaitProxy(any(), anyLong()))
+                .thenAnswer(invocation -> invocation.<Supplier<ProxyInfo>>getArgument(0).get());
+        // Select like the real manager does on the pool path: the first untried proxy, counted in flight
+        when(proxyManager.getNextHealthyProxy(isNull(), isNull(), anySet()))
+                .thenAnswer(invocation -> select(invocation.getArgument(2)));
+        when(proxyManager.getNextHealthyProxy(any(ForwardRequest.class), anySet()))
+                .thenAnswer(invocation -> select(invocation.getArgument(1)));
+    }
+
+    @AfterEach
+    void shutdown() {
+        upstreamExecutor.shutdownNow();
+    }
+
+    @Test
+    void slowProxyIsHedgedAndTheFasterAnswerWins() throws Exception {
+        ProxyInfo slow = proxy("10.0.0.1", answeringAfter(3000, "slow"));
+        ProxyInfo fast = proxy("10.0.0.2", answeringAfter(0, "fast"));
+
+        long start = System.nanoTime();
+        ForwardResponse response = service.forwardRequest(request("GET"));
+
+        assertThat(response.getBody()).isEqualTo("fast");
+        assertThat(response.getProxyUsed()).isEqualTo(fast.getAddress());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        verify(metrics).hedge();
+        awaitIdle(slow);
+        awaitIdle(fast);
+    }
+
+    @Test
+    void fastProxyIsNotHedged() {
+        proxy("10.0.0.1", answeringAfter(0, "first"));
+        ProxyInfo second = proxy("10.0.0.2", answeringAfter(0, "second"));
+
+        ForwardResponse response = service.forwardRequest(request("GET"));
+
+        assertThat(response.getBody()).isEqualTo("first");
+        verify(metrics, never()).hedge();
+        verify(clientRegistry, never()).getProxyRestTemplate(second);
+    }
+
+    @Test
+    void nonIdempotentRequestIsNeverHedged() {
+        proxy("10.0.0.1", answeringAfter(300, "first"));
+        ProxyInfo second = proxy("10.0.0.2", answeringAfter(0, "second"));
+
+        ForwardResponse response = service.forwardRequest(request("POST"));
+
+        assertThat(response.getBody()).isEqualTo("first");
+        verify(metrics, never()).hedge();
+        verify(clientRegistry, never()).getProxyRestTemplate(second);
+    }
+
+    @Test
+    void hedgesStopAtMaxHedgesPerRequest() {
+        config.setMaxHedgesPerRequest(1);
+        proxy("10.0.0.1", answeringAfter(400, "first"));
+        proxy("10.0.0.2", answeringAfter(3000, "second"));
+        ProxyInfo third = proxy("10.0.0.3", answeringAfter(0, "third"));
+
+        ForwardResponse response = service.forwardRequest(request("GET"));
+
+        assertThat(response.getBody()).isEqualTo("first");
+        verify(clientRegistry, never()).getProxyRestTemplate(third);
+    }
+
+    private ProxyInfo select(Set<String> tried) {
+        ProxyInfo selected = proxies.stream()
+                .filter(proxy -> !tried.contains(proxy.getAddress()))
+                .findFirst()
+                .orElse(null);
+        if (selected != null) {
+            performanceTracker.get(selected).tryStartRequest(0);
+        }
+        return selected;
+    }
+
+    private void awaitIdle(ProxyInfo proxy) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (performanceTracker.get(proxy).getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(performanceTracker.get(proxy).getInFlight()).isZero();
+    }
+
+    private ProxyInfo proxy(String ip, RestTemplate template) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort("8080");
+        proxies.add(proxy);
+        when(clientRegistry.getProxyRestTemplate(proxy)).thenReturn(template);
+        return proxy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RestTemplate answeringAfter(long delayMillis, String body) {
+        RestTemplate template = mock(RestTemplate.class);
+        when(template.exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(delayMillis);
+                    return ResponseEntity.ok(body);
+                });
+        return template;
+    }
+
+    private static ForwardRequest request(String method) {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl("https://target.test/page");
+        request.setMethod(method);
+        return request;
+    }
+}
@@ -0,0 +1,86 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ForwardRateLimiterTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ProxyPerformanceTracker performanceTracker =
+            new ProxyPerformanceTracker(config, mock(ApplicationEventPublisher.class));
+    private final ForwardRateLimiter rateLimiter = new ForwardRateLimiter(config, performanceTracker);
+
+    @BeforeEach
+    void configure() {
+        config.setRateLimitMode(ProxyConfigProperties.RateLimitMode.REJECT);
+        config.setHostRateLimitPerSecond(1);
+        config.setHostRateLimitBurst(1);
+    }
+
+    @Test
+    void hostsHaveSeparateBudgets() {
+        assertThat(rateLimiter.acquireHost("https://a.test/one")).isTrue();
+        assertThat(rateLimiter.acquireHost("https://A.test/two")).isFalse();
+        assertThat(rateLimiter.acquireHost("https://b.test/")).isTrue();
+        assertThat(rateLimiter.getRateLimitedRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void refundedHostPermitAdmitsTheNextRequest() {
+        assertThat(rateLimiter.acquireHost("https://a.test/")).isTrue();
+
+        rateLimiter.refundHost("https://a.test/");
+
+        assertThat(rateLimiter.acquireHost("https://a.test/")).isTrue();
+        assertThat(rateLimiter.acquireHost("https://a.test/")).isFalse();
+    }
+
+    @Test
+    void unlimitedHostsAreNeverRefused() {
+        config.setHostRateLimitPerSecond(0);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(rateLimiter.acquireHost("https://a.test/")).isTrue();
+        }
+        rateLimiter.refundHost("https://a.test/");
+    }
+
+    @Test
+    void proxyInFlightCapHoldsUntilRefunded() {
+        config.setMaxInFlightPerProxy(2);
+        ProxyInfo proxy = proxy();
+
+        assertThat(rateLimiter.tryAcquireProxy(proxy)).isTrue();
+        assertThat(rateLimiter.tryAcquireProxy(proxy)).isTrue();
+        assertThat(rateLimiter.tryAcquireProxy(proxy)).isFalse();
+
+        rateLimiter.refundProxy(proxy);
+
+        assertThat(rateLimiter.tryAcquireProxy(proxy)).isTrue();
+        assertThat(performanceTracker.get(proxy).getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void throttledProxyGivesBackItsInFlightSlot() {
+        config.setProxyRateLimitPerSecond(1);
+        config.setProxyRateLimitBurst(1);
+        ProxyInfo proxy = proxy();
+
+        assertThat(rateLimiter.tryAcquireProxy(proxy)).isTrue();
+        assertThat(rateLimiter.tryAcquireProxy(proxy)).isFalse();
+
+        assertThat(performanceTracker.get(proxy).getInFlight()).isEqualTo(1);
+    }
+
+    private static ProxyInfo proxy() {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp("10.0.0.1");
+        proxy.setPort("8080");
+        return proxy;
+    }
+}
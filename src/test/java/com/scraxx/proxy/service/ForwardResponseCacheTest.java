@@ -0,0 +1,159 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.Header;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ForwardResponseCacheTest {
+    private final ProxyConfigProperties config = enabledConfig();
+    private final ForwardResponseCache cache = new ForwardResponseCache(config);
+    private final ForwardRequest request = request("GET");
+    private final String key = cache.keyFor(request);
+
+    @Test
+    void onlyPlainGetAndHeadRequestsAreCacheable() {
+        assertThat(cache.isCacheable(request)).isTrue();
+        assertThat(cache.isCacheable(request("head"))).isTrue();
+        assertThat(cache.isCacheable(request("POST"))).isFalse();
+
+        ForwardRequest withCookie = request("GET");
+        withCookie.setHeaders(List.of(header("Cookie", "id=1")));
+        assertThat(cache.isCacheable(withCookie)).isFalse();
+
+        ForwardRequest noStore = request("GET");
+        noStore.setHeaders(List.of(header("Cache-Control", "no-store")));
+        assertThat(cache.isCacheable(noStore)).isFalse();
+    }
+
+    @Test
+    void freshResponseIsServedFromCache() {
+        cache.store(key, request, response(200, "body", header("Cache-Control", "max-age=60")));
+
+        ForwardResponseCache.CachedResponse entry = cache.get(key, request);
+
+        assertThat(entry).isNotNull();
+        assertThat(entry.isFresh()).isTrue();
+        ForwardResponse hit = cache.serveHit(entry);
+        assertThat(hit.getBody()).isEqualTo("body");
+        assertThat(hit.isServedFromCache()).isTrue();
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void ageShortensFreshness() {
+        cache.store(key, request, response(200, "body",
+                header("Cache-Control", "max-age=60"), header("Age", "60"), header("ETag", "\"v1\"")));
+
+        assertThat(cache.get(key, request).isFresh()).isFalse();
+    }
+
+    @Test
+    void unstorableResponsesAreNotCached() {
+        cache.store(key, request, response(200, "body", header("Cache-Control", "max-age=60, private")));
+        cache.store(key, request, response(200, "body", header("Cache-Control", "no-store")));
+        cache.store(key, request, response(200, "body", header("Cache-Control", "max-age=60"),
+                header("Set-Cookie", "session=abc")));
+        cache.store(key, request, response(500, "body", header("Cache-Control", "max-age=60")));
+        // Neither fresh nor revalidatable
+        cache.store(key, request, response(200, "body"));
+
+        assertThat(cache.get(key, request)).isNull();
+    }
+
+    @Test
+    void staleEntryWithValidatorsIsKeptForRevalidation() {
+        cache.store(key, request, response(200, "body", header("Cache-Control", "no-cache"),
+                header("ETag", "\"v1\""), header("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT")));
+
+        ForwardResponseCache.CachedResponse entry = cache.get(key, request);
+        assertThat(entry.isFresh()).isFalse();
+
+        ForwardRequest conditional = cache.conditionalRequest(request, entry);
+        assertThat(conditional.getHeaders()).extracting(Header::getName)
+                .contains("If-None-Match", "If-Modified-Since");
+    }
+
+    @Test
+    void notModifiedRefreshesTheEntry() {
+        cache.store(key, request, response(200, "body", header("Cache-Control", "no-cache"), header("ETag", "\"v1\"")));
+        ForwardResponseCache.CachedResponse stale = cache.get(key, request);
+
+        ForwardResponse served = cache.revalidated(key, stale,
+                response(304, null, header("Cache-Control", "max-age=60"), header("ETag", "\"v1\"")));
+
+        assertThat(served.getStatusCode()).isEqualTo(200);
+        assertThat(served.getBody()).isEqualTo("body");
+        assertThat(cache.get(key, request).isFresh()).isTrue();
+        assertThat(cache.getRevalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void notModifiedWithSetCookieDropsTheEntry() {
+        cache.store(key, request, response(200, "body", header("Cache-Control", "no-cache"), header("ETag", "\"v1\"")));
+        ForwardResponseCache.CachedResponse stale = cache.get(key, request);
+
+        ForwardResponse served = cache.revalidated(key, stale,
+                response(304, null, header("Cache-Control", "max-age=60"), header("Set-Cookie", "session=abc")));
+
+        assertThat(served.getBody()).isEqualTo("body");
+        assertThat(served.isServedFromCache()).isFalse();
+        assertThat(served.getHeaders()).extracting(Header::getName).contains("Set-Cookie");
+        assertThat(cache.get(key, request)).isNull();
+    }
+
+    @Test
+    void notModifiedMarkedPrivateDropsTheEntry() {
+        cache.store(key, request, response(200, "body", header("Cache-Control", "no-cache"), header("ETag", "\"v1\"")));
+
+        cache.revalidated(key, cache.get(key, request), response(304, null, header("Cache-Control", "private, max-age=60")));
+
+        assertThat(cache.get(key, request)).isNull();
+    }
+
+    @Test
+    void varyHeadersMustMatch() {
+        ForwardRequest english = request("GET");
+        english.setHeaders(List.of(header("X-Locale", "en")));
+        ForwardRequest german = request("GET");
+        german.setHeaders(List.of(header("X-Locale", "de")));
+        cache.store(key, english, response(200, "hello", header("Cache-Control", "max-age=60"), header("Vary", "X-Locale")));
+
+        assertThat(cache.get(key, english)).isNotNull();
+        assertThat(cache.get(key, german)).isNull();
+    }
+
+    private static ProxyConfigProperties enabledConfig() {
+        ProxyConfigProperties config = new ProxyConfigProperties();
+        config.setResponseCacheEnabled(true);
+        return config;
+    }
+
+    private static ForwardRequest request(String method) {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl("https://target.test/page");
+        request.setMethod(method);
+        return request;
+    }
+
+    private static ForwardResponse response(int status, String body, Header... headers) {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(status);
+        response.setBody(body);
+        response.setHeaders(new ArrayList<>(List.of(headers)));
+        return response;
+    }
+
+    private static Header header(String name, String value) {
+        Header header = new Header();
+        header.setName(name);
+        header.setValue(value);
+        return header;
+    }
+}
@@ -0,0 +1,131 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.model.RoutingConstraints;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HealthyProxyIndexTest {
+    private final ProxyInfo usHttpElite = proxy("10.0.0.1", "US", List.of("http", "https"), "elite");
+    private final ProxyInfo usSocksAnonymous = proxy("10.0.0.2", "us", List.of("SOCKS5"), "anonymous");
+    private final ProxyInfo inHttpTransparent = proxy("10.0.0.3", "IN", List.of("http"), "transparent");
+    private final ProxyInfo unknown = proxy("10.0.0.4", null, null, null);
+    private final ProxyInfo[] all = {usHttpElite, usSocksAnonymous, inHttpTransparent, unknown};
+
+    private final Map<ProxyInfo, Double> latency = new HashMap<>();
+    private final HealthyProxyIndex index = new HealthyProxyIndex(all, proxy -> latency.getOrDefault(proxy, 0.0));
+
+    @Test
+    void unconstrainedRequestGetsEveryProxy() {
+        assertThat(index.candidates(null)).isSameAs(all);
+        assertThat(index.candidates(new RoutingConstraints())).isSameAs(all);
+    }
+
+    @Test
+    void countryMatchIgnoresCaseAndWhitespace() {
+        assertThat(index.candidates(routing(" us ", null, null, null)))
+                .containsExactlyInAnyOrder(usHttpElite, usSocksAnonymous);
+    }
+
+    @Test
+    void protocolMatchIgnoresCase() {
+        assertThat(index.candidates(routing(null, "socks5", null, null))).containsExactly(usSocksAnonymous);
+        assertThat(index.candidates(routing(null, "HTTP", null, null)))
+                .containsExactlyInAnyOrder(usHttpElite, inHttpTransparent);
+    }
+
+    @Test
+    void minAnonymityAcceptsThatLevelAndAbove() {
+        assertThat(index.candidates(routing(null, null, "anonymous", null)))
+                .containsExactlyInAnyOrder(usHttpElite, usSocksAnonymous);
+        assertThat(index.candidates(routing(null, null, "elite", null))).containsExactly(usHttpElite);
+        assertThat(index.candidates(routing(null, null, "transparent", null)))
+                .containsExactlyInAnyOrder(usHttpElite, usSocksAnonymous, inHttpTransparent);
+    }
+
+    @Test
+    void constraintsCombine() {
+        assertThat(index.candidates(routing("US", "http", null, null))).containsExactly(usHttpElite);
+        assertThat(index.candidates(routing("IN", "socks5", null, null))).isEmpty();
+        assertThat(index.candidates(routing("FR", null, null, null))).isEmpty();
+    }
+
+    @Test
+    void latencyBoundFollowsCurrentLatency() {
+        RoutingConstraints fastUs = routing("US", null, null, 100);
+        latency.put(usHttpElite, 50.0);
+        latency.put(usSocksAnonymous, 500.0);
+        assertThat(index.candidates(fastUs)).containsExactly(usHttpElite);
+
+        // Same snapshot, latencies moved on: the bound must not have been memoized
+        latency.put(usHttpElite, 500.0);
+        latency.put(usSocksAnonymous, 50.0);
+        assertThat(index.candidates(fastUs)).containsExactly(usSocksAnonymous);
+    }
+
+    @Test
+    void matchingIgnoresLatencyAndKeepsItsArray() {
+        RoutingConstraints fastUs = routing("US", null, null, 100);
+        latency.put(usHttpElite, 50.0);
+        latency.put(usSocksAnonymous, 500.0);
+
+        assertThat(index.matching(fastUs)).isSameAs(index.matching(fastUs))
+                .containsExactlyInAnyOrder(usHttpElite, usSocksAnonymous);
+        assertThat(index.matching(routing(null, null, null, 100))).isSameAs(all);
+        assertThat(List.of(all).stream().filter(index.latencyFilter(fastUs)).toList())
+                .containsExactly(usHttpElite, inHttpTransparent, unknown);
+    }
+
+    @Test
+    void filterAgreesWithCandidates() {
+        latency.put(usSocksAnonymous, 500.0);
+        RoutingConstraints constraints = routing("US", null, "anonymous", 100);
+
+        assertThat(List.of(all).stream().filter(index.filter(constraints)).toList())
+                .containsExactly(index.candidates(constraints));
+        assertThat(List.of(all).stream().filter(index.filter(null)).toList()).containsExactly(all);
+    }
+
+    @Test
+    void unknownAnonymityLevelIsRejected() {
+        assertThatThrownBy(() -> index.candidates(routing(null, null, "stealthy", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sessionRingIsBuiltOncePerSnapshot() {
+        assertThat(index.sessionRing(10)).isSameAs(index.sessionRing(10));
+    }
+
+    @Test
+    void emptyIndexHasNoCandidates() {
+        assertThat(HealthyProxyIndex.EMPTY.all()).isEmpty();
+        assertThat(HealthyProxyIndex.EMPTY.candidates(routing("US", null, null, null))).isEmpty();
+    }
+
+    private static RoutingConstraints routing(String country, String protocol, String minAnonymity,
+                                              Integer maxResponseTimeMillis) {
+        RoutingConstraints constraints = new RoutingConstraints();
+        constraints.setCountry(country);
+        constraints.setProtocol(protocol);
+        constraints.setMinAnonymity(minAnonymity);
+        constraints.setMaxResponseTimeMillis(maxResponseTimeMillis);
+        return constraints;
+    }
+
+    private static ProxyInfo proxy(String ip, String country, List<String> protocols, String anonymityLevel) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort("8080");
+        proxy.setCountry(country);
+        proxy.setProtocols(protocols);
+        proxy.setAnonymityLevel(anonymityLevel);
+        return proxy;
+    }
+}
@@ -0,0 +1,134 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.service.ProxyCircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProxyCircuitBreakerTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final List<String> transitions = new ArrayList<>();
+    private ProxyCircuitBreaker breaker;
+
+    @BeforeEach
+    void configure() {
+        config.setCircuitBreakerWindowSize(10);
+        config.setCircuitBreakerMinimumCalls(4);
+        config.setCircuitBreakerFailureRateThreshold(50);
+        config.setCircuitBreakerSlowCallMillis(1000);
+        config.setCircuitBreakerSlowCallRateThreshold(75);
+        config.setCircuitBreakerHalfOpenTrialCalls(2);
+        breaker = new ProxyCircuitBreaker(config, (from, to) -> transitions.add(from + "->" + to));
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void opensAtFailureRateThreshold() {
+        breaker.onSuccess(10);
+        breaker.onFailure();
+        breaker.onSuccess(10);
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.isSelectable()).isFalse();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(transitions).containsExactly("CLOSED->OPEN");
+    }
+
+    @Test
+    void opensWhenTooManyCallsAreSlow() {
+        breaker.onSuccess(5000);
+        breaker.onSuccess(5000);
+        breaker.onSuccess(5000);
+        breaker.onSuccess(10);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        config.setCircuitBreakerMinimumCalls(10);
+        record(4, false);
+        record(10, true);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+        // Had the first four failures stayed in the window, these would make eight in ten
+        record(4, false);
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void halfOpenAllowsLimitedTrialsAndClosesOnSuccess() {
+        breaker.restore(State.HALF_OPEN, 0);
+
+        assertThat(breaker.isSelectable()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess(10);
+        breaker.onSuccess(10);
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(transitions).containsExactly("OPEN->HALF_OPEN", "HALF_OPEN->CLOSED");
+    }
+
+    @Test
+    void failedTrialReopens() {
+        breaker.restore(State.HALF_OPEN, 0);
+        breaker.tryAcquirePermission();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.getOpenUntilMillis()).isGreaterThan(System.currentTimeMillis());
+    }
+
+    @Test
+    void restoredOpenBreakerKeepsItsDeadline() {
+        long openUntil = System.currentTimeMillis() + 60_000;
+
+        breaker.restore(State.OPEN, openUntil);
+
+        assertThat(breaker.getOpenUntilMillis()).isEqualTo(openUntil);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(transitions).isEmpty();
+    }
+
+    @Test
+    void disabledBreakerNeverOpens() {
+        config.setCircuitBreakerEnabled(false);
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure();
+        }
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private void record(int calls, boolean success) {
+        for (int i = 0; i < calls; i++) {
+            if (success) {
+                breaker.onSuccess(10);
+            } else {
+                breaker.onFailure();
+            }
+        }
+    }
+}
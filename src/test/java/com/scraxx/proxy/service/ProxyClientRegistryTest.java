@@ -0,0 +1,66 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ProxyClientRegistryTest {
+    private final ProxyClientRegistry registry = new ProxyClientRegistry(new ProxyConfigProperties(),
+            mock(ForwardMetrics.class), mock(CachingDnsResolver.class));
+    private final ProxyInfo kept = proxy("10.0.0.1");
+    private final ProxyInfo removed = proxy("10.0.0.2");
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void clientIsReusedPerProxy() {
+        assertThat(registry.getProxyRequestFactory(kept)).isSameAs(registry.getProxyRequestFactory(kept));
+        assertThat(registry.getProxyRequestFactory(kept)).isNotSameAs(registry.getProxyRequestFactory(removed));
+    }
+
+    @Test
+    void removedProxyLosesItsClient() {
+        registry.getProxyRequestFactory(kept);
+        registry.getProxyRequestFactory(removed);
+
+        registry.onProxyListRefreshed(new ProxyListRefreshedEvent(List.of(kept), List.of(removed)));
+
+        assertThat(registry.pooledAddresses()).containsExactly(kept.getAddress());
+    }
+
+    @Test
+    void lateRequestThroughRemovedProxyIsServedButNotPooled() {
+        registry.onProxyListRefreshed(new ProxyListRefreshedEvent(List.of(kept), List.of(removed)));
+
+        assertThat(registry.getProxyRequestFactory(removed)).isNotNull();
+
+        assertThat(registry.pooledAddresses()).isEmpty();
+    }
+
+    @Test
+    void strayClientIsReleasedOnTheNextRefresh() {
+        registry.getProxyRequestFactory(removed);
+
+        // Listed neither as current nor as removed, as when the client was created after the removal
+        registry.onProxyListRefreshed(new ProxyListRefreshedEvent(List.of(kept), List.of()));
+
+        assertThat(registry.pooledAddresses()).isEmpty();
+    }
+
+    private static ProxyInfo proxy(String ip) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort("8080");
+        return proxy;
+    }
+}
@@ -0,0 +1,98 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProxyHealthProbeTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final CachingDnsResolver dnsResolver = mock(CachingDnsResolver.class);
+    private final ProxyHealthProbe probe = new ProxyHealthProbe(config, dnsResolver);
+    private ServerSocket server;
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void hostWithoutAddressesFailsAsUnknown() throws UnknownHostException {
+        when(dnsResolver.resolve("empty.test")).thenReturn(new InetAddress[0]);
+
+        assertThatThrownBy(() -> probe.probe(proxy("empty.test", 8080)))
+                .isInstanceOf(UnknownHostException.class)
+                .hasMessageContaining("empty.test");
+    }
+
+    @Test
+    void acceptingProxyPassesTcpCheck() throws IOException {
+        int port = serve(null);
+
+        assertThatCode(() -> probe.probe(proxy("127.0.0.1", port))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void refusedConnectFailsHttpCheck() throws IOException {
+        config.setHealthCheckMode(ProxyConfigProperties.HealthCheckMode.HTTP_CONNECT);
+        int port = serve("HTTP/1.1 403 Forbidden\r\n\r\n");
+
+        assertThatThrownBy(() -> probe.probe(proxy("127.0.0.1", port)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("403");
+    }
+
+    @Test
+    void establishedTunnelPassesHttpCheck() throws IOException {
+        config.setHealthCheckMode(ProxyConfigProperties.HealthCheckMode.HTTP_CONNECT);
+        int port = serve("HTTP/1.1 200 Connection Established\r\n\r\n");
+
+        assertThatCode(() -> probe.probe(proxy("127.0.0.1", port))).doesNotThrowAnyException();
+    }
+
+    /**
+     * Starts a one-connection proxy that answers its CONNECT with the given response, or just accepts when it is null.
+     */
+    private int serve(String response) throws IOException {
+        when(dnsResolver.resolve("127.0.0.1")).thenReturn(new InetAddress[]{InetAddress.getLoopbackAddress()});
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(() -> {
+            try (Socket socket = server.accept()) {
+                if (response != null) {
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    while (!in.readLine().isEmpty()) {
+                        // Skip the CONNECT head
+                    }
+                    socket.getOutputStream().write(response.getBytes(StandardCharsets.US_ASCII));
+                }
+            } catch (IOException | NullPointerException e) {
+                // Closed by the test, or the probe hung up
+            }
+        });
+        return server.getLocalPort();
+    }
+
+    private static ProxyInfo proxy(String host, int port) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(host);
+        proxy.setPort(String.valueOf(port));
+        return proxy;
+    }
+}
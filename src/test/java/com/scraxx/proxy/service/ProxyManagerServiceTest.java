@@ -0,0 +1,134 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.event.ProxyListRefreshedEvent;
+import com.scraxx.proxy.model.ProxyInfo;
+import com.scraxx.proxy.model.RoutingConstraints;
+import com.scraxx.proxy.service.selection.RoundRobinSelectionStrategy;
+import com.scraxx.proxy.service.source.ProxySource;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProxyManagerServiceTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ProxyPerformanceTracker performanceTracker = new ProxyPerformanceTracker(config, eventPublisher);
+    private final ProxyManagerService manager = new ProxyManagerService(config, mock(AlertService.class),
+            eventPublisher, mock(ForwardConcurrencyLimiter.class), mock(ForwardResponseCache.class),
+            mock(RequestCoalescer.class), new ForwardRateLimiter(config, performanceTracker), mock(RetryBudget.class),
+            mock(ForwardMetrics.class), new RoundRobinSelectionStrategy(), mock(ProxySource.class),
+            mock(ProxyHealthProbe.class), performanceTracker, mock(ProxyStateStore.class), mock(TaskScheduler.class));
+
+    @Test
+    void knownProxiesKeepTheirStateAndGetFreshMetadata() {
+        ProxyInfo known = proxy("10.0.0.1", "US");
+        manager.mergeProxies(List.of(known));
+        Instant nextCheck = Instant.now().plusSeconds(600);
+        known.setConsecutiveFailures(2);
+        known.setNextHealthCheck(nextCheck);
+
+        manager.mergeProxies(List.of(proxy("10.0.0.1", "DE")));
+
+        assertThat(manager.getHealthyProxies()).singleElement().satisfies(merged -> {
+            assertThat(merged).isSameAs(known);
+            assertThat(merged.getCountry()).isEqualTo("DE");
+            assertThat(merged.getConsecutiveFailures()).isEqualTo(2);
+            assertThat(merged.getNextHealthCheck()).isEqualTo(nextCheck);
+        });
+    }
+
+    @Test
+    void publishesAddedAndRemovedProxies() {
+        manager.mergeProxies(List.of(proxy("10.0.0.1", null), proxy("10.0.0.2", null)));
+
+        manager.mergeProxies(List.of(proxy("10.0.0.2", null), proxy("10.0.0.3", null)));
+
+        ArgumentCaptor<ProxyListRefreshedEvent> events = ArgumentCaptor.forClass(ProxyListRefreshedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        ProxyListRefreshedEvent refresh = events.getAllValues().get(1);
+        assertThat(refresh.getRemovedProxies()).extracting(ProxyInfo::getAddress).containsExactly("10.0.0.1:8080");
+        assertThat(refresh.getCurrentProxies()).extracting(ProxyInfo::getAddress)
+                .containsExactly("10.0.0.2:8080", "10.0.0.3:8080");
+    }
+
+    @Test
+    void unchangedListPublishesNothing() {
+        manager.mergeProxies(List.of(proxy("10.0.0.1", null)));
+        clearInvocations(eventPublisher);
+
+        manager.mergeProxies(List.of(proxy("10.0.0.1", "US")));
+
+        verify(eventPublisher, never()).publishEvent(any(ProxyListRefreshedEvent.class));
+    }
+
+    @Test
+    void duplicateAddressesAreMergedOnce() {
+        ProxyInfo first = proxy("10.0.0.1", "US");
+
+        manager.mergeProxies(List.of(first, proxy("10.0.0.1", "DE"), proxy("10.0.0.2", null)));
+
+        assertThat(manager.getHealthyProxies()).extracting(ProxyInfo::getAddress)
+                .containsExactly("10.0.0.1:8080", "10.0.0.2:8080");
+        assertThat(manager.getHealthyProxies().get(0)).isSameAs(first);
+    }
+
+    @Test
+    void unhealthyProxiesStayOutOfTheHealthySnapshot() {
+        ProxyInfo down = proxy("10.0.0.1", null);
+        down.setHealthy(false);
+
+        manager.mergeProxies(List.of(down, proxy("10.0.0.2", null)));
+
+        assertThat(manager.getHealthyProxies()).extracting(ProxyInfo::getAddress).containsExactly("10.0.0.2:8080");
+    }
+
+    @Test
+    void retriesSkipProxiesAlreadyTried() {
+        manager.mergeProxies(List.of(proxy("10.0.0.1", null), proxy("10.0.0.2", null), proxy("10.0.0.3", null)));
+        Set<String> tried = new HashSet<>(Set.of("10.0.0.1:8080", "10.0.0.3:8080"));
+
+        for (int i = 0; i < 10; i++) {
+            ProxyInfo selected = manager.getNextHealthyProxy(null, null, tried);
+            assertThat(selected.getAddress()).isEqualTo("10.0.0.2:8080");
+            manager.releaseUnused(selected);
+        }
+
+        tried.add("10.0.0.2:8080");
+        assertThat(manager.getNextHealthyProxy(null, null, tried)).isNull();
+    }
+
+    @Test
+    void triedProxiesAreSkippedWithinConstraintsToo() {
+        manager.mergeProxies(List.of(proxy("10.0.0.1", "US"), proxy("10.0.0.2", "US"), proxy("10.0.0.3", "DE")));
+        RoutingConstraints us = new RoutingConstraints();
+        us.setCountry("US");
+
+        ProxyInfo selected = manager.getNextHealthyProxy(us, null, Set.of("10.0.0.1:8080"));
+
+        assertThat(selected.getAddress()).isEqualTo("10.0.0.2:8080");
+        assertThat(manager.getNextHealthyProxy(us, null, Set.of("10.0.0.1:8080", "10.0.0.2:8080"))).isNull();
+    }
+
+    private static ProxyInfo proxy(String ip, String country) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort("8080");
+        proxy.setCountry(country);
+        return proxy;
+    }
+}
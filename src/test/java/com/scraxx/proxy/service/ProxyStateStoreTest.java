@@ -0,0 +1,149 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ProxyStateStoreTest {
+    @TempDir
+    Path directory;
+
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private Path file;
+
+    @BeforeEach
+    void configure() {
+        file = directory.resolve("proxy-state.bin");
+        config.setProxyStateFile(file.toString());
+    }
+
+    @Test
+    void restoresWhatWasSaved() {
+        Instant lastCheck = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        ProxyInfo down = proxy("10.0.0.1");
+        down.setHealthy(false);
+        down.setConsecutiveFailures(3);
+        down.setLastHealthCheck(lastCheck);
+        down.setNextHealthCheck(lastCheck.plusSeconds(120));
+        ProxyInfo up = proxy("10.0.0.2");
+        ProxyPerformanceTracker savingTracker = tracker();
+        savingTracker.get(down).restore(250.0, 0.4);
+        long openUntil = System.currentTimeMillis() + 60_000;
+        savingTracker.get(down).getCircuitBreaker().restore(ProxyCircuitBreaker.State.OPEN, openUntil);
+        savingTracker.get(up).restore(40.0, 0.99);
+        new ProxyStateStore(config, savingTracker).save(List.of(down, up));
+
+        ProxyPerformanceTracker restoringTracker = tracker();
+        ProxyInfo restoredDown = proxy("10.0.0.1");
+        ProxyInfo restoredUp = proxy("10.0.0.2");
+        int restored = new ProxyStateStore(config, restoringTracker).restore(List.of(restoredDown, restoredUp));
+
+        assertThat(restored).isEqualTo(2);
+        assertThat(restoredDown.isHealthy()).isFalse();
+        assertThat(restoredDown.getConsecutiveFailures()).isEqualTo(3);
+        assertThat(restoredDown.getLastHealthCheck()).isEqualTo(lastCheck);
+        assertThat(restoredDown.getNextHealthCheck()).isEqualTo(lastCheck.plusSeconds(120));
+        assertThat(restoringTracker.get(restoredDown).getEwmaLatencyMillis()).isEqualTo(250.0);
+        assertThat(restoringTracker.get(restoredDown).getEwmaSuccessRate()).isEqualTo(0.4);
+        assertThat(restoringTracker.get(restoredDown).getCircuitBreaker().getState())
+                .isEqualTo(ProxyCircuitBreaker.State.OPEN);
+        assertThat(restoringTracker.get(restoredDown).getCircuitBreaker().getOpenUntilMillis()).isEqualTo(openUntil);
+        assertThat(restoredUp.isHealthy()).isTrue();
+        assertThat(restoredUp.getLastHealthCheck()).isNull();
+        assertThat(restoringTracker.get(restoredUp).getEwmaLatencyMillis()).isEqualTo(40.0);
+    }
+
+    @Test
+    void ignoresProxiesNoLongerListed() {
+        ProxyInfo gone = proxy("10.0.0.1");
+        gone.setHealthy(false);
+        new ProxyStateStore(config, tracker()).save(List.of(gone, proxy("10.0.0.2")));
+
+        ProxyInfo kept = proxy("10.0.0.2");
+        int restored = new ProxyStateStore(config, tracker()).restore(List.of(kept, proxy("10.0.0.3")));
+
+        assertThat(restored).isEqualTo(1);
+    }
+
+    @Test
+    void truncatedSnapshotChangesNothing() throws IOException {
+        ProxyInfo down = proxy("10.0.0.1");
+        down.setHealthy(false);
+        new ProxyStateStore(config, tracker()).save(List.of(down, proxy("10.0.0.2")));
+        byte[] saved = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(saved, saved.length - 10));
+
+        ProxyInfo restoredDown = proxy("10.0.0.1");
+        int restored = new ProxyStateStore(config, tracker()).restore(List.of(restoredDown, proxy("10.0.0.2")));
+
+        assertThat(restored).isZero();
+        // The first record was intact, but nothing is applied unless the whole snapshot reads
+        assertThat(restoredDown.isHealthy()).isTrue();
+    }
+
+    @Test
+    void ignoresStaleSnapshot() {
+        ProxyInfo down = proxy("10.0.0.1");
+        down.setHealthy(false);
+        new ProxyStateStore(config, tracker()).save(List.of(down));
+        config.setProxyStateMaxAgeMinutes(0);
+
+        ProxyInfo restoredDown = proxy("10.0.0.1");
+        assertThat(new ProxyStateStore(config, tracker()).restore(List.of(restoredDown))).isZero();
+        assertThat(restoredDown.isHealthy()).isTrue();
+    }
+
+    @Test
+    void ignoresForeignAndMissingFiles() throws IOException {
+        assertThat(new ProxyStateStore(config, tracker()).restore(List.of(proxy("10.0.0.1")))).isZero();
+
+        Files.writeString(file, "not a snapshot");
+        assertThat(new ProxyStateStore(config, tracker()).restore(List.of(proxy("10.0.0.1")))).isZero();
+    }
+
+    @Test
+    void saveLeavesNoTemporaryFiles() throws IOException {
+        ProxyStateStore store = new ProxyStateStore(config, tracker());
+        store.save(List.of(proxy("10.0.0.1")));
+        store.save(List.of(proxy("10.0.0.1")));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        config.setProxyStatePersistenceEnabled(false);
+
+        new ProxyStateStore(config, tracker()).save(List.of(proxy("10.0.0.1")));
+
+        assertThat(file).doesNotExist();
+    }
+
+    private ProxyPerformanceTracker tracker() {
+        return new ProxyPerformanceTracker(config, mock(ApplicationEventPublisher.class));
+    }
+
+    private static ProxyInfo proxy(String ip) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort("8080");
+        return proxy;
+    }
+}
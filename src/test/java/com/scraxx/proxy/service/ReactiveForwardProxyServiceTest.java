@@ -0,0 +1,79 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.Header;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ReactiveForwardProxyServiceTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ReactiveProxyClientRegistry clientRegistry = mock(ReactiveProxyClientRegistry.class);
+    private final ForwardResponseCache responseCache = new ForwardResponseCache(config);
+    private final ForwardMetrics metrics = mock(ForwardMetrics.class);
+    private final ReactiveForwardProxyService service = new ReactiveForwardProxyService(mock(ProxyManagerService.class),
+            config, mock(AlertService.class), clientRegistry, mock(ForwardConcurrencyLimiter.class),
+            mock(ProxyPerformanceTracker.class), responseCache, mock(ForwardRateLimiter.class), mock(RetryBudget.class),
+            metrics);
+
+    @Test
+    void freshCachedResponseIsServedWithoutGoingUpstream() {
+        config.setResponseCacheEnabled(true);
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl("https://target.test/page");
+        request.setMethod("GET");
+        responseCache.store(responseCache.keyFor(request), request, cacheableResponse());
+
+        ForwardResponse response = service.forwardRequest(request).block();
+
+        assertThat(response.isServedFromCache()).isTrue();
+        assertThat(response.getBody()).isEqualTo("body");
+        verifyNoInteractions(clientRegistry);
+        verify(metrics).recordForward(argThat(ForwardResponse::isServedFromCache), anyLong());
+    }
+
+    @Test
+    void startupFailsWhenCoalescingIsEnabled() {
+        config.setCoalescingEnabled(true);
+
+        assertThatThrownBy(service::checkSupportedFeatures).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void startupFailsWhenHedgingIsEnabled() {
+        config.setHedgingEnabled(true);
+
+        assertThatThrownBy(service::checkSupportedFeatures).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void defaultFeaturesAreSupported() {
+        config.setResponseCacheEnabled(true);
+
+        assertThatCode(service::checkSupportedFeatures).doesNotThrowAnyException();
+    }
+
+    private static ForwardResponse cacheableResponse() {
+        Header cacheControl = new Header();
+        cacheControl.setName("Cache-Control");
+        cacheControl.setValue("max-age=60");
+
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(200);
+        response.setBody("body");
+        response.setHeaders(List.of(cacheControl));
+        response.setProxyUsed("10.0.0.1:8080");
+        return response;
+    }
+}
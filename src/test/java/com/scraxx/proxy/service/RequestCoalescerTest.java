@@ -0,0 +1,165 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardRequest;
+import com.scraxx.proxy.model.ForwardResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final RequestCoalescer coalescer = new RequestCoalescer(config);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseLeader = new CountDownLatch(1);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @BeforeEach
+    void configure() {
+        config.setCoalescingEnabled(true);
+    }
+
+    @AfterEach
+    void shutdown() {
+        releaseLeader.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void onlyConfiguredMethodsAreCoalescable() {
+        assertThat(coalescer.isCoalescable(request("get"))).isTrue();
+        assertThat(coalescer.isCoalescable(request("POST"))).isFalse();
+
+        config.setCoalescingEnabled(false);
+        assertThat(coalescer.isCoalescable(request("GET"))).isFalse();
+    }
+
+    @Test
+    void waiterSharesTheLeadersResponse() throws Exception {
+        Future<ForwardResponse> leader = startLeader(response(200, "10.0.0.1:8080"));
+        Future<ForwardResponse> waiter = joinWaiter();
+
+        releaseLeader.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(200);
+        ForwardResponse shared = waiter.get(5, TimeUnit.SECONDS);
+        assertThat(shared.getStatusCode()).isEqualTo(200);
+        assertThat(shared).isNotSameAs(leader.get());
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void waiterGivesUpAtItsOwnDeadline() throws Exception {
+        config.setRequestDeadlineMillis(200);
+        startLeader(response(200, "10.0.0.1:8080"));
+
+        ForwardResponse response = joinWaiter().get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getStatusCode()).isEqualTo(504);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void waiterGoesUpstreamItselfWhenTheLeaderWasShed() throws Exception {
+        startLeader(response(503, null));
+        Future<ForwardResponse> waiter = joinWaiter();
+
+        releaseLeader.countDown();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(200);
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void waiterGoesUpstreamItselfWhenTheLeaderWasRateLimited() throws Exception {
+        startLeader(response(429, null));
+        Future<ForwardResponse> waiter = joinWaiter();
+
+        releaseLeader.countDown();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(200);
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void upstreamUnavailableAnswerIsShared() throws Exception {
+        startLeader(response(503, "10.0.0.1:8080"));
+        Future<ForwardResponse> waiter = joinWaiter();
+
+        releaseLeader.countDown();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(503);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void waitersBeyondTheCapGoUpstream() throws Exception {
+        config.setMaxCoalescedWaiters(0);
+        startLeader(response(200, "10.0.0.1:8080"));
+
+        ForwardResponse response = coalescer.execute(request("GET"), counting(response(200, "10.0.0.2:8080")));
+
+        assertThat(response.getProxyUsed()).isEqualTo("10.0.0.2:8080");
+        assertThat(coalescer.getCoalescedRequests()).isZero();
+    }
+
+    private Future<ForwardResponse> startLeader(ForwardResponse answer) throws InterruptedException {
+        Future<ForwardResponse> leader = executor.submit(() -> coalescer.execute(request("GET"), forwarded -> {
+            upstreamCalls.incrementAndGet();
+            leaderStarted.countDown();
+            try {
+                releaseLeader.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return answer;
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        return leader;
+    }
+
+    private Future<ForwardResponse> joinWaiter() throws InterruptedException {
+        long before = coalescer.getCoalescedRequests();
+        Future<ForwardResponse> waiter = executor.submit(
+                () -> coalescer.execute(request("GET"), counting(response(200, "10.0.0.2:8080"))));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getCoalescedRequests() == before && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalescer.getCoalescedRequests()).isEqualTo(before + 1);
+        return waiter;
+    }
+
+    private Function<ForwardRequest, ForwardResponse> counting(ForwardResponse answer) {
+        return forwarded -> {
+            upstreamCalls.incrementAndGet();
+            return answer;
+        };
+    }
+
+    private static ForwardRequest request(String method) {
+        ForwardRequest request = new ForwardRequest();
+        request.setUrl("https://target.test/page");
+        request.setMethod(method);
+        return request;
+    }
+
+    private static ForwardResponse response(int status, String proxyUsed) {
+        ForwardResponse response = new ForwardResponse();
+        response.setStatusCode(status);
+        response.setProxyUsed(proxyUsed);
+        return response;
+    }
+}
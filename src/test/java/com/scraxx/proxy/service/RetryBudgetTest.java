@@ -0,0 +1,71 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTest {
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+
+    @BeforeEach
+    void configure() {
+        config.setRetryBudgetMaxRetries(2);
+        config.setRetryBudgetPercent(50);
+        config.setRetryBudgetMinRetriesPerSecond(1);
+    }
+
+    @Test
+    void startsFullAndRunsDry() {
+        RetryBudget budget = new RetryBudget(config);
+
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isFalse();
+        assertThat(budget.getRetriesDenied()).isEqualTo(1);
+    }
+
+    @Test
+    void requestsEarnFractionalRetries() {
+        RetryBudget budget = drained();
+
+        budget.onRequest();
+        assertThat(budget.tryRetry()).isFalse();
+        budget.onRequest();
+        budget.onRequest();
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isFalse();
+    }
+
+    @Test
+    void replenishAddsThePerSecondAllowance() {
+        RetryBudget budget = drained();
+
+        budget.replenish();
+
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isFalse();
+    }
+
+    @Test
+    void balanceNeverExceedsTheMaximum() {
+        RetryBudget budget = new RetryBudget(config);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+            budget.replenish();
+        }
+
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isFalse();
+    }
+
+    private RetryBudget drained() {
+        RetryBudget budget = new RetryBudget(config);
+        while (budget.tryRetry()) {
+            // Spend the initial balance
+        }
+        return budget;
+    }
+}
@@ -0,0 +1,131 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionRingTest {
+    private static final int VIRTUAL_NODES = 100;
+
+    @Test
+    void sameSessionAlwaysGetsSameProxy() {
+        SessionRing ring = new SessionRing(proxies(10), VIRTUAL_NODES);
+
+        ProxyInfo first = ring.select("session-42", proxy -> true);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(ring.select("session-42", proxy -> true)).isSameAs(first);
+        }
+    }
+
+    @Test
+    void removingProxyOnlyMovesItsOwnSessions() {
+        ProxyInfo[] proxies = proxies(10);
+        SessionRing before = new SessionRing(proxies, VIRTUAL_NODES);
+        ProxyInfo removed = proxies[3];
+        SessionRing after = new SessionRing(Arrays.stream(proxies).filter(proxy -> proxy != removed)
+                .toArray(ProxyInfo[]::new), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String session = "session-" + i;
+            ProxyInfo was = before.select(session, proxy -> true);
+            ProxyInfo now = after.select(session, proxy -> true);
+            if (was != removed) {
+                assertThat(now).as("session %s", session).isEqualTo(was);
+            } else {
+                moved++;
+            }
+        }
+        // Roughly a tenth of the sessions lived on the removed proxy
+        assertThat(moved).isBetween(500, 1_500);
+    }
+
+    @Test
+    void sessionsSpreadOverEveryProxy() {
+        ProxyInfo[] proxies = proxies(10);
+        SessionRing ring = new SessionRing(proxies, VIRTUAL_NODES);
+
+        Map<ProxyInfo, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            counts.merge(ring.select("session-" + i, proxy -> true), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(10);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(500, 1_500));
+    }
+
+    @Test
+    void selectOffersEachProxyOnceBeforeGivingUp() {
+        ProxyInfo[] proxies = proxies(5);
+        SessionRing ring = new SessionRing(proxies, VIRTUAL_NODES);
+
+        List<ProxyInfo> offered = new ArrayList<>();
+        ProxyInfo selected = ring.select("session", proxy -> {
+            offered.add(proxy);
+            return false;
+        });
+
+        assertThat(selected).isNull();
+        assertThat(offered).hasSize(5).doesNotHaveDuplicates().containsExactlyInAnyOrder(proxies);
+    }
+
+    @Test
+    void refusedProxySpillsOverToNextOne() {
+        SessionRing ring = new SessionRing(proxies(5), VIRTUAL_NODES);
+        ProxyInfo home = ring.select("session", proxy -> true);
+
+        ProxyInfo spilled = ring.select("session", proxy -> proxy != home);
+
+        assertThat(spilled).isNotNull().isNotSameAs(home);
+        assertThat(ring.select("session", proxy -> proxy != home)).isSameAs(spilled);
+    }
+
+    @Test
+    void loadCapSpillsHotSessionsWithoutOverloadingAnyProxy() {
+        ProxyInfo[] proxies = proxies(4);
+        SessionRing ring = new SessionRing(proxies, VIRTUAL_NODES);
+        int sessions = 400;
+        int maxLoad = (int) Math.ceil(1.25 * sessions / proxies.length);
+
+        Map<ProxyInfo, Integer> load = new HashMap<>();
+        int spilled = 0;
+        for (int i = 0; i < sessions; i++) {
+            // Every session lands on the same point, as a single hot session key would
+            ProxyInfo home = ring.select("hot", proxy -> true);
+            ProxyInfo selected = ring.select("hot", proxy -> load.getOrDefault(proxy, 0) < maxLoad);
+            load.merge(selected, 1, Integer::sum);
+            if (selected != home) {
+                spilled++;
+            }
+        }
+
+        assertThat(load.values()).allSatisfy(count -> assertThat(count).isLessThanOrEqualTo(maxLoad));
+        assertThat(load.get(ring.select("hot", proxy -> true))).isEqualTo(maxLoad);
+        assertThat(spilled).isEqualTo(sessions - maxLoad);
+    }
+
+    @Test
+    void emptyRingSelectsNothing() {
+        assertThat(new SessionRing(new ProxyInfo[0], VIRTUAL_NODES).select("session", proxy -> true)).isNull();
+    }
+
+    private static ProxyInfo[] proxies(int count) {
+        return IntStream.range(0, count).mapToObj(i -> proxy("10.0.0." + (i + 1), "8080")).toArray(ProxyInfo[]::new);
+    }
+
+    private static ProxyInfo proxy(String ip, String port) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort(port);
+        return proxy;
+    }
+}
@@ -0,0 +1,187 @@
+package com.scraxx.proxy.service;
+
+import com.scraxx.proxy.config.ProxyConfigProperties;
+import com.scraxx.proxy.model.ForwardResponse;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamingForwardServiceTest {
+    private static final String URL = "https://target.test/file";
+
+    private final ProxyConfigProperties config = new ProxyConfigProperties();
+    private final ProxyManagerService proxyManager = mock(ProxyManagerService.class);
+    private final ProxyClientRegistry clientRegistry = mock(ProxyClientRegistry.class);
+    private final ProxyPerformanceTracker performanceTracker =
+            new ProxyPerformanceTracker(config, mock(ApplicationEventPublisher.class));
+    private final ForwardMetrics metrics = mock(ForwardMetrics.class);
+    private final List<ProxyInfo> proxies = new ArrayList<>();
+
+    private final StreamingForwardService service = new StreamingForwardService(proxyManager, config,
+            mock(AlertService.class), clientRegistry, new ForwardConcurrencyLimiter(config, mock(ForwardMetrics.class)),
+            performanceTracker, new ForwardRateLimiter(config, performanceTracker), new RetryBudget(config), metrics);
+
+    @BeforeEach
+    void configure() throws IOException {
+        // Select like the real manager does on the pool path: the first untried proxy, counted in flight
+        when(proxyManager.awaitProxy(any(), anyLong()))
+                .thenAnswer(invocation -> invocation.<Supplier<ProxyInfo>>getArgument(0).get());
+        when(proxyManager.getNextHealthyProxy(isNull(), isNull(), anySet())).thenAnswer(invocation -> {
+            Set<String> tried = invocation.getArgument(2);
+            ProxyInfo selected = proxies.stream()
+                    .filter(proxy -> !tried.contains(proxy.getAddress()))
+                    .findFirst()
+                    .orElse(null);
+            if (selected != null) {
+                performanceTracker.get(selected).tryStartRequest(0);
+            }
+            return selected;
+        });
+        ClientHttpRequestFactory direct = mock(ClientHttpRequestFactory.class);
+        when(direct.createRequest(any(), any())).thenThrow(new ConnectException("direct refused"));
+        when(clientRegistry.getDirectRequestFactory()).thenReturn(direct);
+    }
+
+    @Test
+    void gatewayAnswerRotatesWithoutEvicting() throws IOException {
+        ProxyInfo first = proxy("10.0.0.1", answering(HttpStatus.BAD_GATEWAY));
+        ProxyInfo second = proxy("10.0.0.2", answering(HttpStatus.OK));
+
+        MockHttpServletResponse response = stream();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(StreamingForwardService.PROXY_USED_HEADER)).isEqualTo(second.getAddress());
+        assertThat(response.getContentAsString()).isEqualTo("payload");
+        verify(proxyManager, never()).markProxyUnhealthy(any());
+        assertThat(performanceTracker.get(first).getInFlight()).isZero();
+        verify(metrics).recordAttempt(eq(first.getAddress()), eq("UPSTREAM_ERROR"), anyLong());
+        verify(metrics).recordForward(argThat(outcome -> second.getAddress().equals(outcome.getProxyUsed())), anyLong());
+        verify(metrics).recordTarget(eq(URL), anyLong());
+    }
+
+    @Test
+    void unreachableProxyIsEvicted() throws IOException {
+        ProxyInfo first = proxy("10.0.0.1", failing(new ConnectException("refused")));
+        proxy("10.0.0.2", answering(HttpStatus.OK));
+
+        assertThat(stream().getStatus()).isEqualTo(200);
+
+        verify(proxyManager).markProxyUnhealthy(first);
+    }
+
+    @Test
+    void rejectingProxyIsEvicted() throws IOException {
+        ProxyInfo first = proxy("10.0.0.1", answering(HttpStatus.PROXY_AUTHENTICATION_REQUIRED));
+        proxy("10.0.0.2", answering(HttpStatus.OK));
+
+        assertThat(stream().getStatus()).isEqualTo(200);
+
+        verify(proxyManager).markProxyUnhealthy(first);
+    }
+
+    @Test
+    void timedOutProxyIsNotEvicted() throws IOException {
+        proxy("10.0.0.1", failing(new SocketTimeoutException("Read timed out")));
+        proxy("10.0.0.2", answering(HttpStatus.OK));
+
+        assertThat(stream().getStatus()).isEqualTo(200);
+
+        verify(proxyManager, never()).markProxyUnhealthy(any());
+    }
+
+    @Test
+    void targetErrorIsRelayedWithoutRotating() throws IOException {
+        ProxyInfo first = proxy("10.0.0.1", answering(HttpStatus.NOT_FOUND));
+        ProxyInfo second = proxy("10.0.0.2", answering(HttpStatus.OK));
+
+        MockHttpServletResponse response = stream();
+
+        assertThat(response.getStatus()).isEqualTo(404);
+        assertThat(response.getHeader(StreamingForwardService.PROXY_USED_HEADER)).isEqualTo(first.getAddress());
+        verify(clientRegistry, never()).getProxyRequestFactory(second);
+    }
+
+    @Test
+    void exhaustedRetryBudgetStopsRotation() throws IOException {
+        config.setRetryBudgetMaxRetries(0);
+        config.setRetryBudgetPercent(0);
+        proxy("10.0.0.1", answering(HttpStatus.BAD_GATEWAY));
+        ProxyInfo second = proxy("10.0.0.2", answering(HttpStatus.OK));
+        StreamingForwardService limited = new StreamingForwardService(proxyManager, config, mock(AlertService.class),
+                clientRegistry, new ForwardConcurrencyLimiter(config, mock(ForwardMetrics.class)), performanceTracker,
+                new ForwardRateLimiter(config, performanceTracker), new RetryBudget(config), metrics);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        limited.streamRequest(URL, new ServletServerHttpRequest(new MockHttpServletRequest("GET", "/stream")),
+                new ServletServerHttpResponse(response));
+
+        assertThat(response.getStatus()).isEqualTo(502);
+        verify(clientRegistry, never()).getProxyRequestFactory(second);
+        verify(metrics).recordForward(argThat(outcome -> outcome.getStatusCode() == 502), anyLong());
+    }
+
+    private MockHttpServletResponse stream() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.streamRequest(URL, new ServletServerHttpRequest(new MockHttpServletRequest("GET", "/stream")),
+                new ServletServerHttpResponse(response));
+        return response;
+    }
+
+    private ProxyInfo proxy(String ip, ClientHttpRequestFactory requestFactory) {
+        ProxyInfo proxy = new ProxyInfo();
+        proxy.setIp(ip);
+        proxy.setPort("8080");
+        proxies.add(proxy);
+        when(clientRegistry.getProxyRequestFactory(proxy)).thenReturn(requestFactory);
+        return proxy;
+    }
+
+    private static ClientHttpRequestFactory answering(HttpStatus status) throws IOException {
+        ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
+        when(requestFactory.createRequest(any(), any())).thenAnswer(invocation -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(
+                    invocation.<HttpMethod>getArgument(1), invocation.<URI>getArgument(0));
+            request.setResponse(new MockClientHttpResponse("payload".getBytes(StandardCharsets.UTF_8), status));
+            return request;
+        });
+        return requestFactory;
+    }
+
+    private static ClientHttpRequestFactory failing(IOException failure) throws IOException {
+        ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
+        when(requestFactory.createRequest(any(), any())).thenThrow(failure);
+        return requestFactory;
+    }
+}
@@ -0,0 +1,55 @@
+package com.scraxx.proxy.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void burstIsAvailableAtOnce() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void queuedReservationWaitsOneInterval() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.reserve(0);
+
+        long waitNanos = bucket.reserve(TimeUnit.SECONDS.toNanos(2));
+
+        assertThat(waitNanos).isBetween(TimeUnit.MILLISECONDS.toNanos(900), TimeUnit.SECONDS.toNanos(1));
+        // Both the used and the queued permit are taken, so even a two second wait is not enough now
+        assertThat(bucket.reserve(TimeUnit.SECONDS.toNanos(1))).isEqualTo(-1);
+    }
+
+    @Test
+    void refundedPermitCanBeTakenAgain() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.reserve(0);
+        assertThat(bucket.reserve(0)).isEqualTo(-1);
+
+        bucket.refund();
+
+        assertThat(bucket.reserve(0)).isZero();
+    }
+
+    @Test
+    void refundsNeverRaiseTheBurst() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+        for (int i = 0; i < 5; i++) {
+            bucket.refund();
+        }
+
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isEqualTo(-1);
+    }
+}
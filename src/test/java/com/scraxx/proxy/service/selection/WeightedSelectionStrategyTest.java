@@ -0,0 +1,88 @@
+package com.scraxx.proxy.service.selection;
+
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedSelectionStrategyTest {
+    private final Map<ProxyInfo, Double> weights = new HashMap<>();
+    private final AtomicInteger weighed = new AtomicInteger();
+    private final WeightedSelectionStrategy strategy = new WeightedSelectionStrategy() {
+        @Override
+        protected double weight(ProxyInfo proxyInfo) {
+            weighed.incrementAndGet();
+            return weights.getOrDefault(proxyInfo, 1.0);
+        }
+    };
+
+    @Test
+    void reusesTheTableOfEachArray() {
+        ProxyInfo[] all = proxies(100);
+        ProxyInfo[] some = {all[0], all[1], all[2]};
+
+        for (int i = 0; i < 50; i++) {
+            strategy.select(all);
+            strategy.select(some);
+        }
+
+        assertThat(weighed).hasValue(all.length + some.length);
+    }
+
+    @Test
+    void filteredSelectionOnlyReturnsEligibleProxies() {
+        ProxyInfo[] all = proxies(100);
+        ProxyInfo only = all[42];
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(strategy.select(all, proxy -> proxy == only)).isSameAs(only);
+        }
+        assertThat(strategy.select(all, proxy -> false)).isNull();
+        // Falling back to a pass over the eligible proxies still reads the one cached table
+        assertThat(weighed).hasValue(all.length);
+    }
+
+    @Test
+    void filteredSelectionFollowsWeights() {
+        ProxyInfo[] all = proxies(100);
+        weights.put(all[0], 1000.0);
+        weights.put(all[1], 1.0);
+
+        int heavy = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (strategy.select(all, proxy -> proxy == all[0] || proxy == all[1]) == all[0]) {
+                heavy++;
+            }
+        }
+
+        assertThat(heavy).isGreaterThan(950);
+    }
+
+    @Test
+    void lightProxiesStillGetTheOddRequest() {
+        ProxyInfo[] pair = proxies(2);
+        weights.put(pair[0], 1.0);
+        weights.put(pair[1], 0.0);
+
+        boolean lightSelected = false;
+        for (int i = 0; i < 10_000 && !lightSelected; i++) {
+            lightSelected = strategy.select(pair) == pair[1];
+        }
+
+        assertThat(lightSelected).isTrue();
+    }
+
+    private static ProxyInfo[] proxies(int count) {
+        ProxyInfo[] proxies = new ProxyInfo[count];
+        for (int i = 0; i < count; i++) {
+            proxies[i] = new ProxyInfo();
+            proxies[i].setIp("10.0.0." + (i + 1));
+            proxies[i].setPort("8080");
+        }
+        return proxies;
+    }
+}
@@ -0,0 +1,92 @@
+package com.scraxx.proxy.service.source;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scraxx.proxy.model.FetchProxyResponseWrapper;
+import com.scraxx.proxy.model.ProxyInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProxyListParserTest {
+    private final ProxyListParser parser = new ProxyListParser(new ObjectMapper());
+
+    @Test
+    void parsesProviderPage() throws IOException {
+        FetchProxyResponseWrapper page = parser.parse(json("""
+                {
+                  "total": 2, "page": 1, "limit": 50, "ignored": {"nested": [1, 2]},
+                  "data": [
+                    {"_id": "a", "ip": "10.0.0.1", "port": "8080", "protocols": ["http"], "country": "US",
+                     "anonymityLevel": "elite", "unknownField": true},
+                    {"_id": "b", "ip": "10.0.0.2", "port": "3128"}
+                  ]
+                }"""));
+
+        assertThat(page.getTotal()).isEqualTo(2);
+        assertThat(page.getPage()).isEqualTo(1);
+        assertThat(page.getLimit()).isEqualTo(50);
+        assertThat(page.getData()).extracting(ProxyInfo::getAddress).containsExactly("10.0.0.1:8080", "10.0.0.2:3128");
+        ProxyInfo first = page.getData().get(0);
+        assertThat(first.getId()).isEqualTo("a");
+        assertThat(first.getProtocols()).containsExactly("http");
+        assertThat(first.getCountry()).isEqualTo("US");
+        assertThat(first.getAnonymityLevel()).isEqualTo("elite");
+    }
+
+    @Test
+    void parsesBareArray() throws IOException {
+        FetchProxyResponseWrapper page = parser.parse(json("""
+                [{"ip": "10.0.0.1", "port": "8080"}, {"ip": "10.0.0.2", "port": "8081"}]"""));
+
+        assertThat(page.getData()).extracting(ProxyInfo::getAddress).containsExactly("10.0.0.1:8080", "10.0.0.2:8081");
+        assertThat(page.getTotal()).isNull();
+    }
+
+    @Test
+    void dropsEntriesWithoutIpOrPort() throws IOException {
+        FetchProxyResponseWrapper page = parser.parse(json("""
+                {"data": [
+                  {"ip": "10.0.0.1"},
+                  {"port": "8080"},
+                  {"ip": " ", "port": "8080"},
+                  {"ip": "10.0.0.4", "port": "8080"}
+                ]}"""));
+
+        assertThat(page.getData()).extracting(ProxyInfo::getAddress).containsExactly("10.0.0.4:8080");
+    }
+
+    @Test
+    void toleratesNonArrayData() throws IOException {
+        FetchProxyResponseWrapper page = parser.parse(json("""
+                {"data": {"unexpected": "shape"}, "total": 0}"""));
+
+        assertThat(page.getData()).isEmpty();
+        assertThat(page.getTotal()).isZero();
+    }
+
+    @Test
+    void rejectsScalarDocument() {
+        assertThatThrownBy(() -> parser.parse(json("\"proxies\""))).isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void parsesHostPortAddresses() {
+        assertThat(ProxyListParser.parseAddress(" proxy.example.com:10000 ").getAddress())
+                .isEqualTo("proxy.example.com:10000");
+        assertThat(ProxyListParser.parseAddress("[::1]:8080").getIp()).isEqualTo("[::1]");
+        assertThat(ProxyListParser.parseAddress("no-port")).isNull();
+        assertThat(ProxyListParser.parseAddress(":8080")).isNull();
+        assertThat(ProxyListParser.parseAddress("host:")).isNull();
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}